@@ -1,6 +1,7 @@
 package webapp;
 
 import webapp.storage.*;
+import webapp.util.StringDedup;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -14,14 +15,13 @@ import java.util.logging.LogManager;
 public class Config {
     public static final String DIR_STORAGE;
     public static final String DB_URL, DB_USER, DB_PASSWORD;
-    public static final IStorage SQL_STORAGE;
-    public static final IStorage DS_STORAGE;
-    public static final IStorage SER_STORAGE;
-    public static final IStorage XML_STORAGE;
+    public static final long DB_SLOW_QUERY_MILLIS;
+    private static final Properties PROPS = new Properties();
+    private static volatile IStorage storage;
 
     static {
         File webappRootDir = findWebappRootDir();
-        Properties props = new Properties();
+        Properties props = PROPS;
         try (FileInputStream webappProps = new FileInputStream(new File(webappRootDir, "config/webapp.properties"));
              FileInputStream logProps = new FileInputStream(new File(webappRootDir, "config/logging.properties"))) {
 
@@ -32,12 +32,8 @@ public class Config {
             DB_URL = props.getProperty("db.url");
             DB_USER = props.getProperty("db.user");
             DB_PASSWORD = props.getProperty("db.password");
-
-            // Initialize storage instances after DIR_STORAGE is set
-            SQL_STORAGE = new SqlStorage();
-            DS_STORAGE = new DataStreamStorage(DIR_STORAGE);
-            SER_STORAGE = new SerializeStorage(DIR_STORAGE);
-            XML_STORAGE = new XmlStorage(DIR_STORAGE);
+            DB_SLOW_QUERY_MILLIS = Long.parseLong(props.getProperty("db.slowQueryMillis", "500").trim());
+            StringDedup.configure(Integer.parseInt(props.getProperty("dedup.size", "0").trim()));
         } catch (IOException e) {
             e.printStackTrace();
             throw new IllegalStateException(e);
@@ -70,7 +66,19 @@ public class Config {
         throw new IllegalStateException("Cannot find webapp root directory");
     }
 
+    /**
+     * Хранилище из storage.* в webapp.properties, создаётся при первом обращении
+     */
     public static IStorage getStorage() {
-        return SQL_STORAGE;
+        IStorage result = storage;
+        if (result == null) {
+            synchronized (Config.class) {
+                result = storage;
+                if (result == null) {
+                    storage = result = new StorageConfig(PROPS, "storage").create();
+                }
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,14 @@
+package webapp;
+
+import webapp.model.Resume;
+
+/**
+ * Резюме изменили с тех пор, как его прочитали: версия в хранилище
+ * не совпадает с версией обновляемого резюме.
+ */
+public class ResumeConflictException extends WebAppException {
+
+    public ResumeConflictException(Resume resume) {
+        super("Resume " + resume.getUuid() + " was modified concurrently, version " + resume.getVersion() + " is outdated", resume);
+    }
+}
@@ -0,0 +1,44 @@
+package webapp.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Считает прочитанные байты в счётчик
+ */
+public class CountingInputStream extends FilterInputStream {
+    private final Counter counter;
+
+    public CountingInputStream(InputStream in, Counter counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) counter.increment();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) counter.add(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        counter.add(skipped);
+        return skipped;
+    }
+
+    // пометка сбила бы подсчёт
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
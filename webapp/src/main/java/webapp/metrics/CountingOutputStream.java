@@ -0,0 +1,30 @@
+package webapp.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Считает записанные байты в счётчик
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    private final Counter counter;
+
+    public CountingOutputStream(OutputStream out, Counter counter) {
+        super(out);
+        this.counter = counter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        counter.increment();
+    }
+
+    // FilterOutputStream пишет массив по байту
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        counter.add(len);
+    }
+}
@@ -0,0 +1,71 @@
+package webapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма неотрицательных значений (наносекунд) в логарифмических корзинах, как в HdrHistogram:
+ * каждая степень двойки делится на SUB_BUCKETS равных частей, погрешность не больше 1/SUB_BUCKETS.
+ * Запись - одно атомарное увеличение счётчика, без блокировок и выделения памяти.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(index(Math.max(value, 0)));
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param quantile от 0 до 1
+     * @return верхняя граница корзины, в которую попадает квантиль; 0, если значений нет
+     */
+    public long getValueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += snapshot[i] = counts.get(i);
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exp - SUB_BITS);
+    }
+
+    static long upperBound(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+    }
+}
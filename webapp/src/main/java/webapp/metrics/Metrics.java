@@ -0,0 +1,121 @@
+package webapp.metrics;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Метрики приложения по именам вида "storage.load". Счётчики и таймеры создаются один раз
+ * и хранятся у того, кто их пишет; реестр нужен только для выдачи в /metrics и JMX.
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final ConcurrentMap<String, Object> REGISTRY = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        return get(name, Timer.class, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return get(name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Значение, которое считается при выдаче (размер кэша, число запросов в работе).
+     * Повторная регистрация заменяет прежнее значение, например после перезапуска сервлета.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        REGISTRY.put(name, value);
+    }
+
+    public static void remove(String name) {
+        REGISTRY.remove(name);
+    }
+
+    /**
+     * Плоский снимок: таймеры раскладываются на count, errors, meanMillis, maxMillis и квантили
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+            String name = e.getKey();
+            Object metric = e.getValue();
+            if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                long count = timer.getCount();
+                result.put(name + ".count", count);
+                result.put(name + ".errors", timer.getErrors());
+                result.put(name + ".meanMillis", count == 0 ? 0.0 : timer.getTotalNanos() / 1e6 / count);
+                result.put(name + ".maxMillis", timer.getMaxNanos() / 1e6);
+                for (double q : QUANTILES) {
+                    result.put(name + ".p" + quantileName(q) + "Millis", timer.getNanosAtQuantile(q) / 1e6);
+                }
+            } else if (metric instanceof Counter) {
+                result.put(name, ((Counter) metric).get());
+            } else {
+                result.put(name, ((LongSupplier) metric).getAsLong());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Текстовый формат Prometheus: точки в именах заменяются на _, время в секундах
+     */
+    public static void writeText(Appendable out) throws IOException {
+        for (Map.Entry<String, Object> e : REGISTRY.entrySet()) {
+            String name = e.getKey().replace('.', '_');
+            Object metric = e.getValue();
+            if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                out.append("# TYPE ").append(name).append("_seconds summary\n");
+                for (double q : QUANTILES) {
+                    line(out, name + "_seconds{quantile=\"" + q + "\"}", seconds(timer.getNanosAtQuantile(q)));
+                }
+                line(out, name + "_seconds_sum", seconds(timer.getTotalNanos()));
+                line(out, name + "_seconds_count", String.valueOf(timer.getCount()));
+                line(out, name + "_seconds_max", seconds(timer.getMaxNanos()));
+                line(out, name + "_errors_total", String.valueOf(timer.getErrors()));
+            } else if (metric instanceof Counter) {
+                out.append("# TYPE ").append(name).append("_total counter\n");
+                line(out, name + "_total", String.valueOf(((Counter) metric).get()));
+            } else {
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                line(out, name, String.valueOf(((LongSupplier) metric).getAsLong()));
+            }
+        }
+    }
+
+    private static <T> T get(String name, Class<T> type, Supplier<T> factory) {
+        Object metric = REGISTRY.get(name);
+        if (metric == null) {
+            metric = REGISTRY.computeIfAbsent(name, n -> factory.get());
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is " + metric.getClass().getSimpleName() + ", not " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    private static void line(Appendable out, String name, String value) throws IOException {
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    // 0.5 -> 50, 0.99 -> 99, 0.999 -> 999
+    private static String quantileName(double q) {
+        String digits = String.valueOf(q).substring(2);
+        return digits.length() == 1 ? digits + "0" : digits;
+    }
+}
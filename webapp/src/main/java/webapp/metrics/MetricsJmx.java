@@ -0,0 +1,81 @@
+package webapp.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * Все метрики как атрибуты одного MBean webapp:type=Metrics (только чтение, значения на момент запроса)
+ */
+public class MetricsJmx implements DynamicMBean {
+    public static final String OBJECT_NAME = "webapp:type=Metrics";
+
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsJmx(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't register " + OBJECT_NAME, e);
+        }
+    }
+
+    public static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't unregister " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = Metrics.snapshot().get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> snapshot = Metrics.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = snapshot.get(attribute);
+            if (value != null) list.add(new Attribute(attribute, value));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    // Набор атрибутов меняется по мере появления метрик, поэтому строится на каждый запрос
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Number> snapshot = Metrics.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> e : snapshot.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Webapp metrics", attributes, null, null, null);
+    }
+}
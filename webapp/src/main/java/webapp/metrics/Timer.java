@@ -0,0 +1,47 @@
+package webapp.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Время выполнения операции: число вызовов, ошибки, сумма, максимум и гистограмма
+ */
+public class Timer {
+    private final Histogram histogram = new Histogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram.record(nanos);
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // верхняя граница корзины может оказаться больше настоящего максимума
+    public long getNanosAtQuantile(double quantile) {
+        return Math.min(histogram.getValueAtQuantile(quantile), maxNanos.get());
+    }
+}
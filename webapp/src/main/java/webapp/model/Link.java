@@ -1,7 +1,10 @@
 package webapp.model;
 
+import webapp.util.DedupAdapter;
+
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import java.io.Serializable;
 
 /**
@@ -12,7 +15,9 @@ import java.io.Serializable;
 public class Link implements Serializable {
     public static final Link EMPTY = new Link();
     static final long serialVersionUID = 1L;
+    @XmlJavaTypeAdapter(DedupAdapter.class)
     private String name;
+    @XmlJavaTypeAdapter(DedupAdapter.class)
     private String url;
 
     public Link() {
@@ -2,10 +2,16 @@ package webapp.model;
 
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
+import webapp.util.CompactList;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * User: gkislin
@@ -15,38 +21,84 @@ import java.util.LinkedList;
 public class Organization implements Serializable {
     public static final Organization EMPTY = new Organization();
     static final long serialVersionUID = 1L;
+    // сериализованная форма прежняя, с LinkedList: читаются файлы, записанные до CompactList
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("link", Link.class),
+            new ObjectStreamField("periods", LinkedList.class)};
 
     static {
         EMPTY.add(Period.EMPTY);
+        EMPTY.freeze();
     }
 
     private Link link;
-    private LinkedList<Period> periods;
+    private CompactList<Period> periods;
+    // неизменяемый вид periods, null - организация ещё изменяемая
+    private transient List<Period> frozen;
 
     public Organization() {
         link = Link.EMPTY;
-        periods = new LinkedList<>();
+        periods = new CompactList<>();
     }
 
     public Organization(String name, String url, Period... periods) {
-        this(name, url, new LinkedList<>(Arrays.asList(periods)));
+        link = new Link(name, url);
+        this.periods = new CompactList<>(periods);
     }
 
-    public Organization(String name, String url, LinkedList<Period> periods) {
+    public Organization(String name, String url, List<Period> periods) {
         link = new Link(name, url);
-        this.periods = periods;
+        this.periods = new CompactList<>(periods);
     }
 
     public void add(Period p) {
+        checkMutable();
         periods.add(p);
     }
 
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    public Organization freeze() {
+        if (frozen == null) {
+            periods.trimToSize();
+            frozen = Collections.unmodifiableList(periods);
+        }
+        return this;
+    }
+
+    /**
+     * Изменяемая копия, ссылка и периоды (они неизменяемые) общие с оригиналом
+     */
+    public Organization copy() {
+        Organization copy = new Organization();
+        copy.link = link;
+        copy.periods = new CompactList<>(periods);
+        return copy;
+    }
+
     public Link getLink() {
         return link;
     }
 
-    public Collection<Period> getPeriods() {
-        return periods;
+    public List<Period> getPeriods() {
+        return frozen != null ? frozen : periods;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("link", link);
+        fields.put("periods", new LinkedList<>(periods));
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        link = (Link) fields.get("link", null);
+        List<Period> list = (List<Period>) fields.get("periods", null);
+        periods = list == null ? new CompactList<>() : new CompactList<>(list);
     }
 
     @Override
@@ -78,6 +130,13 @@ public class Organization implements Serializable {
     }
 
     public void addFirstPeriod(Period period) {
+        checkMutable();
         periods.addFirst(period);
     }
+
+    private void checkMutable() {
+        if (frozen != null) {
+            throw new UnsupportedOperationException("Organization is frozen");
+        }
+    }
 }
@@ -8,10 +8,30 @@ public class OrganizationSection extends Section<Organization> {
     public static final OrganizationSection EMPTY = new OrganizationSection(Organization.EMPTY);
     static final long serialVersionUID = 1L;
 
+    static {
+        EMPTY.freeze();
+    }
+
     public OrganizationSection() {
     }
 
     public OrganizationSection(Organization... organizations) {
         super(organizations);
     }
+
+    @Override
+    protected Section<Organization> newInstance() {
+        return new OrganizationSection();
+    }
+
+    // неизменяемая организация общая у копий
+    @Override
+    protected Organization copyValue(Organization org) {
+        return org.isFrozen() ? org : org.copy();
+    }
+
+    @Override
+    protected void freezeValue(Organization org) {
+        org.freeze();
+    }
 }
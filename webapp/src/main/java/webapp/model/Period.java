@@ -1,30 +1,52 @@
 package webapp.model;
 
 import webapp.util.DateUtil;
+import webapp.util.DedupAdapter;
 
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlTransient;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
 /**
  * User: gkislin
  * Date: 31.01.14
+ * <p>
+ * Даты хранятся упакованными в int (см. {@link DateUtil}), {@link DateUtil#NONE} - "сейчас".
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 public class Period implements Serializable {
     public static final Period EMPTY = new Period();
     static final long serialVersionUID = 1L;
-    private Date startDate;
-    private Date endDate;
+    // сериализованная форма прежняя, с датами Date: читаются файлы, записанные до упаковки дат
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("startDate", Date.class),
+            new ObjectStreamField("endDate", Date.class),
+            new ObjectStreamField("position", String.class),
+            new ObjectStreamField("content", String.class)};
+    @XmlTransient
+    private int startDate;
+    @XmlTransient
+    private int endDate;
+    @XmlJavaTypeAdapter(DedupAdapter.class)
     private String position;
     private String content;
 
     public Period() {
     }
 
-    public Period(Date startDate, Date endDate, String position, String content) {
-        if (startDate != null && endDate != null && endDate.before(startDate)) {
+    /**
+     * @param startDate упакованная дата, {@link DateUtil#yearMonth(int, int)}
+     */
+    public Period(int startDate, int endDate, String position, String content) {
+        if (startDate != DateUtil.NONE && endDate != DateUtil.NONE && endDate < startDate) {
             throw new IllegalArgumentException("Дата окончания не может быть раньше даты начала");
         }
         this.startDate = startDate;
@@ -33,21 +55,36 @@ public class Period implements Serializable {
         this.content = content;
     }
 
+    public Period(Date startDate, Date endDate, String position, String content) {
+        this(DateUtil.yearMonth(startDate), DateUtil.yearMonth(endDate), position, content);
+    }
+
     public Period(int startYear, int startMonth,
                   int endYear, int endMonth, String position, String content) {
-        this(DateUtil.getDate(startYear, startMonth),
-                DateUtil.getDate(endYear, endMonth),
+        this(DateUtil.yearMonth(startYear, startMonth),
+                DateUtil.yearMonth(endYear, endMonth),
                 position, content);
     }
 
-    public Date getStartDate() {
+    public int getStart() {
         return startDate;
     }
 
-    public Date getEndDate() {
+    public int getEnd() {
         return endDate;
     }
 
+    /**
+     * Новый Date на каждый вызов, для старого кода; новый код берёт {@link #getStart()}
+     */
+    public Date getStartDate() {
+        return DateUtil.getDate(startDate);
+    }
+
+    public Date getEndDate() {
+        return DateUtil.getDate(endDate);
+    }
+
     public String getPosition() {
         return position;
     }
@@ -56,6 +93,42 @@ public class Period implements Serializable {
         return content;
     }
 
+    // в XML даты пишутся как yyyy-MM, не заданная - без элемента
+    @XmlElement(name = "startDate")
+    private String getStartXml() {
+        return DateUtil.formatIso(startDate);
+    }
+
+    private void setStartXml(String value) {
+        startDate = DateUtil.parseIso(value);
+    }
+
+    @XmlElement(name = "endDate")
+    private String getEndXml() {
+        return DateUtil.formatIso(endDate);
+    }
+
+    private void setEndXml(String value) {
+        endDate = DateUtil.parseIso(value);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("startDate", DateUtil.getDate(startDate));
+        fields.put("endDate", DateUtil.getDate(endDate));
+        fields.put("position", position);
+        fields.put("content", content);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        startDate = DateUtil.yearMonth((Date) fields.get("startDate", null));
+        endDate = DateUtil.yearMonth((Date) fields.get("endDate", null));
+        position = (String) fields.get("position", null);
+        content = (String) fields.get("content", null);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -63,18 +136,18 @@ public class Period implements Serializable {
 
         Period period = (Period) o;
 
+        if (startDate != period.startDate) return false;
+        if (endDate != period.endDate) return false;
         if (content != null ? !content.equals(period.content) : period.content != null) return false;
-        if (endDate != null ? !endDate.equals(period.endDate) : period.endDate != null) return false;
         if (position != null ? !position.equals(period.position) : period.position != null) return false;
-        if (startDate != null ? !startDate.equals(period.startDate) : period.startDate != null) return false;
 
         return true;
     }
 
     @Override
     public int hashCode() {
-        int result = startDate != null ? startDate.hashCode() : 0;
-        result = 31 * result + (endDate != null ? endDate.hashCode() : 0);
+        int result = startDate;
+        result = 31 * result + endDate;
         result = 31 * result + (position != null ? position.hashCode() : 0);
         result = 31 * result + (content != null ? content.hashCode() : 0);
         return result;
@@ -83,8 +156,8 @@ public class Period implements Serializable {
     @Override
     public String toString() {
         return "Period{" +
-                "startDate=" + startDate +
-                ", endDate=" + endDate +
+                "startDate=" + DateUtil.formatIso(startDate) +
+                ", endDate=" + DateUtil.formatIso(endDate) +
                 ", position='" + position + '\'' +
                 ", content='" + content + '\'' +
                 '}';
@@ -1,11 +1,15 @@
 package webapp.model;
 
+import webapp.util.DedupAdapter;
+import webapp.util.StringDedup;
 import webapp.util.Util;
 
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.UUID;
@@ -13,6 +17,10 @@ import java.util.UUID;
 /**
  * User: gkislin
  * Date: 20.06.2014
+ * <p>
+ * После {@link #freeze()} резюме неизменяемое: его можно отдавать из хранилищ и кэшей
+ * без копирования и читать из разных потоков. Правка - через {@link #toBuilder()},
+ * новая версия делит с прежней все неизменённые секции.
  */
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -21,20 +29,26 @@ public class Resume implements Comparable<Resume>, Serializable {
     static final long serialVersionUID = 1L;
     public static final int MAX_NAME_LENGTH = 255;
     public static final int MAX_SECTION_ITEMS = 100;
-    private static final java.util.regex.Pattern EMOJI_PATTERN = java.util.regex.Pattern.compile("[\\x{1F600}-\\x{1F64F}\\x{1F300}-\\x{1F5FF}\\x{1F680}-\\x{1F6FF}\\x{1F700}-\\x{1F77F}\\x{1F780}-\\x{1F7FF}\\x{1F800}-\\x{1F8FF}\\x{1F900}-\\x{1F9FF}\\x{1FA00}-\\x{1FA6F}\\x{1FA70}-\\x{1FAFF}\\x{2600}-\\x{26FF}\\x{2700}-\\x{27BF}]");
 
     static {
         EMPTY = new Resume();
         for (SectionType type : SectionType.values()) {
             EMPTY.addSection(type, type.getSectionClass().getEmptySection());
         }
+        EMPTY.freeze();
     }
 
     private String uuid;
     private String fullName;
+    @XmlJavaTypeAdapter(DedupAdapter.class)
     private String location;
+    // 0 - версия неизвестна (резюме ещё не сохранено или обновляется без проверки)
+    private int version;
     private Map<ContactType, String> contacts = new EnumMap<>(ContactType.class);
     private Map<SectionType, Section> sections = new EnumMap<>(SectionType.class);
+    // неизменяемые виды contacts и sections, null - резюме ещё изменяемое
+    private transient Map<ContactType, String> frozenContacts;
+    private transient Map<SectionType, Section> frozenSections;
 
     public Resume() {
     }
@@ -58,28 +72,65 @@ public class Resume implements Comparable<Resume>, Serializable {
     }
 
     public void setUuid(String uuid) {
+        checkMutable();
         this.uuid = uuid;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        checkMutable();
+        this.version = version;
+    }
+
     public String getFullName() {
         return fullName;
     }
 
     public void setFullName(String fullName) {
+        checkMutable();
+        this.fullName = normalizeName(fullName);
+    }
+
+    /**
+     * Проверка и очистка имени, пришедшего извне (форма, импорт). Корректное имя без эмодзи
+     * и пробелов по краям возвращается как есть, без копирования.
+     */
+    public static String normalizeName(String fullName) {
         if (fullName == null) {
             throw new IllegalArgumentException("Имя обязательно для заполнения");
         }
         if (fullName.isEmpty()) {
             throw new IllegalArgumentException("Имя не может быть пустым");
         }
-        if (fullName.trim().isEmpty()) {
+        if (isBlank(fullName)) {
             throw new IllegalArgumentException("Имя не может состоять только из пробелов");
         }
         if (fullName.length() > MAX_NAME_LENGTH) {
             throw new IllegalArgumentException("Имя слишком длинное");
         }
-        // Remove emoji characters
-        this.fullName = EMOJI_PATTERN.matcher(fullName).replaceAll("").trim();
+        return Util.stripEmoji(fullName).trim();
+    }
+
+    // как trim().isEmpty(), но без копии строки
+    private static boolean isBlank(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Резюме, прочитанное из хранилища: имя уже проверено при записи, повторно не проверяется
+     */
+    public static Resume restore(String uuid, String fullName, String location) {
+        Resume r = new Resume();
+        r.uuid = uuid;
+        r.fullName = fullName;
+        r.location = Util.mask(StringDedup.dedup(location));
+        return r;
     }
 
     public String getLocation() {
@@ -87,6 +138,7 @@ public class Resume implements Comparable<Resume>, Serializable {
     }
 
     public void setLocation(String location) {
+        checkMutable();
         this.location = Util.mask(location);
     }
 
@@ -99,6 +151,7 @@ public class Resume implements Comparable<Resume>, Serializable {
     }
 
     public void addSection(SectionType type, Section s) {
+        checkMutable();
         sections.put(type, s);
     }
 
@@ -107,6 +160,7 @@ public class Resume implements Comparable<Resume>, Serializable {
     }
 
     public void addContact(ContactType type, String value) {
+        checkMutable();
         if (value == null || value.trim().isEmpty()) {
             return;
         }
@@ -145,6 +199,7 @@ public class Resume implements Comparable<Resume>, Serializable {
                 "uuid='" + uuid + '\'' +
                 ", fullName='" + fullName + '\'' +
                 ", location='" + location + '\'' +
+                ", version=" + version +
                 ", contacts=" + contacts +
                 ", sections=" + sections +
                 '}';
@@ -157,14 +212,154 @@ public class Resume implements Comparable<Resume>, Serializable {
     }
 
     public Map<ContactType, String> getContacts() {
-        return contacts;
+        return frozenContacts != null ? frozenContacts : contacts;
     }
 
     public Map<SectionType, Section> getSections() {
-        return sections;
+        return frozenSections != null ? frozenSections : sections;
     }
 
     public void createUuid() {
+        checkMutable();
         this.uuid = UUID.randomUUID().toString();
     }
+
+    public boolean isFrozen() {
+        return frozenContacts != null;
+    }
+
+    /**
+     * Сделать резюме неизменяемым вместе с секциями (на месте, без копирования)
+     */
+    public Resume freeze() {
+        if (frozenContacts == null) {
+            for (Section s : sections.values()) {
+                s.freeze();
+            }
+            frozenSections = Collections.unmodifiableMap(sections);
+            frozenContacts = Collections.unmodifiableMap(contacts);
+        }
+        return this;
+    }
+
+    /**
+     * Неизменяемое резюме: это же, если уже заморожено, иначе замороженная копия
+     */
+    public Resume snapshot() {
+        return isFrozen() ? this : copy().freeze();
+    }
+
+    /**
+     * Изменяемая копия. Неизменяемые секции общие с оригиналом, их можно только заменить целиком.
+     */
+    public Resume copy() {
+        Resume copy = new Resume();
+        copy.uuid = uuid;
+        copy.fullName = fullName;
+        copy.location = location;
+        copy.version = version;
+        copy.contacts.putAll(contacts);
+        for (Map.Entry<SectionType, Section> e : sections.entrySet()) {
+            Section s = e.getValue();
+            copy.sections.put(e.getKey(), s.isFrozen() ? s : s.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Это резюме с другой версией: оно само, если версия та же, иначе копия
+     * (неизменяемая, если это резюме неизменяемое). Хранилища так записывают версию, не трогая резюме вызывающего.
+     */
+    public Resume withVersion(int version) {
+        if (this.version == version) {
+            return this;
+        }
+        Resume copy = copy();
+        copy.version = version;
+        return isFrozen() ? copy.freeze() : copy;
+    }
+
+    public Builder toBuilder() {
+        return new Builder(copy());
+    }
+
+    public static Builder builder(String fullName, String location) {
+        return new Builder(new Resume(fullName, location));
+    }
+
+    private void checkMutable() {
+        if (frozenContacts != null) {
+            throw new UnsupportedOperationException("Resume " + uuid + " is frozen");
+        }
+    }
+
+    /**
+     * Новая версия резюме. Проверки те же, что у сеттеров Resume.
+     */
+    public static class Builder {
+        private Resume r;
+
+        private Builder(Resume r) {
+            this.r = r;
+        }
+
+        public Builder uuid(String uuid) {
+            resume().setUuid(uuid);
+            return this;
+        }
+
+        public Builder fullName(String fullName) {
+            resume().setFullName(fullName);
+            return this;
+        }
+
+        public Builder location(String location) {
+            resume().setLocation(location);
+            return this;
+        }
+
+        public Builder version(int version) {
+            resume().setVersion(version);
+            return this;
+        }
+
+        public Builder contact(ContactType type, String value) {
+            if (value == null || value.trim().isEmpty()) {
+                resume().contacts.remove(type);
+            } else {
+                resume().addContact(type, value);
+            }
+            return this;
+        }
+
+        public Builder section(SectionType type, Section s) {
+            if (s == null) {
+                resume().sections.remove(type);
+            } else {
+                resume().addSection(type, s);
+            }
+            return this;
+        }
+
+        public Builder section(SectionType type, String... values) {
+            return section(type, new TextSection(values));
+        }
+
+        public Builder section(SectionType type, Organization... values) {
+            return section(type, new OrganizationSection(values));
+        }
+
+        public Resume build() {
+            Resume built = resume().freeze();
+            r = null;
+            return built;
+        }
+
+        private Resume resume() {
+            if (r == null) {
+                throw new IllegalStateException("Resume is already built");
+            }
+            return r;
+        }
+    }
 }
@@ -2,10 +2,17 @@ package webapp.model;
 
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
+import webapp.util.CompactList;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * User: gkislin
@@ -14,36 +21,101 @@ import java.util.LinkedList;
 @XmlAccessorType(XmlAccessType.FIELD)
 public abstract class Section<T> implements Serializable {
     static final long serialVersionUID = 1L;
+    // сериализованная форма прежняя, с LinkedList: читаются файлы, записанные до CompactList
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("values", LinkedList.class)};
 
-    private LinkedList<T> values;
+    // массив вместо узлов LinkedList; addFirst (пустое значение для формы) - без сдвига
+    private CompactList<T> values;
+    // неизменяемый вид values, null - секция ещё изменяемая
+    private transient List<T> frozen;
 
     protected Section() {
-        values = new LinkedList<>();
+        values = new CompactList<>();
     }
 
     public Section(T[] values) {
-        this.values = new LinkedList<>(Arrays.asList(values));
+        this.values = new CompactList<>(values);
     }
 
     public void add(T value) {
+        checkMutable();
         values.add(value);
     }
 
     public void addFirst(T value) {
+        checkMutable();
         values.addFirst(value);
     }
 
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    /**
+     * Сделать секцию (вместе со значениями) неизменяемой, после этого её можно отдавать без копирования
+     */
+    public Section<T> freeze() {
+        if (frozen == null) {
+            for (T value : values) {
+                freezeValue(value);
+            }
+            values.trimToSize();
+            frozen = Collections.unmodifiableList(values);
+        }
+        return this;
+    }
+
+    /**
+     * Изменяемая копия, неизменяемые значения не копируются
+     */
+    public Section<T> copy() {
+        Section<T> copy = newInstance();
+        copy.values = new CompactList<>(values);
+        for (int i = 0; i < values.size(); i++) {
+            copy.values.set(i, copyValue(values.get(i)));
+        }
+        return copy;
+    }
+
+    protected abstract Section<T> newInstance();
+
+    protected T copyValue(T value) {
+        return value;
+    }
+
+    protected void freezeValue(T value) {
+    }
+
+    private void checkMutable() {
+        if (frozen != null) {
+            throw new UnsupportedOperationException("Section is frozen");
+        }
+    }
+
     @Override
     public String toString() {
         return "Section( " + values + " )";
     }
 
     public Collection<T> getContent() {
-        return values;
+        return getValues();
+    }
+
+    public List<T> getValues() {
+        return frozen != null ? frozen : values;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("values", new LinkedList<>(values));
+        out.writeFields();
     }
 
-    public Collection<T> getValues() {
-        return values;
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        List<T> list = (List<T>) in.readFields().get("values", null);
+        values = list == null ? new CompactList<>() : new CompactList<>(list);
     }
 
     @Override
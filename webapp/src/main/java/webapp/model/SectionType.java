@@ -34,4 +34,13 @@ public enum SectionType {
     public void addEmptyValue(Section s) {
         sectionClass.addEmptyValue(s);
     }
+
+    /**
+     * Изменяемая копия секции с пустыми значениями для формы, сама секция не меняется
+     */
+    public Section withEmptyValue(Section s) {
+        Section copy = s.copy();
+        addEmptyValue(copy);
+        return copy;
+    }
 }
@@ -8,10 +8,19 @@ public class TextSection extends Section<String> {
     public static final TextSection EMPTY = new TextSection("");
     static final long serialVersionUID = 1L;
 
+    static {
+        EMPTY.freeze();
+    }
+
     public TextSection() {
     }
 
     public TextSection(String... content) {
         super(content);
     }
+
+    @Override
+    protected Section<String> newInstance() {
+        return new TextSection();
+    }
 }
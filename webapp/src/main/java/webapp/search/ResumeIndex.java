@@ -0,0 +1,165 @@
+package webapp.search;
+
+import webapp.model.Resume;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс резюме в памяти: терм -> (uuid -> вес).
+ * <p>
+ * Индексируются имя, место проживания, контакты и текст разделов, с разным весом поля.
+ * В запросе все термы должны найтись (AND); терм совпадает как целиком,
+ * так и префиксом (с половинным весом), что покрывает падежные окончания.
+ * Ранжирование - сумма весов совпавших термов, умноженных на idf.
+ */
+public class ResumeIndex {
+    public static final float NAME_WEIGHT = 3f;
+    public static final float LOCATION_WEIGHT = 2f;
+    public static final float CONTACT_WEIGHT = 2f;
+    public static final float SECTION_WEIGHT = 1f;
+
+    private static final float PREFIX_FACTOR = 0.5f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> docTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(Resume r) {
+        Map<String, Float> terms = new HashMap<>();
+        collect(terms, r.getFullName(), NAME_WEIGHT);
+        collect(terms, r.getLocation(), LOCATION_WEIGHT);
+        collect(terms, ResumeText.contacts(r), CONTACT_WEIGHT);
+        collect(terms, ResumeText.sections(r), SECTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            doRemove(r.getUuid());
+            for (Map.Entry<String, Float> e : terms.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(r.getUuid(), e.getValue());
+            }
+            docTerms.put(r.getUuid(), terms.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String uuid) {
+        lock.writeLock().lock();
+        try {
+            doRemove(uuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docTerms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return uuid найденных резюме, по убыванию релевантности (при равенстве - по uuid)
+     */
+    public List<String> search(String query, int limit) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Map<String, Float> scores = null;
+        lock.readLock().lock();
+        try {
+            int docCount = docTerms.size();
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<String, Float> termScores = match(term, docCount);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<String, Float> e : scores.entrySet()) {
+                        e.setValue(e.getValue() + termScores.get(e.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<String, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((e1, e2) -> {
+            int cmp = Float.compare(e2.getValue(), e1.getValue());
+            return cmp == 0 ? e1.getKey().compareTo(e2.getKey()) : cmp;
+        });
+        List<String> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(ranked.get(i).getKey());
+        }
+        return result;
+    }
+
+    private Map<String, Float> match(String term, int docCount) {
+        Map<String, Float> scores = new HashMap<>();
+        Map<String, Float> exact = postings.get(term);
+        if (exact != null) {
+            addScores(scores, exact, idf(docCount, exact.size()));
+        }
+        if (term.length() >= MIN_PREFIX_LENGTH) {
+            for (Map.Entry<String, Map<String, Float>> e : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                Map<String, Float> docs = e.getValue();
+                addScores(scores, docs, PREFIX_FACTOR * idf(docCount, docs.size()));
+            }
+        }
+        return scores;
+    }
+
+    private static void addScores(Map<String, Float> scores, Map<String, Float> docs, float factor) {
+        for (Map.Entry<String, Float> doc : docs.entrySet()) {
+            scores.merge(doc.getKey(), doc.getValue() * factor, Math::max);
+        }
+    }
+
+    private static float idf(int docCount, int docFreq) {
+        return (float) Math.log(1 + (double) docCount / docFreq);
+    }
+
+    private static void collect(Map<String, Float> terms, String text, float weight) {
+        for (String term : Tokenizer.tokenize(text)) {
+            terms.merge(term, weight, Float::sum);
+        }
+    }
+
+    private void doRemove(String uuid) {
+        Set<String> terms = docTerms.remove(uuid);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<String, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(uuid);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
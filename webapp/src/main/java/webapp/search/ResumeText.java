@@ -0,0 +1,55 @@
+package webapp.search;
+
+import webapp.model.*;
+
+/**
+ * Текст резюме для полнотекстового поиска, собранный по полям
+ */
+public class ResumeText {
+
+    private ResumeText() {
+    }
+
+    public static String contacts(Resume r) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : r.getContacts().values()) {
+            append(sb, value);
+        }
+        return sb.toString();
+    }
+
+    public static String sections(Resume r) {
+        StringBuilder sb = new StringBuilder();
+        for (Section section : r.getSections().values()) {
+            appendSection(sb, section);
+        }
+        return sb.toString();
+    }
+
+    public static String section(Section section) {
+        StringBuilder sb = new StringBuilder();
+        appendSection(sb, section);
+        return sb.toString();
+    }
+
+    private static void appendSection(StringBuilder sb, Section section) {
+        for (Object value : section.getValues()) {
+            if (value instanceof Organization) {
+                Organization org = (Organization) value;
+                append(sb, org.getLink().getName());
+                for (Period p : org.getPeriods()) {
+                    append(sb, p.getPosition());
+                    append(sb, p.getContent());
+                }
+            } else {
+                append(sb, String.valueOf(value));
+            }
+        }
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        if (value != null) {
+            sb.append(value).append('\n');
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package webapp.search;
+
+import webapp.model.Resume;
+
+/**
+ * Результат поиска: краткое резюме и его ранг.
+ * Последний результат страницы служит курсором для запроса следующей.
+ */
+public class SearchHit {
+    private final Resume resume;
+    private final float rank;
+
+    public SearchHit(Resume resume, float rank) {
+        this.resume = resume;
+        this.rank = rank;
+    }
+
+    public Resume getResume() {
+        return resume;
+    }
+
+    public float getRank() {
+        return rank;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHit{" +
+                "resume=" + resume +
+                ", rank=" + rank +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package webapp.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбиение текста на термы для полнотекстового поиска.
+ * Терм - непрерывная последовательность букв и цифр (в т.ч. кириллицы),
+ * приведённая к нижнему регистру, 'ё' заменяется на 'е'.
+ */
+public class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isLetterOrDigit(cp)) {
+                sb.appendCodePoint(normalize(cp));
+            } else if (sb.length() > 0) {
+                tokens.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+        if (sb.length() > 0) {
+            tokens.add(sb.toString());
+        }
+        return tokens;
+    }
+
+    private static int normalize(int cp) {
+        int lower = Character.toLowerCase(cp);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
@@ -0,0 +1,213 @@
+package webapp.search;
+
+import java.util.*;
+
+/**
+ * Нечёткий поиск по имени на триграммах, как в pg_trgm.
+ * <p>
+ * Каждое слово дополняется двумя пробелами слева и одним справа и режется на триграммы.
+ * Сходство - доля общих триграмм: |A ∩ B| / |A ∪ B|, в выдачу попадают кандидаты
+ * со сходством не ниже {@link #THRESHOLD}.
+ * <p>
+ * Документ со сходством не ниже порога делит с запросом хотя бы {@code THRESHOLD * |запрос|} триграмм,
+ * поэтому кандидаты берутся только из самых редких списков (prefix filter), а остальные списки
+ * лишь досчитывают общие триграммы уже найденных кандидатов. Если бюджет времени исчерпан,
+ * новые кандидаты больше не набираются, но сходство найденных досчитывается до конца и не занижено.
+ * <p>
+ * Документы внутри индекса - плотные номера, списки триграмм - массивы номеров. Удалённый номер
+ * остаётся в списках до уплотнения, которое запускается, когда удалённых больше, чем живых.
+ */
+public class TrigramIndex {
+    public static final float THRESHOLD = 0.3f;
+    private static final int MIN_COMPACT = 1024;
+
+    private final Map<String, IdList> postings = new HashMap<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    // по номеру: uuid (null - удалён) и число триграмм
+    private String[] uuids = new String[1024];
+    private int[] sizes = new int[1024];
+    private int next;
+    private int removed;
+
+    public static class Match {
+        private final String uuid;
+        private final float similarity;
+
+        Match(String uuid, float similarity) {
+            this.uuid = uuid;
+            this.similarity = similarity;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+    }
+
+    public synchronized void add(String uuid, String name) {
+        doRemove(uuid);
+        Set<String> trigrams = trigrams(name);
+        if (next == uuids.length) {
+            uuids = Arrays.copyOf(uuids, next * 2);
+            sizes = Arrays.copyOf(sizes, next * 2);
+        }
+        int id = next++;
+        uuids[id] = uuid;
+        sizes[id] = trigrams.size();
+        ids.put(uuid, id);
+        for (String t : trigrams) {
+            postings.computeIfAbsent(t, k -> new IdList()).add(id);
+        }
+    }
+
+    public synchronized void remove(String uuid) {
+        doRemove(uuid);
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        ids.clear();
+        Arrays.fill(uuids, 0, next, null);
+        next = 0;
+        removed = 0;
+    }
+
+    /**
+     * @return не более limit кандидатов по убыванию сходства
+     */
+    public synchronized List<Match> search(String name, int limit, long budgetNanos) {
+        final long deadline = System.nanoTime() + budgetNanos;
+        Set<String> query = trigrams(name);
+        if (query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<IdList> lists = new ArrayList<>(query.size());
+        for (String t : query) {
+            IdList list = postings.get(t);
+            if (list != null) lists.add(list);
+        }
+        // floor, а не ceil: с погрешностью float берём на список больше, но не теряем совпадений
+        int minShared = Math.max(1, (int) (THRESHOLD * query.size()));
+        if (lists.size() < minShared) {
+            return Collections.emptyList();
+        }
+        lists.sort(Comparator.comparingInt(l -> l.size));
+
+        int[] shared = new int[next];
+        int prefix = lists.size() - minShared + 1;
+        int i = 0;
+        // кандидаты - из редких списков, пока есть время
+        for (; i < prefix; i++) {
+            // разность, а не сравнение: start + budget может переполниться
+            if (i > 0 && System.nanoTime() - deadline > 0) break;
+            IdList list = lists.get(i);
+            for (int j = 0; j < list.size; j++) {
+                int id = list.ids[j];
+                if (uuids[id] != null) shared[id]++;
+            }
+        }
+        // остальные списки только досчитывают уже найденных
+        for (; i < lists.size(); i++) {
+            IdList list = lists.get(i);
+            for (int j = 0; j < list.size; j++) {
+                int id = list.ids[j];
+                if (shared[id] > 0) shared[id]++;
+            }
+        }
+
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(Match::getSimilarity).thenComparing(Match::getUuid, Comparator.reverseOrder()));
+        for (int id = 0; id < shared.length; id++) {
+            int common = shared[id];
+            if (common < minShared) continue;
+            float similarity = (float) common / (query.size() + sizes[id] - common);
+            if (similarity >= THRESHOLD) {
+                top.add(new Match(uuids[id], similarity));
+                if (top.size() > limit) top.poll();
+            }
+        }
+        List<Match> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingDouble(Match::getSimilarity).reversed().thenComparing(Match::getUuid));
+        return result;
+    }
+
+    /**
+     * Сходство двух строк без индекса, как similarity() в pg_trgm
+     */
+    public static float similarity(String a, String b) {
+        Set<String> first = trigrams(a);
+        Set<String> second = trigrams(b);
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String t : first) {
+            if (second.contains(t)) common++;
+        }
+        return (float) common / (first.size() + second.size() - common);
+    }
+
+    static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (String word : Tokenizer.tokenize(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(padded.substring(i, i + 3));
+            }
+        }
+        return result;
+    }
+
+    private void doRemove(String uuid) {
+        Integer id = ids.remove(uuid);
+        if (id == null) return;
+        uuids[id] = null;
+        if (++removed > MIN_COMPACT && removed > ids.size()) {
+            compact();
+        }
+    }
+
+    // выбрасывает удалённые номера из списков и перенумеровывает живые по порядку
+    private void compact() {
+        int[] renumber = new int[next];
+        int live = 0;
+        for (int id = 0; id < next; id++) {
+            if (uuids[id] != null) {
+                renumber[id] = live;
+                uuids[live] = uuids[id];
+                sizes[live] = sizes[id];
+                ids.put(uuids[live], live);
+                live++;
+            } else {
+                renumber[id] = -1;
+            }
+        }
+        Arrays.fill(uuids, live, next, null);
+        next = live;
+        removed = 0;
+        for (Iterator<IdList> it = postings.values().iterator(); it.hasNext(); ) {
+            IdList list = it.next();
+            int size = 0;
+            for (int j = 0; j < list.size; j++) {
+                int id = renumber[list.ids[j]];
+                if (id >= 0) list.ids[size++] = id;
+            }
+            list.size = size;
+            if (size == 0) it.remove();
+        }
+    }
+
+    private static class IdList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+}
@@ -9,4 +9,10 @@ import java.sql.SQLException;
  */
 public interface ConnectionFactory {
     Connection getConnection() throws SQLException;
+
+    /**
+     * Подготовка заранее (загрузка драйвера), по умолчанию ничего
+     */
+    default void warmUp() {
+    }
 }
@@ -0,0 +1,28 @@
+package webapp.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * База под SqlStorage: PostgreSQL в работе, H2 в режиме PostgreSQL - в тестах и бенчмарках
+ * ({@link EmbeddedConnection}). У H2 нет tsvector и pg_trgm: их функции заменяет {@link H2Functions},
+ * а свои скрипты миграций лежат в db/h2 (см. {@link SchemaMigrator}).
+ */
+public enum Dialect {
+    POSTGRESQL,
+    H2;
+
+    /**
+     * По метаданным соединения, незнакомая база считается PostgreSQL
+     */
+    public static Dialect of(Connection conn) throws SQLException {
+        return "H2".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName()) ? H2 : POSTGRESQL;
+    }
+
+    /**
+     * Каталог скриптов миграций для этой базы
+     */
+    public String getName() {
+        return name().toLowerCase();
+    }
+}
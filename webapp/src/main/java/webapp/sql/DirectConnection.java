@@ -5,28 +5,42 @@ import webapp.WebAppException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.logging.Logger;
 
 import static webapp.Config.*;
 
 /**
  * User: gkislin
  * Date: 06.11.13
+ * <p>
+ * Драйвер загружается при первом соединении или в {@link #warmUp()}, а не при создании:
+ * фабрика создаётся вместе с классом Sql, даже если БД не используется.
  */
 public class DirectConnection implements ConnectionFactory {
+    private static final Logger LOGGER = Logger.getLogger(DirectConnection.class.getName());
+    private static final String DRIVER = "org.postgresql.Driver";
 
-    public DirectConnection() {
-        try {
-            // Загружаем драйвер для PostgreSQL
-            Class.forName("org.postgresql.Driver").newInstance();
-            System.out.println("Driver loaded!");
-        } catch (Exception e) {
-            System.out.println("Driver initialization exception: " + e.getMessage());
-            throw new WebAppException("Driver initialization exception", e);
+    private volatile boolean driverLoaded;
+
+    @Override
+    public void warmUp() {
+        if (driverLoaded) return;
+        synchronized (this) {
+            if (driverLoaded) return;
+            try {
+                // Загружаем драйвер для PostgreSQL
+                Class.forName(DRIVER);
+            } catch (ClassNotFoundException e) {
+                throw new WebAppException("Driver initialization exception", e);
+            }
+            LOGGER.info("Driver " + DRIVER + " loaded");
+            driverLoaded = true;
         }
     }
 
     @Override
     public Connection getConnection() throws SQLException {
+        warmUp();
         return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
 //                "jdbc:postgresql://ec2-54-247-99-244.eu-west-1.compute.amazonaws.com:5432/dap8baaauorm64?ssl=true&sslfactory=org.postgresql.ssl.NonValidatingFactory",
 //                "elfkolfqypggvo", "vmnWGnCVY5jbSD5nrpnYdU-FEd");
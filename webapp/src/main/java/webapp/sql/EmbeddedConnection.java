@@ -0,0 +1,58 @@
+package webapp.sql;
+
+import webapp.WebAppException;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Встроенная база H2 в режиме PostgreSQL вместо внешнего сервера: SqlStorage в тестах и бенчмарках.
+ * Драйвер H2 в pom.xml только для тестов; для запуска приложения на файловой базе
+ * достаточно положить h2.jar в classpath и указать db.url из {@link #file(File)}.
+ */
+public class EmbeddedConnection implements ConnectionFactory {
+    private static final String DRIVER = "org.h2.Driver";
+    // value - ключевое слово H2, а в схеме так называется колонка contact
+    public static final String OPTIONS = ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;NON_KEYWORDS=VALUE";
+
+    private final String url;
+
+    public EmbeddedConnection(String url) {
+        this.url = url;
+    }
+
+    /**
+     * База в памяти, живёт до конца JVM
+     */
+    public static EmbeddedConnection inMemory(String name) {
+        return new EmbeddedConnection("jdbc:h2:mem:" + name + OPTIONS + ";DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * База в файле path.mv.db, переживает перезапуск
+     */
+    public static EmbeddedConnection file(File path) {
+        return new EmbeddedConnection("jdbc:h2:file:" + path.getAbsolutePath() + OPTIONS);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public void warmUp() {
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            throw new WebAppException("H2 driver is not in classpath", e);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        warmUp();
+        return DriverManager.getConnection(url, "sa", "");
+    }
+}
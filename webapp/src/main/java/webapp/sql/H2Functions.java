@@ -0,0 +1,55 @@
+package webapp.sql;
+
+import webapp.search.Tokenizer;
+import webapp.search.TrigramIndex;
+
+import java.util.List;
+
+/**
+ * Функции PostgreSQL, которых нет в H2 (CREATE ALIAS в db/h2): SqlStorage пишет тот же SQL для обеих баз.
+ * tsvector здесь - строка термов {@link Tokenizer} через пробел, tsquery - текст запроса,
+ * совпадение - все термы запроса есть как префиксы слов вектора. Ни стемминга, ни весов, ни индексов:
+ * поиск перебирает таблицу, для тестов этого хватает.
+ */
+public final class H2Functions {
+
+    private H2Functions() {
+    }
+
+    public static String toTsvector(String config, String text) {
+        StringBuilder sb = new StringBuilder(" ");
+        for (String term : Tokenizer.tokenize(text)) {
+            sb.append(term).append(' ');
+        }
+        return sb.toString();
+    }
+
+    public static String setweight(String vector, String weight) {
+        return vector;
+    }
+
+    // два запроса склеиваются через ||, пробел их разделяет
+    public static String toTsquery(String config, String query) {
+        return query + ' ';
+    }
+
+    /**
+     * 1 - все термы запроса найдены, иначе 0
+     */
+    public static float tsRank(String vector, String query) {
+        List<String> terms = Tokenizer.tokenize(query);
+        if (vector == null || terms.isEmpty()) {
+            return 0;
+        }
+        for (String term : terms) {
+            if (!vector.contains(" " + term)) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    public static float similarity(String a, String b) {
+        return TrigramIndex.similarity(a, b);
+    }
+}
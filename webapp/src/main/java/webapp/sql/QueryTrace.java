@@ -0,0 +1,173 @@
+package webapp.sql;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL запросы одного HTTP запроса (или теста): текст, время и число строк каждого.
+ * <p>
+ * Текущая трасса хранится в ThreadLocal потока, который обрабатывает запрос. Если обработка
+ * переходит в другой поток (виртуальные потоки {@code AsyncRequestExecutor}), трасса переносится
+ * туда через {@link #attach}/{@link #detach}. Запросы пишет {@link TracingConnectionFactory}.
+ * <pre>
+ * QueryTrace trace = QueryTrace.begin("list");
+ * ... работа с хранилищем ...
+ * QueryTrace.end().assertAtMost(5).assertNoRepeated();
+ * </pre>
+ */
+public class QueryTrace {
+    private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+
+    public static class Query {
+        private final String sql;
+        private final long nanos;
+        private volatile long rows;
+
+        Query(String sql, long nanos, long rows) {
+            this.sql = sql;
+            this.nanos = nanos;
+            this.rows = rows;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return изменённые строки для INSERT/UPDATE/DELETE, прочитанные из ResultSet для SELECT
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        void addRow() {
+            rows++;
+        }
+
+        @Override
+        public String toString() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, " + rows + " rows: " + sql;
+        }
+    }
+
+    private final String name;
+    private final List<Query> queries = Collections.synchronizedList(new ArrayList<Query>());
+
+    public QueryTrace(String name) {
+        this.name = name;
+    }
+
+    public static QueryTrace begin(String name) {
+        QueryTrace trace = new QueryTrace(name);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * @return законченная трасса текущего потока или null, если её не было
+     */
+    public static QueryTrace end() {
+        QueryTrace trace = CURRENT.get();
+        CURRENT.remove();
+        return trace;
+    }
+
+    public static QueryTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Продолжить трассу в другом потоке
+     */
+    public static void attach(QueryTrace trace) {
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    Query add(String sql, long nanos, long rows) {
+        Query query = new Query(sql, nanos, rows);
+        queries.add(query);
+        return query;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Query> getQueries() {
+        synchronized (queries) {
+            return new ArrayList<>(queries);
+        }
+    }
+
+    public int getCount() {
+        return queries.size();
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (Query q : getQueries()) total += q.getNanos();
+        return total;
+    }
+
+    /**
+     * Одинаковый текст запроса больше одного раза - признак N+1 (запрос в цикле по строкам другого)
+     *
+     * @return текст запроса - сколько раз выполнен, только повторённые, по убыванию
+     */
+    public Map<String, Integer> getRepeated() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Query q : getQueries()) counts.merge(q.getSql(), 1, Integer::sum);
+        List<Map.Entry<String, Integer>> repeated = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            if (e.getValue() > 1) repeated.add(e);
+        }
+        repeated.sort((e1, e2) -> e2.getValue() - e1.getValue());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : repeated) result.put(e.getKey(), e.getValue());
+        return result;
+    }
+
+    public QueryTrace assertAtMost(int maxQueries) {
+        if (getCount() > maxQueries) {
+            throw new AssertionError(getCount() + " SQL queries, expected at most " + maxQueries + "\n" + report());
+        }
+        return this;
+    }
+
+    public QueryTrace assertNoRepeated() {
+        if (!getRepeated().isEmpty()) {
+            throw new AssertionError("Repeated SQL queries (N+1)\n" + report());
+        }
+        return this;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(": ").append(getCount()).append(" queries, ")
+                .append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos())).append(" ms\n");
+        for (Query q : getQueries()) {
+            sb.append("  ").append(q).append('\n');
+        }
+        for (Map.Entry<String, Integer> e : getRepeated().entrySet()) {
+            sb.append("  repeated ").append(e.getValue()).append(" times: ").append(e.getKey()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryTrace{" + name + ", queries=" + getCount() + '}';
+    }
+}
@@ -0,0 +1,281 @@
+package webapp.sql;
+
+import webapp.WebAppException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Версионные миграции схемы: скрипты CREATE_001.sql, CREATE_002.sql... из каталога в classpath
+ * применяются по порядку, каждый в своей транзакции вместе с записью в schema_version.
+ * Скрипт из подкаталога базы ({@link Dialect#getName()}, например db/h2) заменяет общий с тем же номером.
+ * Для применённых скриптов хранится SHA-256: изменённый после применения скрипт - ошибка старта,
+ * правки схемы - только новым скриптом.
+ * <p>
+ * Два экземпляра, стартующие одновременно, не применят скрипт дважды: вторая вставка той же версии
+ * упадёт на первичном ключе и откатит транзакцию.
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+
+    public static final String TABLE = "schema_version";
+
+    private final String location;
+    private final int baseline;
+
+    static final class Migration {
+        final int version;
+        final String name;
+        final String script;
+        final String checksum;
+
+        Migration(int version, String name, String script) {
+            this.version = version;
+            this.name = name;
+            this.script = script;
+            this.checksum = checksum(script);
+        }
+    }
+
+    /**
+     * @param location каталог скриптов в classpath, например "db"
+     * @param baseline версия схемы, созданной вручную до появления schema_version:
+     *                 скрипты до неё включительно отмечаются применёнными без выполнения.
+     *                 Без baseline база с таблицей resume, но пустой schema_version - ошибка старта
+     */
+    public SchemaMigrator(String location, int baseline) {
+        this.location = location;
+        this.baseline = baseline;
+    }
+
+    /**
+     * @return число применённых скриптов
+     */
+    public int migrate() {
+        Dialect dialect = Sql.execute(new SqlTransaction<Dialect>() {
+            @Override
+            public Dialect execute(Connection conn) throws SQLException {
+                return Dialect.of(conn);
+            }
+        });
+        List<Migration> migrations = load(dialect);
+        Map<Integer, String> applied = init(migrations);
+        int count = 0;
+        for (final Migration m : migrations) {
+            String checksum = applied.get(m.version);
+            if (checksum != null) {
+                if (!checksum.equals(m.checksum)) {
+                    throw new WebAppException("Migration " + m.name + " was changed after it had been applied");
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            Sql.execute(new SqlTransaction<Void>() {
+                @Override
+                public Void execute(Connection conn) throws SQLException {
+                    try (Statement st = conn.createStatement()) {
+                        for (String sql : split(m.script)) {
+                            st.execute(sql);
+                        }
+                    }
+                    insert(conn, m);
+                    return null;
+                }
+            });
+            LOGGER.info("Applied " + m.name + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+            count++;
+        }
+        return count;
+    }
+
+    // таблица версий; на пустой базе с baseline - отметка скриптов до baseline
+    private Map<Integer, String> init(final List<Migration> migrations) {
+        return Sql.execute(new SqlTransaction<Map<Integer, String>>() {
+            @Override
+            public Map<Integer, String> execute(Connection conn) throws SQLException {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (" +
+                            "version INTEGER PRIMARY KEY, " +
+                            "name VARCHAR(255) NOT NULL, " +
+                            "checksum VARCHAR(64) NOT NULL, " +
+                            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+                }
+                Map<Integer, String> applied = new HashMap<>();
+                try (PreparedStatement ps = conn.prepareStatement("SELECT version, checksum FROM " + TABLE)) {
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        applied.put(rs.getInt("version"), rs.getString("checksum"));
+                    }
+                }
+                if (applied.isEmpty() && baseline == 0 && tableExists(conn, "resume")) {
+                    throw new WebAppException("Table resume already exists, but " + TABLE + " is empty: " +
+                            "set storage.baseline to the version of the existing schema (number of the last applied CREATE_NNN.sql)");
+                }
+                if (applied.isEmpty() && baseline > 0) {
+                    for (Migration m : migrations) {
+                        if (m.version <= baseline) {
+                            insert(conn, m);
+                            applied.put(m.version, m.checksum);
+                        }
+                    }
+                    LOGGER.info("Schema baselined at version " + baseline);
+                }
+                return applied;
+            }
+        });
+    }
+
+    // имена таблиц PostgreSQL и H2 (DATABASE_TO_LOWER) хранит в нижнем регистре, без него H2 - в верхнем
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = meta.getTables(null, null, name, new String[]{"TABLE"})) {
+                if (rs.next()) return true;
+            }
+        }
+        return false;
+    }
+
+    private static void insert(Connection conn, Migration m) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + TABLE + " (version, name, checksum) VALUES (?,?,?)")) {
+            ps.setInt(1, m.version);
+            ps.setString(2, m.name);
+            ps.setString(3, m.checksum);
+            ps.execute();
+        }
+    }
+
+    // скрипты идут подряд с 001, первый отсутствующий номер - конец (список каталога в jar не получить)
+    List<Migration> load(Dialect dialect) {
+        List<Migration> migrations = new ArrayList<>();
+        ClassLoader loader = SchemaMigrator.class.getClassLoader();
+        for (int version = 1; ; version++) {
+            String file = String.format("CREATE_%03d.sql", version);
+            String name = dialect.getName() + "/" + file;
+            InputStream is = loader.getResourceAsStream(location + "/" + name);
+            if (is == null) {
+                name = file;
+                is = loader.getResourceAsStream(location + "/" + name);
+                if (is == null) {
+                    break;
+                }
+            }
+            try (InputStream in = is) {
+                migrations.add(new Migration(version, name, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new WebAppException("Couldn't read migration " + location + "/" + name, e);
+            }
+        }
+        if (migrations.isEmpty()) {
+            throw new WebAppException("No migrations found in " + location);
+        }
+        return migrations;
+    }
+
+    /**
+     * SHA-256 скрипта, переводы строк Windows не меняют сумму
+     */
+    static String checksum(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Скрипт на отдельные команды по ';' вне строк, идентификаторов в кавычках,
+     * $$-блоков PostgreSQL и комментариев. Пустые команды и комментарии отбрасываются.
+     */
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        int length = script.length();
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '-' && i + 1 < length && script.charAt(i + 1) == '-') {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? length : end;
+            } else if (c == '/' && i + 1 < length && script.charAt(i + 1) == '*') {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                sb.append(' ');
+            } else if (c == '\'' || c == '"') {
+                int end = closing(script, i + 1, c);
+                sb.append(script, i, end);
+                i = end;
+            } else if (c == '$' && dollarTag(script, i) != null) {
+                String tag = dollarTag(script, i);
+                int end = script.indexOf(tag, i + tag.length());
+                end = end < 0 ? length : end + tag.length();
+                sb.append(script, i, end);
+                i = end;
+            } else if (c == ';') {
+                add(statements, sb);
+                i++;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        add(statements, sb);
+        return statements;
+    }
+
+    // конец строки в кавычках, удвоенная кавычка - экранирование
+    private static int closing(String script, int from, char quote) {
+        int i = from;
+        while (i < script.length()) {
+            if (script.charAt(i) == quote) {
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return script.length();
+    }
+
+    // $$ или $tag$ с позиции i, null - это не начало блока
+    private static String dollarTag(String script, int i) {
+        int j = i + 1;
+        while (j < script.length() && (Character.isLetterOrDigit(script.charAt(j)) || script.charAt(j) == '_')) {
+            j++;
+        }
+        if (j < script.length() && script.charAt(j) == '$' && (j == i + 1 || !Character.isDigit(script.charAt(i + 1)))) {
+            return script.substring(i, j + 1);
+        }
+        return null;
+    }
+
+    private static void add(List<String> statements, StringBuilder sb) {
+        String sql = sb.toString().trim();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        sb.setLength(0);
+    }
+}
@@ -1,6 +1,9 @@
 package webapp.sql;
 
+import webapp.Config;
 import webapp.WebAppException;
+import webapp.metrics.Metrics;
+import webapp.metrics.Timer;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -10,11 +13,26 @@ import java.sql.SQLException;
  * Работа с SQL
  */
 public class Sql {
+    // запросы пишутся в QueryTrace текущего HTTP запроса, медленные - в лог
     public static ConnectionFactory CONN_FACTORY =
-            new DirectConnection();
+            new TracingConnectionFactory(new DirectConnection(), Config.DB_SLOW_QUERY_MILLIS);
+    // ожидание соединения: открытие нового, а с пулом - ещё и очередь за свободным
+    private static final Timer GET_CONNECTION = Metrics.timer("sql.getConnection");
+
+    public static Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return CONN_FACTORY.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            GET_CONNECTION.error();
+            throw e;
+        } finally {
+            GET_CONNECTION.record(System.nanoTime() - start);
+        }
+    }
 
     public static <T> T execute(String sql, SqlExecutor<T> executor) {
-        try (Connection conn = Sql.CONN_FACTORY.getConnection();
+        try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             return executor.execute(ps);
         } catch (SQLException e) {
@@ -23,7 +41,7 @@ public class Sql {
     }
 
     public static <T> T execute(SqlTransaction<T> executor) {
-        try (Connection conn = CONN_FACTORY.getConnection()) {
+        try (Connection conn = getConnection()) {
             try {
                 conn.setAutoCommit(false);
                 T res = executor.execute(conn);
@@ -0,0 +1,151 @@
+package webapp.sql;
+
+import webapp.metrics.Counter;
+import webapp.metrics.Metrics;
+import webapp.metrics.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Обёртка фабрики соединений: каждый выполненный запрос (execute*, executeBatch) пишется
+ * в текущую {@link QueryTrace}, в метрику sql.query, а запросы дольше slowMillis - в лог.
+ * Строки SELECT считаются по мере чтения ResultSet.
+ */
+public class TracingConnectionFactory implements ConnectionFactory {
+    private static final Logger LOGGER = Logger.getLogger(TracingConnectionFactory.class.getName());
+    private static final Timer QUERY = Metrics.timer("sql.query");
+    private static final Counter SLOW = Metrics.counter("sql.slowQueries");
+
+    private final ConnectionFactory factory;
+    private final long slowNanos;
+
+    /**
+     * @param slowMillis запросы не быстрее этого пишутся в лог, 0 - не писать
+     */
+    public TracingConnectionFactory(ConnectionFactory factory, long slowMillis) {
+        this.factory = factory;
+        this.slowNanos = slowMillis <= 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(factory.getConnection()));
+    }
+
+    @Override
+    public void warmUp() {
+        factory.warmUp();
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TracingConnectionFactory.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = TracingConnectionFactory.invoke(conn, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                case "prepareCall":
+                    return proxy(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler((Statement) result, null));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement st;
+        private final String sql;
+        private int batch;
+
+        StatementHandler(Statement st, String sql) {
+            this.st = st;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch")) batch++;
+            if (!name.startsWith("execute")) {
+                return TracingConnectionFactory.invoke(st, method, args);
+            }
+            // Statement.execute*(sql) - текст в аргументе
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            if (name.equals("executeBatch")) text = text + " [batch of " + batch + "]";
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = TracingConnectionFactory.invoke(st, method, args);
+            } catch (Throwable e) {
+                QUERY.error();
+                record(text, System.nanoTime() - start, 0);
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+            if (name.equals("executeBatch")) batch = 0;
+            if (result instanceof ResultSet) {
+                return rows((ResultSet) result, record(text, nanos, 0));
+            }
+            record(text, nanos, updated(result));
+            return result;
+        }
+
+        private long updated(Object result) {
+            if (result instanceof Integer) return (Integer) result;
+            if (result instanceof Long) return (Long) result;
+            long sum = 0;
+            if (result instanceof int[]) for (int n : (int[]) result) sum += Math.max(n, 0);
+            if (result instanceof long[]) for (long n : (long[]) result) sum += Math.max(n, 0);
+            return sum;
+        }
+    }
+
+    private QueryTrace.Query record(String sql, long nanos, long rows) {
+        QUERY.record(nanos);
+        if (nanos >= slowNanos) {
+            SLOW.increment();
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.warning("Slow query " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms: " + sql);
+            }
+        }
+        QueryTrace trace = QueryTrace.current();
+        return trace == null ? null : trace.add(sql, nanos, rows);
+    }
+
+    // ResultSet, считающий прочитанные строки в запрос трассы; без трассы - как есть
+    private static ResultSet rows(final ResultSet rs, final QueryTrace.Query query) {
+        if (query == null) return rs;
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            Object result = invoke(rs, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) query.addRow();
+            return result;
+        });
+    }
+}
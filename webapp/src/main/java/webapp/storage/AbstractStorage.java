@@ -1,11 +1,24 @@
 package webapp.storage;
 
+import webapp.ResumeConflictException;
 import webapp.WebAppException;
+import webapp.model.ContactType;
 import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.search.ResumeIndex;
+import webapp.search.SearchHit;
+import webapp.search.TrigramIndex;
+import webapp.util.Uuids;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -14,8 +27,32 @@ import java.util.logging.Logger;
  */
 abstract public class AbstractStorage<C> implements IStorage {
 
+    private static final long NAME_SEARCH_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    // Сообщения собираются только при включённом INFO: на горячем пути без выделения памяти
     protected Logger LOGGER = Logger.getLogger(getClass().getName());
 
+    // Строится при первом поиске, дальше поддерживается при записи.
+    // Построение и обновление индексов после записи идут под indexLock: запись, прошедшая во время
+    // построения, либо попадёт в doGetAll, либо дождётся публикации индекса и добавится в него сама.
+    private final Object indexLock = new Object();
+    private volatile ResumeIndex index;
+    private volatile TrigramIndex nameIndex;
+    private volatile NameOrder order;
+    // В памяти строится при первом find*, сохраняемый открывается при первой записи (см. openSecondaryIndex)
+    private volatile SecondaryIndex secondaryIndex;
+    private final VersionTracker versions = new VersionTracker();
+    // Последние записанные версии резюме (Resume.version). Меняются только под замком резюме,
+    // после успешной записи, поэтому проверка версии и запись для одного uuid идут по очереди.
+    private final ConcurrentMap<String, Integer> committed = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[64];
+
+    {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
     protected abstract C getCtx(String uuid);
 
     protected abstract boolean exist(C ctx);
@@ -37,28 +74,78 @@ abstract public class AbstractStorage<C> implements IStorage {
     @Override
     public void clear() {
         LOGGER.info("Delete all resumes.");
+        openPersistentIndex();
         doClear();
+        committed.clear();
+        synchronized (indexLock) {
+            if (index != null) index.clear();
+            if (nameIndex != null) nameIndex.clear();
+            if (order != null) order.clear();
+            if (secondaryIndex != null) secondaryIndex.clear();
+        }
+        versions.clear();
     }
 
     @Override
     public void save(Resume r) {
-        LOGGER.info("Save resume with uuid=" + r.getUuid());
+        save(r, 1);
+    }
+
+    private void save(Resume r, int version) {
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Save resume with uuid=" + r.getUuid());
+        Uuids.check(r.getUuid());
         C ctx = getCtx(r.getUuid());
         if (exist(ctx)) throw new WebAppException("Resume " + r.getUuid() + "already exist", r);
-        doSave(ctx, r);
+        openPersistentIndex();
+        Resume stored = r.withVersion(version);
+        synchronized (lock(r.getUuid())) {
+            doSave(ctx, stored);
+            committed.put(r.getUuid(), version);
+            indexed(stored);
+        }
     }
 
+    // Сначала проверяем все, чтобы не оставить пачку сохранённой наполовину
+    @Override
+    public void saveAll(Collection<Resume> resumes) {
+        for (Resume r : resumes) {
+            Uuids.check(r.getUuid());
+            if (exist(getCtx(r.getUuid()))) throw new WebAppException("Resume " + r.getUuid() + "already exist", r);
+        }
+        for (Resume r : resumes) {
+            save(r, r.getVersion() == 0 ? 1 : r.getVersion());
+        }
+    }
+
+    /**
+     * Если у резюме указана версия, обновление пройдёт только при совпадении с версией в хранилище,
+     * иначе {@link ResumeConflictException}. Резюме с версией 0 обновляется без проверки.
+     * Записывается копия со следующей версией, само резюме не меняется и может быть неизменяемым.
+     * Проверка, запись и публикация новой версии идут под замком резюме: неудачная запись
+     * не сдвигает версию, а две записи одного резюме не обгоняют друг друга.
+     */
     @Override
     public void update(Resume r) {
-        LOGGER.info("Update resume with " + r.getUuid());
-        C ctx = getCtx(r.getUuid());
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Update resume with " + r.getUuid());
+        final C ctx = getCtx(r.getUuid());
         if (!exist(ctx)) throw new WebAppException("Resume " + r.getUuid() + "not exist", r);
-        doUpdate(ctx, r);
+        openPersistentIndex();
+        int expected = r.getVersion();
+        synchronized (lock(r.getUuid())) {
+            int current = committedVersion(r.getUuid(), ctx);
+            if (expected != 0 && expected != current) {
+                throw new ResumeConflictException(r);
+            }
+            Resume stored = r.withVersion(current + 1);
+            doUpdate(ctx, stored);
+            committed.put(r.getUuid(), current + 1);
+            indexed(stored);
+        }
     }
 
     @Override
     public Resume load(String uuid) {
-        LOGGER.info("Load resume with uuid=" + uuid);
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Load resume with uuid=" + uuid);
         C ctx = getCtx(uuid);
         if (!exist(ctx)) throw new WebAppException("Resume " + uuid + "not exist", uuid);
         return doLoad(ctx);
@@ -66,10 +153,41 @@ abstract public class AbstractStorage<C> implements IStorage {
 
     @Override
     public void delete(String uuid) {
-        LOGGER.info("Delete resume with uuid=" + uuid);
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Delete resume with uuid=" + uuid);
         C ctx = getCtx(uuid);
         if (!exist(ctx)) throw new WebAppException("Resume " + uuid + "not exist", uuid);
-        doDelete(ctx);
+        openPersistentIndex();
+        synchronized (lock(uuid)) {
+            doDelete(ctx);
+            committed.remove(uuid);
+            synchronized (indexLock) {
+                if (index != null) index.remove(uuid);
+                if (nameIndex != null) nameIndex.remove(uuid);
+                if (order != null) order.remove(uuid);
+                if (secondaryIndex != null) secondaryIndex.remove(uuid);
+            }
+            versions.remove(uuid);
+        }
+    }
+
+    private void indexed(Resume r) {
+        synchronized (indexLock) {
+            if (index != null) index.add(r);
+            if (nameIndex != null) nameIndex.add(r.getUuid(), r.getFullName());
+            if (order != null) order.add(r.getUuid(), r.getFullName());
+            if (secondaryIndex != null) secondaryIndex.add(r);
+        }
+        versions.touch(r.getUuid(), r.getVersion());
+    }
+
+    private Object lock(String uuid) {
+        return locks[(uuid.hashCode() & 0x7FFFFFFF) % locks.length];
+    }
+
+    // Версия из памяти, а до первой записи после старта - из самого резюме
+    private int committedVersion(String uuid, C ctx) {
+        Integer version = committed.get(uuid);
+        return version != null ? version : doLoad(ctx).getVersion();
     }
 
     @Override
@@ -79,4 +197,154 @@ abstract public class AbstractStorage<C> implements IStorage {
         Collections.sort(list);
         return list;
     }
+
+    /**
+     * Страница выбирается по ключам (имя, uuid), резюме читаются по одному
+     */
+    @Override
+    public void forEachSorted(int offset, int limit, Consumer<Resume> consumer) {
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("forEachSorted offset=" + offset + ", limit=" + limit);
+        for (String uuid : getOrder().page(offset, limit)) {
+            C ctx = getCtx(uuid);
+            // могли удалить, пока шли по странице
+            if (exist(ctx)) consumer.accept(doLoad(ctx));
+        }
+    }
+
+    @Override
+    public List<Resume> search(String query, int limit) {
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Search resumes by '" + query + "'");
+        return loadAll(getIndex().search(query, limit));
+    }
+
+    @Override
+    public List<Resume> findByContact(ContactType type, String value) {
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Find resumes by " + type + "=" + value);
+        List<Resume> list = loadAll(getSecondaryIndex().findByContact(type, value));
+        Collections.sort(list);
+        return list;
+    }
+
+    @Override
+    public List<Resume> findBySection(SectionType type, String term) {
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Find resumes by " + type + " '" + term + "'");
+        List<Resume> list = loadAll(getSecondaryIndex().findBySection(type, term));
+        Collections.sort(list);
+        return list;
+    }
+
+    @Override
+    public List<SearchHit> findSimilarByName(String name, int limit) {
+        if (LOGGER.isLoggable(Level.INFO)) LOGGER.info("Find resumes with name similar to '" + name + "'");
+        List<SearchHit> hits = new ArrayList<>();
+        for (TrigramIndex.Match m : getNameIndex().search(name, limit, NAME_SEARCH_BUDGET_NANOS)) {
+            C ctx = getCtx(m.getUuid());
+            if (exist(ctx)) hits.add(new SearchHit(doLoad(ctx), m.getSimilarity()));
+        }
+        return hits;
+    }
+
+    @Override
+    public Version getVersion(String uuid) {
+        return versions.get(uuid, id -> {
+            synchronized (lock(id)) {
+                C ctx = getCtx(id);
+                return exist(ctx) ? committedVersion(id, ctx) : null;
+            }
+        });
+    }
+
+    @Override
+    public Version getVersion() {
+        return versions.get();
+    }
+
+    /**
+     * Индексы по контактам и разделам. По умолчанию строятся в памяти по всем резюме
+     * при первом findByContact/findBySection, как и остальные индексы: запись их не открывает.
+     * Файловые хранилища держат индекс в отдельном файле ({@link #isSecondaryIndexPersistent()}).
+     */
+    protected SecondaryIndex openSecondaryIndex() {
+        return SecondaryIndex.build(doGetAll());
+    }
+
+    /**
+     * Сохраняемый индекс открывается при первой записи и дальше обновляется каждой записью,
+     * иначе файл индекса разошёлся бы с данными. Открытие читает журнал, а не все резюме.
+     */
+    protected boolean isSecondaryIndexPersistent() {
+        return false;
+    }
+
+    private void openPersistentIndex() {
+        if (isSecondaryIndexPersistent()) getSecondaryIndex();
+    }
+
+    private List<Resume> loadAll(Collection<String> uuids) {
+        List<Resume> list = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            C ctx = getCtx(uuid);
+            if (exist(ctx)) list.add(doLoad(ctx));
+        }
+        return list;
+    }
+
+    private TrigramIndex getNameIndex() {
+        TrigramIndex result = nameIndex;
+        if (result == null) {
+            synchronized (indexLock) {
+                result = nameIndex;
+                if (result == null) {
+                    result = new TrigramIndex();
+                    for (Resume r : doGetAll()) result.add(r.getUuid(), r.getFullName());
+                    nameIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private NameOrder getOrder() {
+        NameOrder result = order;
+        if (result == null) {
+            synchronized (indexLock) {
+                result = order;
+                if (result == null) {
+                    result = new NameOrder();
+                    for (Resume r : doGetAll()) result.add(r.getUuid(), r.getFullName());
+                    order = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private SecondaryIndex getSecondaryIndex() {
+        SecondaryIndex result = secondaryIndex;
+        if (result == null) {
+            synchronized (indexLock) {
+                result = secondaryIndex;
+                if (result == null) {
+                    result = openSecondaryIndex();
+                    secondaryIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private ResumeIndex getIndex() {
+        ResumeIndex result = index;
+        if (result == null) {
+            synchronized (indexLock) {
+                result = index;
+                if (result == null) {
+                    result = new ResumeIndex();
+                    for (Resume r : doGetAll()) result.add(r);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
 }
\ No newline at end of file
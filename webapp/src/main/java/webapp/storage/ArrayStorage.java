@@ -10,14 +10,21 @@ import java.util.List;
 /**
  * User: gkislin
  * Date: 24.06.2014
+ * <p>
+ * Все операции под замком хранилища: индекс ячейки, найденный вне замка, устарел бы после
+ * параллельного delete/save другого резюме, поэтому контекст - uuid, а ячейка ищется внутри операции.
  */
-public class ArrayStorage extends AbstractStorage<Integer> {
+public class ArrayStorage extends AbstractStorage<String> {
 
     private static final int NUMBER = 100;
     private final Resume[] ARRAY = new Resume[NUMBER];
 
     @Override
-    protected Integer getCtx(String uuid) {
+    protected String getCtx(String uuid) {
+        return uuid;
+    }
+
+    private int indexOf(String uuid) {
         for (int i = 0; i < NUMBER; i++) {
             if (ARRAY[i] != null) {
                 if (ARRAY[i].getUuid().equals(uuid)) {
@@ -28,21 +35,28 @@ public class ArrayStorage extends AbstractStorage<Integer> {
         return -1;
     }
 
+    // резюме могли удалить между проверкой exist и записью
+    private int existing(String uuid) {
+        int index = indexOf(uuid);
+        if (index == -1) throw new WebAppException("Resume " + uuid + " not exist", uuid);
+        return index;
+    }
+
     @Override
-    protected boolean exist(Integer index) {
-        return index != -1;
+    protected synchronized boolean exist(String uuid) {
+        return indexOf(uuid) != -1;
     }
 
     @Override
-    public void doClear() {
+    public synchronized void doClear() {
         Arrays.fill(ARRAY, null);
     }
 
     @Override
-    public void doSave(Integer index, Resume r) {
+    public synchronized void doSave(String uuid, Resume r) {
         for (int i = 0; i < NUMBER; i++) {
             if (ARRAY[i] == null) {
-                ARRAY[i] = r;
+                ARRAY[i] = r.snapshot();
                 return;
             }
         }
@@ -50,32 +64,33 @@ public class ArrayStorage extends AbstractStorage<Integer> {
     }
 
     @Override
-    public void doUpdate(Integer index, Resume r) {
-        ARRAY[index] = r;
+    public synchronized void doUpdate(String uuid, Resume r) {
+        ARRAY[existing(uuid)] = r.snapshot();
     }
 
     @Override
-    public Resume doLoad(Integer index) {
-        return ARRAY[index];
+    public synchronized Resume doLoad(String uuid) {
+        int index = indexOf(uuid);
+        return index == -1 ? null : ARRAY[index];
     }
 
     @Override
-    public void doDelete(Integer index) {
-        ARRAY[index] = null;
+    public synchronized void doDelete(String uuid) {
+        ARRAY[existing(uuid)] = null;
     }
 
     @Override
     // return all not null elements
-    public List<Resume> doGetAll() {
+    public synchronized List<Resume> doGetAll() {
         List<Resume> list = new LinkedList<>();
         for (Resume r : ARRAY) if (r != null) list.add(r);
         return list;
     }
 
     @Override
-    public int size() {
+    public synchronized int size() {
         int size = 0;
         for (Resume r : ARRAY) if (r != null) size++;
         return size;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package webapp.storage;
+
+import webapp.model.*;
+import webapp.util.DateUtil;
+import webapp.util.StringDedup;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Двоичный формат резюме, общий для {@link DataStreamStorage} и {@link OffHeapStorage}
+ */
+final class DataStreamCodec {
+
+    private static final String NULL = "null";
+
+    private DataStreamCodec() {
+    }
+
+    static void write(DataOutputStream dos, Resume resume) throws IOException {
+        writeStr(dos, resume.getFullName());
+        writeStr(dos, resume.getLocation());
+
+        Map<ContactType, String> contacts = resume.getContacts();
+        dos.writeInt(contacts.size());
+
+        for (Map.Entry<ContactType, String> entry : contacts.entrySet()) {
+            writeStr(dos, entry.getKey().name());
+            writeStr(dos, entry.getValue());
+        }
+
+        Map<SectionType, Section> sections = resume.getSections();
+        dos.writeInt(sections.size());
+
+        for (Map.Entry<SectionType, Section> entry : sections.entrySet()) {
+            Section section = entry.getValue();
+            SectionType type = entry.getKey();
+            writeStr(dos, type.name());
+            Collection sectionValues = section.getValues();
+            dos.writeInt(sectionValues.size());
+            if (type.getSectionClass() == SectionClass.TEXT) {
+                for (String val : (Collection<String>) sectionValues) {
+                    writeStr(dos, val);
+                }
+            } else {
+                for (Organization val : (Collection<Organization>) sectionValues) {
+                    writeStr(dos, val.getLink().getName());
+                    writeStr(dos, val.getLink().getUrl());
+                    Collection<Period> periods = val.getPeriods();
+                    dos.writeInt(periods.size());
+                    for (Period p : periods) {
+                        dos.writeInt(p.getStart());
+                        dos.writeInt(p.getEnd());
+                        writeStr(dos, p.getPosition());
+                        writeStr(dos, p.getContent());
+                    }
+                }
+            }
+        }
+        dos.writeInt(resume.getVersion());
+    }
+
+    /**
+     * uuid не пишется: его хранит вызывающий (имя файла, ключ индекса)
+     */
+    static Resume read(DataInputStream dis) throws IOException {
+        return read(dis, false);
+    }
+
+    /**
+     * @param legacyDates даты периодов - два long (Date.getTime()), как до упаковки дат
+     */
+    static Resume read(DataInputStream dis, boolean legacyDates) throws IOException {
+        Resume r = Resume.restore(null, readStr(dis), readStr(dis));
+
+        final int contactsSize = dis.readInt();
+        for (int i = 0; i < contactsSize; i++) {
+            r.addContact(ContactType.valueOf(readStr(dis)), readStr(dis));
+        }
+
+        final int sectionsSize = dis.readInt();
+        for (int i = 0; i < sectionsSize; i++) {
+
+            SectionType sectionType = SectionType.valueOf(readStr(dis));
+            Section section = sectionType.getSectionClass().create();
+
+            r.addSection(sectionType, section);
+            int sectionValuesSize = dis.readInt();
+
+            for (int j = 0; j < sectionValuesSize; j++) {
+                if (sectionType.getSectionClass() == SectionClass.TEXT) {
+                    section.add(readShared(dis));
+                } else {
+                    String name = readShared(dis);
+                    String url = readShared(dis);
+                    int periodsSize = dis.readInt();
+                    List<Period> periods = new ArrayList<>(periodsSize);
+                    for (int k = 0; k < periodsSize; k++) {
+                        periods.add(
+                                new Period(readDate(dis, legacyDates), readDate(dis, legacyDates), readShared(dis), readStr(dis)));
+                    }
+                    section.add(new Organization(name, url, periods));
+                }
+            }
+        }
+        // версия пишется последней, в старых файлах её нет
+        try {
+            r.setVersion(dis.readInt());
+        } catch (EOFException e) {
+            r.setVersion(0);
+        }
+        return r;
+    }
+
+    private static int readDate(DataInputStream dis, boolean legacy) throws IOException {
+        return legacy ? DateUtil.yearMonth(new Date(dis.readLong())) : dis.readInt();
+    }
+
+    private static void writeStr(DataOutputStream dos, String str) throws IOException {
+        dos.writeUTF(str == null ? NULL : str);
+    }
+
+    private static String readStr(DataInputStream dis) throws IOException {
+        String str = dis.readUTF();
+        return str.equals(NULL) ? null : str;
+    }
+
+    // значения, которые повторяются в разных резюме
+    private static String readShared(DataInputStream dis) throws IOException {
+        return StringDedup.dedup(readStr(dis));
+    }
+}
\ No newline at end of file
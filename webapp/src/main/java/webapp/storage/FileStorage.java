@@ -1,9 +1,15 @@
 package webapp.storage;
 
 import webapp.WebAppException;
+import webapp.metrics.Counter;
+import webapp.metrics.CountingInputStream;
+import webapp.metrics.CountingOutputStream;
+import webapp.metrics.Metrics;
 import webapp.model.Resume;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -13,8 +19,14 @@ import java.util.List;
  * Date: 04.07.2014
  */
 abstract public class FileStorage extends AbstractStorage<File> {
+    // недописанные файлы; в каталоге, чтобы переименование было атомарным, но не резюме
+    private static final String TMP = ".tmp";
+    private static final FilenameFilter RESUMES = (dir, name) -> !name.endsWith(TMP);
 
     private File dir;
+    // общие на все хранилища одного формата
+    private final Counter bytesRead = Metrics.counter("file." + getClass().getSimpleName() + ".bytesRead");
+    private final Counter bytesWritten = Metrics.counter("file." + getClass().getSimpleName() + ".bytesWritten");
 
     public FileStorage(String path) {
         this.dir = new File(path);
@@ -31,17 +43,23 @@ abstract public class FileStorage extends AbstractStorage<File> {
 
     protected abstract Resume doRead(InputStream is) throws IOException;
 
+    // Пишется во временный файл и переименовывается: параллельное чтение и выборки
+    // видят либо прежний файл, либо новый целиком
     protected void write(File file, Resume resume) {
+        File tmp = null;
         try {
-            doWrite(new FileOutputStream(file), resume);
+            tmp = File.createTempFile(file.getName() + ".", TMP, dir);
+            doWrite(new CountingOutputStream(new FileOutputStream(tmp), bytesWritten), resume);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
+            if (tmp != null) tmp.delete();
             throw new WebAppException("Couldn't write file " + file.getAbsolutePath(), resume, e);
         }
     }
 
     protected Resume read(File file) {
         try {
-            Resume r = doRead(new FileInputStream(file));
+            Resume r = doRead(new CountingInputStream(new FileInputStream(file), bytesRead));
             r.setUuid(file.getName());
             return r;
         } catch (IOException e) {
@@ -72,11 +90,6 @@ abstract public class FileStorage extends AbstractStorage<File> {
 
     @Override
     protected void doSave(File file, Resume r) {
-        try {
-            file.createNewFile();
-        } catch (IOException e) {
-            throw new WebAppException("Couldn't create file " + file.getAbsolutePath(), r, e);
-        }
         write(file, r);
     }
 
@@ -97,15 +110,34 @@ abstract public class FileStorage extends AbstractStorage<File> {
 
     @Override
     protected List<Resume> doGetAll() {
-        File[] files = dir.listFiles();
+        File[] files = dir.listFiles(RESUMES);
         if (files == null) return Collections.emptyList();
         List<Resume> list = new ArrayList<>(files.length);
-        for (File file : files) list.add(read(file));
+        for (File file : files) {
+            try {
+                list.add(read(file));
+            } catch (WebAppException e) {
+                // удалён параллельно, после получения списка
+                if (file.exists()) throw e;
+            }
+        }
         return list;
     }
 
+    // Индекс лежит рядом с каталогом, а не в нём: в каталоге только файлы резюме.
+    // Рассчитан на один экземпляр хранилища на каталог.
+    @Override
+    protected SecondaryIndex openSecondaryIndex() {
+        return SecondaryIndex.open(new File(dir.getPath() + ".index"), size(), this::doGetAll);
+    }
+
+    @Override
+    protected boolean isSecondaryIndexPersistent() {
+        return true;
+    }
+
     @Override
     public int size() {
-        return dir.list().length;
+        return dir.list(RESUMES).length;
     }
 }
\ No newline at end of file
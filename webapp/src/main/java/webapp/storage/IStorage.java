@@ -1,8 +1,13 @@
 package webapp.storage;
 
+import webapp.model.ContactType;
 import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.search.SearchHit;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * User: gkislin
@@ -12,8 +17,19 @@ public interface IStorage {
 
     void clear();
 
+    /**
+     * Сохраняет резюме с версией 1. Ни save, ни update не меняют переданное резюме
+     * (оно может быть неизменяемым): записанную версию даёт {@link #getVersion(String)}.
+     */
     void save(Resume r);
 
+    /**
+     * Сохранить пачку новых резюме (импорт, миграция). Если какое-то из резюме уже есть,
+     * не сохраняется ни одно. Версии резюме сохраняются как есть (0 - версия 1): после переноса
+     * между хранилищами клиенты, прочитавшие резюме раньше, не получают ложный конфликт версий.
+     */
+    void saveAll(Collection<Resume> resumes);
+
     void update(Resume r);
 
     Resume load(String uuid);
@@ -22,5 +38,53 @@ public interface IStorage {
 
     Collection<Resume> getAllSorted();
 
+    /**
+     * Обход резюме в порядке {@link #getAllSorted()}, начиная с offset, не более limit.
+     * Резюме передаются по одному, без списка всей выборки в памяти.
+     */
+    void forEachSorted(int offset, int limit, Consumer<Resume> consumer);
+
+    /**
+     * Полнотекстовый поиск по имени, месту проживания, контактам и разделам
+     *
+     * @return не более limit полных резюме (как из {@link #load}), по убыванию релевантности
+     */
+    List<Resume> search(String query, int limit);
+
+    /**
+     * Поиск по точному значению контакта (без учёта регистра и пробелов по краям),
+     * например для проверки дубликатов при импорте
+     */
+    List<Resume> findByContact(ContactType type, String value);
+
+    /**
+     * Поиск резюме, в разделе type которых встречаются все слова из term
+     */
+    List<Resume> findBySection(SectionType type, String term);
+
+    /**
+     * Нечёткий поиск по имени, устойчивый к опечаткам
+     *
+     * @return не более limit полных резюме по убыванию сходства имени (rank - сходство от 0 до 1)
+     */
+    List<SearchHit> findSimilarByName(String name, int limit);
+
+    /**
+     * @return версия резюме, меняется при каждом его изменении; null, если резюме нет
+     */
+    Version getVersion(String uuid);
+
+    /**
+     * @return версия всего хранилища, меняется при любой записи
+     */
+    Version getVersion();
+
     int size();
+
+    /**
+     * Заранее подготовить то, что хранилище иначе создаст при первом обращении
+     * (JAXB-контекст, драйвер БД). Вызывается в фоне при старте, чтобы не задерживать его.
+     */
+    default void warmUp() {
+    }
 }
@@ -0,0 +1,259 @@
+package webapp.storage;
+
+import webapp.metrics.Metrics;
+import webapp.metrics.Timer;
+import webapp.model.ContactType;
+import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.search.SearchHit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Время, число вызовов и ошибок каждой операции хранилища в метриках name.операция
+ * (например storage.load). Таймеры берутся один раз при создании: вызов не выделяет память
+ * и не ищет ничего в реестре.
+ */
+public class InstrumentedStorage implements IStorage {
+    private final IStorage storage;
+    private final Timer clearTimer;
+    private final Timer saveTimer;
+    private final Timer saveAllTimer;
+    private final Timer updateTimer;
+    private final Timer loadTimer;
+    private final Timer deleteTimer;
+    private final Timer getAllSortedTimer;
+    private final Timer forEachSortedTimer;
+    private final Timer searchTimer;
+    private final Timer findByContactTimer;
+    private final Timer findBySectionTimer;
+    private final Timer findSimilarByNameTimer;
+    private final Timer getVersionTimer;
+    private final Timer getStorageVersionTimer;
+    private final Timer sizeTimer;
+
+    public InstrumentedStorage(IStorage storage, String name) {
+        this.storage = storage;
+        clearTimer = Metrics.timer(name + ".clear");
+        saveTimer = Metrics.timer(name + ".save");
+        saveAllTimer = Metrics.timer(name + ".saveAll");
+        updateTimer = Metrics.timer(name + ".update");
+        loadTimer = Metrics.timer(name + ".load");
+        deleteTimer = Metrics.timer(name + ".delete");
+        getAllSortedTimer = Metrics.timer(name + ".getAllSorted");
+        forEachSortedTimer = Metrics.timer(name + ".forEachSorted");
+        searchTimer = Metrics.timer(name + ".search");
+        findByContactTimer = Metrics.timer(name + ".findByContact");
+        findBySectionTimer = Metrics.timer(name + ".findBySection");
+        findSimilarByNameTimer = Metrics.timer(name + ".findSimilarByName");
+        getVersionTimer = Metrics.timer(name + ".getVersion");
+        getStorageVersionTimer = Metrics.timer(name + ".getStorageVersion");
+        sizeTimer = Metrics.timer(name + ".size");
+    }
+
+    public IStorage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public void clear() {
+        long start = System.nanoTime();
+        try {
+            storage.clear();
+        } catch (RuntimeException e) {
+            clearTimer.error();
+            throw e;
+        } finally {
+            clearTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void save(Resume r) {
+        long start = System.nanoTime();
+        try {
+            storage.save(r);
+        } catch (RuntimeException e) {
+            saveTimer.error();
+            throw e;
+        } finally {
+            saveTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Resume> resumes) {
+        long start = System.nanoTime();
+        try {
+            storage.saveAll(resumes);
+        } catch (RuntimeException e) {
+            saveAllTimer.error();
+            throw e;
+        } finally {
+            saveAllTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void update(Resume r) {
+        long start = System.nanoTime();
+        try {
+            storage.update(r);
+        } catch (RuntimeException e) {
+            updateTimer.error();
+            throw e;
+        } finally {
+            updateTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Resume load(String uuid) {
+        long start = System.nanoTime();
+        try {
+            return storage.load(uuid);
+        } catch (RuntimeException e) {
+            loadTimer.error();
+            throw e;
+        } finally {
+            loadTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void delete(String uuid) {
+        long start = System.nanoTime();
+        try {
+            storage.delete(uuid);
+        } catch (RuntimeException e) {
+            deleteTimer.error();
+            throw e;
+        } finally {
+            deleteTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Collection<Resume> getAllSorted() {
+        long start = System.nanoTime();
+        try {
+            return storage.getAllSorted();
+        } catch (RuntimeException e) {
+            getAllSortedTimer.error();
+            throw e;
+        } finally {
+            getAllSortedTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void forEachSorted(int offset, int limit, Consumer<Resume> consumer) {
+        long start = System.nanoTime();
+        try {
+            storage.forEachSorted(offset, limit, consumer);
+        } catch (RuntimeException e) {
+            forEachSortedTimer.error();
+            throw e;
+        } finally {
+            forEachSortedTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Resume> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return storage.search(query, limit);
+        } catch (RuntimeException e) {
+            searchTimer.error();
+            throw e;
+        } finally {
+            searchTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Resume> findByContact(ContactType type, String value) {
+        long start = System.nanoTime();
+        try {
+            return storage.findByContact(type, value);
+        } catch (RuntimeException e) {
+            findByContactTimer.error();
+            throw e;
+        } finally {
+            findByContactTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Resume> findBySection(SectionType type, String term) {
+        long start = System.nanoTime();
+        try {
+            return storage.findBySection(type, term);
+        } catch (RuntimeException e) {
+            findBySectionTimer.error();
+            throw e;
+        } finally {
+            findBySectionTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<SearchHit> findSimilarByName(String name, int limit) {
+        long start = System.nanoTime();
+        try {
+            return storage.findSimilarByName(name, limit);
+        } catch (RuntimeException e) {
+            findSimilarByNameTimer.error();
+            throw e;
+        } finally {
+            findSimilarByNameTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Version getVersion(String uuid) {
+        long start = System.nanoTime();
+        try {
+            return storage.getVersion(uuid);
+        } catch (RuntimeException e) {
+            getVersionTimer.error();
+            throw e;
+        } finally {
+            getVersionTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Version getVersion() {
+        long start = System.nanoTime();
+        try {
+            return storage.getVersion();
+        } catch (RuntimeException e) {
+            getStorageVersionTimer.error();
+            throw e;
+        } finally {
+            getStorageVersionTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int size() {
+        long start = System.nanoTime();
+        try {
+            return storage.size();
+        } catch (RuntimeException e) {
+            sizeTimer.error();
+            throw e;
+        } finally {
+            sizeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void warmUp() {
+        storage.warmUp();
+    }
+}
@@ -1,11 +1,12 @@
 package webapp.storage;
 
+import webapp.WebAppException;
 import webapp.model.Resume;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * User: gkislin
@@ -13,7 +14,9 @@ import java.util.Map;
  */
 public class MapStorage extends AbstractStorage<String> {
 
-    private Map<String, Resume> MAP = new HashMap<>();
+    // запись разных резюме и выборки идут параллельно (асинхронный исполнитель ResumeServlet),
+    // замки AbstractStorage упорядочивают только запись одного uuid
+    private final Map<String, Resume> MAP = new ConcurrentHashMap<>();
 
     @Override
     protected String getCtx(String uuid) {
@@ -32,12 +35,16 @@ public class MapStorage extends AbstractStorage<String> {
 
     @Override
     protected void doSave(String uuid, Resume r) {
-        MAP.put(uuid, r);
+        // храним неизменяемую копию - load и выборки отдают её без копирования
+        MAP.put(uuid, r.snapshot());
     }
 
     @Override
     protected void doUpdate(String uuid, Resume r) {
-        MAP.put(uuid, r);
+        // резюме могли удалить между проверкой exist и записью - не воскрешаем его
+        if (MAP.replace(uuid, r.snapshot()) == null) {
+            throw new WebAppException("Resume " + uuid + " not exist", uuid);
+        }
     }
 
     @Override
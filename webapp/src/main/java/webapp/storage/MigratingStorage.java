@@ -0,0 +1,388 @@
+package webapp.storage;
+
+import webapp.WebAppException;
+import webapp.model.ContactType;
+import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.search.SearchHit;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Переезд с одного хранилища на другое без остановки приложения.
+ * <p>
+ * Запись идёт в оба хранилища: сначала в старое (оно полное и остаётся главным до конца переезда),
+ * потом в новое. Если запись в новое не удалась, резюме запоминается и досылается фоновым потоком.
+ * Отдельное резюме читается из нового, если оно там уже есть, иначе из старого; там же
+ * проверяется его версия при обновлении. Выборки (список, поиск) идут по старому,
+ * пока перенос не закончен, потом по новому.
+ * <p>
+ * Перенос ({@link #startBackfill}) идёт страницами старого хранилища с ограничением скорости.
+ * Смещение сохраняется в файл checkpoint, после перезапуска перенос продолжается с него.
+ * Страницы сдвигаются, если резюме удаляют во время переноса, поэтому проходы повторяются,
+ * пока число резюме в хранилищах не сойдётся.
+ * <p>
+ * Запись резюме (проверка, есть ли оно в новом, и запись в оба) и перенос того же резюме идут
+ * под общим замком uuid, иначе перенос мог бы положить в новое хранилище прочитанную до записи копию.
+ */
+public class MigratingStorage implements IStorage {
+    private static final Logger LOGGER = Logger.getLogger(MigratingStorage.class.getName());
+    private static final int MAX_PASSES = 5;
+
+    private final IStorage oldStorage;
+    private final IStorage newStorage;
+    private final File checkpoint;
+    // резюме, которые не удалось записать в новое хранилище
+    private final Set<String> resync = ConcurrentHashMap.newKeySet();
+    private final AtomicLong copied = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+    private volatile boolean backfilled;
+    private volatile Thread backfillThread;
+
+    public MigratingStorage(IStorage oldStorage, IStorage newStorage, File checkpoint) {
+        this.oldStorage = oldStorage;
+        this.newStorage = newStorage;
+        this.checkpoint = checkpoint;
+        this.backfilled = checkpoint != null && "true".equals(readCheckpoint().getProperty("done"));
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        oldStorage.clear();
+        newStorage.clear();
+        resync.clear();
+    }
+
+    @Override
+    public void save(Resume r) {
+        locked(Collections.singleton(r.getUuid()), () -> {
+            oldStorage.save(r);
+            toNew(r.getUuid(), () -> newStorage.save(r));
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<Resume> resumes) {
+        locked(uuids(resumes), () -> {
+            oldStorage.saveAll(resumes);
+            try {
+                newStorage.saveAll(resumes);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Couldn't save " + resumes.size() + " resumes to new storage, will resync", e);
+                for (Resume r : resumes) resync.add(r.getUuid());
+            }
+        });
+    }
+
+    /**
+     * Версия проверяется там, откуда резюме читается: в новом хранилище, если оно там есть
+     */
+    @Override
+    public void update(final Resume r) {
+        final String uuid = r.getUuid();
+        locked(Collections.singleton(uuid), () -> {
+            if (newStorage.getVersion(uuid) != null) {
+                newStorage.update(r);
+                updateOld(r);
+            } else {
+                oldStorage.update(r);
+                toNew(uuid, () -> copyToNew(oldStorage.load(uuid)));
+            }
+        });
+    }
+
+    @Override
+    public Resume load(String uuid) {
+        return newStorage.getVersion(uuid) != null ? newStorage.load(uuid) : oldStorage.load(uuid);
+    }
+
+    @Override
+    public void delete(String uuid) {
+        locked(Collections.singleton(uuid), () -> {
+            oldStorage.delete(uuid);
+            toNew(uuid, () -> {
+                if (newStorage.getVersion(uuid) != null) newStorage.delete(uuid);
+            });
+        });
+    }
+
+    @Override
+    public Collection<Resume> getAllSorted() {
+        return reader().getAllSorted();
+    }
+
+    @Override
+    public void forEachSorted(int offset, int limit, Consumer<Resume> consumer) {
+        reader().forEachSorted(offset, limit, consumer);
+    }
+
+    @Override
+    public List<Resume> search(String query, int limit) {
+        return reader().search(query, limit);
+    }
+
+    @Override
+    public List<Resume> findByContact(ContactType type, String value) {
+        return reader().findByContact(type, value);
+    }
+
+    @Override
+    public List<Resume> findBySection(SectionType type, String term) {
+        return reader().findBySection(type, term);
+    }
+
+    @Override
+    public List<SearchHit> findSimilarByName(String name, int limit) {
+        return reader().findSimilarByName(name, limit);
+    }
+
+    @Override
+    public Version getVersion(String uuid) {
+        Version version = newStorage.getVersion(uuid);
+        return version != null ? version : oldStorage.getVersion(uuid);
+    }
+
+    // все записи проходят через старое хранилище
+    @Override
+    public Version getVersion() {
+        return oldStorage.getVersion();
+    }
+
+    @Override
+    public int size() {
+        return oldStorage.size();
+    }
+
+    @Override
+    public void warmUp() {
+        oldStorage.warmUp();
+        newStorage.warmUp();
+    }
+
+    public boolean isBackfilled() {
+        return backfilled && resync.isEmpty();
+    }
+
+    public long getCopied() {
+        return copied.get();
+    }
+
+    private IStorage reader() {
+        return isBackfilled() ? newStorage : oldStorage;
+    }
+
+    private void toNew(String uuid, Runnable write) {
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Couldn't write resume " + uuid + " to new storage, will resync", e);
+            resync.add(uuid);
+        }
+    }
+
+    // Замки берутся по возрастанию номера, поэтому пачки переноса и записи не ждут друг друга по кругу
+    private void locked(Collection<String> uuids, Runnable action) {
+        int[] stripes = uuids.stream().mapToInt(uuid -> (uuid.hashCode() & 0x7FFFFFFF) % locks.length).distinct().sorted().toArray();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            action.run();
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    private static List<String> uuids(Collection<Resume> resumes) {
+        List<String> uuids = new ArrayList<>(resumes.size());
+        for (Resume r : resumes) uuids.add(r.getUuid());
+        return uuids;
+    }
+
+    // saveAll, в отличие от save, сохраняет версию резюме: в новом хранилище она та же, что в старом
+    private void copyToNew(Resume r) {
+        newStorage.saveAll(Collections.singletonList(r));
+    }
+
+    // Версию уже проверило новое хранилище, старое обновляется без проверки.
+    // Если старое не обновилось, ошибка уходит вызывающему: читается всё равно новое.
+    private void updateOld(Resume r) {
+        oldStorage.update(r.withVersion(0));
+    }
+
+    // --- перенос ---
+
+    /**
+     * Запустить перенос в фоновом потоке
+     *
+     * @param maxPerSecond не больше стольких резюме в секунду, чтобы не мешать работе приложения
+     */
+    public synchronized void startBackfill(final int batchSize, final int maxPerSecond) {
+        if (backfillThread != null) return;
+        Thread thread = new Thread(() -> {
+            try {
+                backfill(batchSize, maxPerSecond);
+                while (!Thread.currentThread().isInterrupted()) {
+                    TimeUnit.SECONDS.sleep(1);
+                    resync();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Backfill failed", e);
+            }
+        }, "storage-backfill");
+        thread.setDaemon(true);
+        backfillThread = thread;
+        thread.start();
+    }
+
+    public synchronized void stopBackfill() {
+        Thread thread = backfillThread;
+        if (thread != null) {
+            thread.interrupt();
+            backfillThread = null;
+        }
+    }
+
+    /**
+     * Перенести все резюме, которых ещё нет в новом хранилище
+     */
+    public void backfill(int batchSize, int maxPerSecond) throws InterruptedException {
+        if (backfilled) {
+            resync();
+            return;
+        }
+        Properties state = readCheckpoint();
+        int offset = Integer.parseInt(state.getProperty("offset", "0"));
+        int pass = Integer.parseInt(state.getProperty("pass", "0"));
+        LOGGER.info("Backfill from offset " + offset + ", pass " + pass);
+        long start = System.nanoTime();
+        long processed = 0;
+
+        while (pass < MAX_PASSES) {
+            List<Resume> page = new ArrayList<>(batchSize);
+            oldStorage.forEachSorted(offset, batchSize, page::add);
+            resync();
+            if (page.isEmpty()) {
+                if (newStorage.size() == oldStorage.size()) {
+                    backfilled = true;
+                    writeCheckpoint(offset, pass, true);
+                    LOGGER.info("Backfill done, " + copied.get() + " resumes copied");
+                    return;
+                }
+                // пока шли, часть страниц сдвинулась - ещё проход
+                pass++;
+                offset = 0;
+                writeCheckpoint(offset, pass, false);
+                continue;
+            }
+
+            copy(page);
+            offset += page.size();
+            processed += page.size();
+            writeCheckpoint(offset, pass, false);
+
+            // ограничение скорости: не обгоняем maxPerSecond
+            long aheadNanos = processed * TimeUnit.SECONDS.toNanos(1) / maxPerSecond - (System.nanoTime() - start);
+            if (aheadNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            }
+        }
+        LOGGER.warning("Backfill stopped after " + MAX_PASSES + " passes: sizes still differ");
+    }
+
+    // Страница прочитана без замков: под замком пропускаем то, что уже записали пользователи,
+    // и перечитываем то, что изменили или удалили после чтения страницы
+    private void copy(List<Resume> page) {
+        if (page.isEmpty()) return;
+        locked(uuids(page), () -> {
+            List<Resume> missing = new ArrayList<>(page.size());
+            for (Resume r : page) {
+                if (newStorage.getVersion(r.getUuid()) != null) continue;
+                Version current = oldStorage.getVersion(r.getUuid());
+                if (current == null) continue;
+                missing.add(current.getResumeVersion() == r.getVersion() ? r : oldStorage.load(r.getUuid()));
+            }
+            if (missing.isEmpty()) return;
+            try {
+                newStorage.saveAll(missing);
+                copied.addAndGet(missing.size());
+            } catch (WebAppException e) {
+                // часть всё же записана (например, в новое пишут и мимо этого хранилища) - переносим по одному
+                for (Resume r : missing) {
+                    if (newStorage.getVersion(r.getUuid()) == null) {
+                        copyToNew(r);
+                        copied.incrementAndGet();
+                    }
+                }
+            }
+        });
+    }
+
+    // досылаем в новое хранилище то, что не записалось при двойной записи
+    private void resync() {
+        for (String uuid : new ArrayList<>(resync)) {
+            resync.remove(uuid);
+            try {
+                locked(Collections.singleton(uuid), () -> resync(uuid));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Resync of resume " + uuid + " failed", e);
+                resync.add(uuid);
+            }
+        }
+    }
+
+    private void resync(String uuid) {
+        if (oldStorage.getVersion(uuid) == null) {
+            if (newStorage.getVersion(uuid) != null) newStorage.delete(uuid);
+        } else {
+            // заменяется целиком, чтобы версия совпала со старым; пока резюме нет в новом, оно читается из старого
+            Resume r = oldStorage.load(uuid);
+            if (newStorage.getVersion(uuid) != null) newStorage.delete(uuid);
+            copyToNew(r);
+        }
+    }
+
+    private Properties readCheckpoint() {
+        Properties props = new Properties();
+        if (checkpoint != null && checkpoint.exists()) {
+            try (InputStream is = new FileInputStream(checkpoint)) {
+                props.load(is);
+            } catch (IOException e) {
+                throw new WebAppException("Couldn't read checkpoint " + checkpoint.getAbsolutePath(), e);
+            }
+        }
+        return props;
+    }
+
+    private void writeCheckpoint(int offset, int pass, boolean done) {
+        if (checkpoint == null) return;
+        Properties props = new Properties();
+        props.setProperty("offset", String.valueOf(offset));
+        props.setProperty("pass", String.valueOf(pass));
+        props.setProperty("done", String.valueOf(done));
+        File tmp = new File(checkpoint.getPath() + ".tmp");
+        try (OutputStream os = new FileOutputStream(tmp)) {
+            props.store(os, "Storage backfill checkpoint");
+        } catch (IOException e) {
+            throw new WebAppException("Couldn't write checkpoint " + tmp.getAbsolutePath(), e);
+        }
+        if ((checkpoint.exists() && !checkpoint.delete()) || !tmp.renameTo(checkpoint)) {
+            throw new WebAppException("Couldn't replace checkpoint " + checkpoint.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package webapp.storage;
+
+import java.util.*;
+
+/**
+ * Порядок резюме как в getAllSorted (имя, затем uuid) без самих резюме:
+ * в памяти только ключи, страница выбирается без чтения всех резюме.
+ */
+class NameOrder {
+    private final NavigableSet<String[]> keys = new TreeSet<>(new Comparator<String[]>() {
+        @Override
+        public int compare(String[] k1, String[] k2) {
+            int cmp = k1[0].compareTo(k2[0]);
+            return cmp == 0 ? k1[1].compareTo(k2[1]) : cmp;
+        }
+    });
+    private final Map<String, String[]> byUuid = new HashMap<>();
+
+    synchronized void add(String uuid, String fullName) {
+        doRemove(uuid);
+        String[] key = {fullName, uuid};
+        keys.add(key);
+        byUuid.put(uuid, key);
+    }
+
+    synchronized void remove(String uuid) {
+        doRemove(uuid);
+    }
+
+    synchronized void clear() {
+        keys.clear();
+        byUuid.clear();
+    }
+
+    /**
+     * @return uuid резюме страницы [offset, offset + limit)
+     */
+    synchronized List<String> page(int offset, int limit) {
+        List<String> uuids = new ArrayList<>(Math.min(limit, Math.max(keys.size() - offset, 0)));
+        Iterator<String[]> it = keys.iterator();
+        for (int i = 0; i < offset && it.hasNext(); i++) {
+            it.next();
+        }
+        while (it.hasNext() && uuids.size() < limit) {
+            uuids.add(it.next()[1]);
+        }
+        return uuids;
+    }
+
+    private void doRemove(String uuid) {
+        String[] key = byUuid.remove(uuid);
+        if (key != null) keys.remove(key);
+    }
+}
@@ -0,0 +1,288 @@
+package webapp.storage;
+
+import webapp.WebAppException;
+import webapp.metrics.Metrics;
+import webapp.model.Resume;
+import webapp.util.Uuids;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Резюме в памяти вне кучи: каждое хранится в двоичном формате {@link DataStreamCodec}
+ * в direct ByteBuffer и декодируется при чтении. В куче только индекс uuid - место записи
+ * (uuid ключом как два long, строка - только в прочитанном резюме),
+ * поэтому сборщик мусора не обходит миллионы объектов резюме.
+ * <p>
+ * Память выделяется слябами по slabSize байт, внутри сляба - блоками размером в степень двойки.
+ * Освобождённый блок попадает в список свободных своего размера и отдаётся следующей записи
+ * того же размера. Слябы не возвращаются системе до {@link #clear()}.
+ */
+public class OffHeapStorage extends AbstractStorage<UUID> {
+    public static final int DEFAULT_SLAB_SIZE = 4 << 20;
+    // блоки от 64 байт
+    private static final int MIN_SHIFT = 6;
+
+    private static final class Entry {
+        final int slab;
+        final int offset;
+        final int length;
+
+        Entry(int slab, int offset, int length) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final int slabSize;
+    private final Map<UUID, Entry> index = new HashMap<>();
+    // запись и освобождение блоков - под write, копирование блока при чтении - под read
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    // сляб, из которого нарезаются новые блоки, и его занятая часть
+    private int current = -1;
+    private int top;
+    // свободные блоки по размерам: (сляб << 32) | смещение
+    private final long[][] free = new long[32][];
+    private final int[] freeCount = new int[32];
+    private long allocatedBytes;
+    private long usedBytes;
+
+    public OffHeapStorage(int slabSize) {
+        if (Integer.bitCount(slabSize) != 1 || slabSize < 1 << MIN_SHIFT) {
+            throw new IllegalArgumentException("Slab size " + slabSize + " must be a power of two, at least " + (1 << MIN_SHIFT));
+        }
+        this.slabSize = slabSize;
+    }
+
+    public OffHeapStorage() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    @Override
+    protected UUID getCtx(String uuid) {
+        // не uuid ("dummy") - null, такого резюме нет
+        return Uuids.parse(uuid);
+    }
+
+    @Override
+    protected boolean exist(UUID uuid) {
+        if (uuid == null) return false;
+        lock.readLock().lock();
+        try {
+            return index.containsKey(uuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doClear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            slabs.clear();
+            current = -1;
+            top = 0;
+            Arrays.fill(free, null);
+            Arrays.fill(freeCount, 0);
+            allocatedBytes = 0;
+            usedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void doSave(UUID uuid, Resume r) {
+        if (uuid == null) {
+            throw new WebAppException("Invalid uuid", r);
+        }
+        write(uuid, r);
+    }
+
+    @Override
+    protected void doUpdate(UUID uuid, Resume r) {
+        write(uuid, r);
+    }
+
+    @Override
+    protected Resume doLoad(UUID uuid) {
+        byte[] bytes;
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(uuid);
+            if (entry == null) {
+                return null;
+            }
+            bytes = read(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return decode(uuid, bytes);
+    }
+
+    @Override
+    protected void doDelete(UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = index.remove(uuid);
+            if (entry != null) release(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Resume> doGetAll() {
+        List<UUID> uuids = new ArrayList<>();
+        List<byte[]> records = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<UUID, Entry> e : index.entrySet()) {
+                uuids.add(e.getKey());
+                records.add(read(e.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Resume> list = new ArrayList<>(uuids.size());
+        for (int i = 0; i < uuids.size(); i++) {
+            list.add(decode(uuids.get(i), records.get(i)));
+        }
+        return list;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Память вне кучи под слябы
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return allocatedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Сумма размеров записей, остальное - свободные блоки и округление до степени двойки
+     */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void registerMetrics(String name) {
+        Metrics.gauge(name + ".allocatedBytes", this::getAllocatedBytes);
+        Metrics.gauge(name + ".usedBytes", this::getUsedBytes);
+        Metrics.gauge(name + ".size", this::size);
+    }
+
+    // кодируем вне блокировки, под ней только копирование в блок
+    private void write(UUID uuid, Resume r) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream dos = new DataOutputStream(bytes)) {
+            DataStreamCodec.write(dos, r);
+        } catch (IOException e) {
+            throw new WebAppException("Couldn't encode resume", r, e);
+        }
+        byte[] record = bytes.toByteArray();
+
+        lock.writeLock().lock();
+        try {
+            Entry old = index.get(uuid);
+            Entry entry = allocate(record.length);
+            slabs.get(entry.slab).put(entry.offset, record);
+            index.put(uuid, entry);
+            if (old != null) release(old);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private byte[] read(Entry entry) {
+        byte[] bytes = new byte[entry.length];
+        slabs.get(entry.slab).get(entry.offset, bytes);
+        return bytes;
+    }
+
+    private static Resume decode(UUID uuid, byte[] bytes) {
+        try {
+            Resume r = DataStreamCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+            r.setUuid(uuid.toString());
+            return r;
+        } catch (IOException e) {
+            throw new WebAppException("Couldn't decode resume " + uuid, e);
+        }
+    }
+
+    private Entry allocate(int length) {
+        int shift = shift(length);
+        usedBytes += length;
+        if (freeCount[shift] > 0) {
+            long block = free[shift][--freeCount[shift]];
+            return new Entry((int) (block >>> 32), (int) block, length);
+        }
+        int blockSize = 1 << shift;
+        if (blockSize > slabSize) {
+            // запись больше сляба - отдельный буфер под неё
+            slabs.add(ByteBuffer.allocateDirect(blockSize));
+            allocatedBytes += blockSize;
+            return new Entry(slabs.size() - 1, 0, length);
+        }
+        if (current < 0 || top + blockSize > slabSize) {
+            slabs.add(ByteBuffer.allocateDirect(slabSize));
+            allocatedBytes += slabSize;
+            current = slabs.size() - 1;
+            top = 0;
+        }
+        Entry entry = new Entry(current, top, length);
+        top += blockSize;
+        return entry;
+    }
+
+    private void release(Entry entry) {
+        int shift = shift(entry.length);
+        usedBytes -= entry.length;
+        long[] blocks = free[shift];
+        if (blocks == null) {
+            blocks = free[shift] = new long[16];
+        } else if (freeCount[shift] == blocks.length) {
+            blocks = free[shift] = Arrays.copyOf(blocks, blocks.length * 2);
+        }
+        blocks[freeCount[shift]++] = ((long) entry.slab << 32) | entry.offset;
+    }
+
+    private static int shift(int length) {
+        return Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1));
+    }
+}
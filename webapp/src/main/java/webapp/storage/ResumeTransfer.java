@@ -0,0 +1,287 @@
+package webapp.storage;
+
+import webapp.WebAppException;
+import webapp.model.Resume;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Перенос всех резюме из одного хранилища в другое (или из потока, например JSON) без загрузки
+ * всей базы в память.
+ * <p>
+ * Читатели параллельно берут страницы исходного хранилища ({@link IStorage#forEachSorted})
+ * и кладут пачки в ограниченную очередь, писатели параллельно сохраняют их через
+ * {@link IStorage#saveAll}. В памяти не больше (queueCapacity + readers + writers) пачек.
+ * Если пачка не сохранилась целиком, её резюме сохраняются по одному и неудачные считаются.
+ * Если упал писатель, читатели останавливаются и перенос завершается ошибкой.
+ * <p>
+ * Запуск из командной строки: {@code ResumeTransfer <откуда> <куда> [batchSize] [writers]},
+ * хранилище задаётся как {@code xml:<каталог>}, {@code data:<каталог>}, {@code ser:<каталог>} или {@code sql}.
+ */
+public class ResumeTransfer {
+    private static final Logger LOGGER = Logger.getLogger(ResumeTransfer.class.getName());
+
+    // сигнал писателю остановиться, сравнивается по ссылке
+    private static final List<Resume> END = Collections.unmodifiableList(new ArrayList<Resume>());
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public interface Progress {
+        /**
+         * @param total всего резюме или -1, если заранее неизвестно
+         */
+        void report(long done, long failed, long total, double perSecond);
+    }
+
+    public static class Stats {
+        private final long done;
+        private final long failed;
+        private final long millis;
+
+        Stats(long done, long failed, long millis) {
+            this.done = done;
+            this.failed = failed;
+            this.millis = millis;
+        }
+
+        public long getDone() {
+            return done;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public double getPerSecond() {
+            return millis == 0 ? done : done * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "done=" + done +
+                    ", failed=" + failed +
+                    ", millis=" + millis +
+                    ", perSecond=" + Math.round(getPerSecond()) +
+                    '}';
+        }
+    }
+
+    private interface Producer {
+        void produce(BlockingQueue<List<Resume>> queue) throws InterruptedException;
+    }
+
+    private final int batchSize;
+    private final int readers;
+    private final int writers;
+    private final int queueCapacity;
+
+    public ResumeTransfer(int batchSize, int readers, int writers, int queueCapacity) {
+        this.batchSize = batchSize;
+        this.readers = readers;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public ResumeTransfer() {
+        this(500, 2, 4, 8);
+    }
+
+    public Stats copy(final IStorage from, IStorage to, Progress progress) {
+        final int total = from.size();
+        final AtomicInteger nextOffset = new AtomicInteger();
+        return run(total, to, progress, readers, new Producer() {
+            @Override
+            public void produce(BlockingQueue<List<Resume>> queue) throws InterruptedException {
+                int offset;
+                while ((offset = nextOffset.getAndAdd(batchSize)) < total) {
+                    List<Resume> batch = new ArrayList<>(batchSize);
+                    // копия: save проставляет версию, а источник может отдавать общие неизменяемые резюме
+                    from.forEachSorted(offset, batchSize, r -> batch.add(r.copy()));
+                    if (batch.isEmpty()) break;
+                    queue.put(batch);
+                }
+            }
+        });
+    }
+
+    /**
+     * Источник читается одним потоком по одному резюме, пишется параллельно
+     */
+    public Stats copy(final Iterator<Resume> from, IStorage to, Progress progress) {
+        return run(-1, to, progress, 1, new Producer() {
+            @Override
+            public void produce(BlockingQueue<List<Resume>> queue) throws InterruptedException {
+                List<Resume> batch = new ArrayList<>(batchSize);
+                while (from.hasNext()) {
+                    batch.add(from.next());
+                    if (batch.size() == batchSize) {
+                        queue.put(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) queue.put(batch);
+            }
+        });
+    }
+
+    private Stats run(final long total, final IStorage to, final Progress progress, int producers, final Producer producer) {
+        final long start = System.nanoTime();
+        final BlockingQueue<List<Resume>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong lastReport = new AtomicLong(start);
+        // упавший писатель: очередь больше никто не разбирает, читатели и main не должны ждать места в ней
+        final AtomicReference<Throwable> writerError = new AtomicReference<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(producers + writers);
+        try {
+            final List<Future<?>> producerFutures = new ArrayList<>(producers);
+            for (int i = 0; i < producers; i++) {
+                producerFutures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        producer.produce(queue);
+                        return null;
+                    }
+                }));
+            }
+            List<Future<?>> writerFutures = new ArrayList<>(writers);
+            for (int i = 0; i < writers; i++) {
+                writerFutures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        try {
+                            List<Resume> batch;
+                            while ((batch = queue.take()) != END) {
+                                write(to, batch, done, failed);
+                                long now = System.nanoTime();
+                                long last = lastReport.get();
+                                if (progress != null && now - last >= REPORT_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                                    progress.report(done.get(), failed.get(), total, perSecond(done.get(), now - start));
+                                }
+                            }
+                            return null;
+                        } catch (RuntimeException | Error e) {
+                            writerError.compareAndSet(null, e);
+                            for (Future<?> f : producerFutures) {
+                                f.cancel(true);
+                            }
+                            throw e;
+                        }
+                    }
+                }));
+            }
+
+            WebAppException error = null;
+            for (Future<?> f : producerFutures) {
+                error = await(f, error);
+            }
+            for (int i = 0; i < writers && writerError.get() == null; ) {
+                if (queue.offer(END, 100, TimeUnit.MILLISECONDS)) i++;
+            }
+            if (writerError.get() != null) {
+                for (Future<?> f : writerFutures) {
+                    f.cancel(true);
+                }
+                throw new WebAppException("Transfer failed", writerError.get());
+            }
+            for (Future<?> f : writerFutures) {
+                error = await(f, error);
+            }
+            if (error != null) throw error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebAppException("Transfer interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (progress != null) {
+            progress.report(done.get(), failed.get(), total, perSecond(done.get(), elapsed));
+        }
+        return new Stats(done.get(), failed.get(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    // saveAll хранилища не обязан быть атомарным: после ошибки часть пачки может оказаться записанной.
+    // Резюме, которое уже лежит в хранилище в том же виде (эта пачка или прошлый запуск), перенесено,
+    // упавшим считается только другое резюме под тем же uuid или ошибка записи
+    private static void write(IStorage to, List<Resume> batch, AtomicLong done, AtomicLong failed) {
+        try {
+            to.saveAll(batch);
+            done.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            // кто-то из пачки мешает - сохраняем по одному
+            for (Resume r : batch) {
+                try {
+                    if (to.getVersion(r.getUuid()) == null) {
+                        to.save(r);
+                    } else if (!r.equals(to.load(r.getUuid()))) {
+                        throw new WebAppException("Resume " + r.getUuid() + " already exists", r);
+                    }
+                    done.incrementAndGet();
+                } catch (RuntimeException re) {
+                    failed.incrementAndGet();
+                    LOGGER.warning("Resume " + r.getUuid() + " is not transferred: " + re.getMessage());
+                }
+            }
+        }
+    }
+
+    private static WebAppException await(Future<?> future, WebAppException error) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (error == null) error = new WebAppException("Transfer failed", e.getCause());
+        } catch (CancellationException e) {
+            // читателя остановил упавший писатель, его ошибка важнее
+        }
+        return error;
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos == 0 ? count : count * 1e9 / nanos;
+    }
+
+    // тип:каталог - через те же фабрики, что и storage.* в webapp.properties
+    static IStorage storage(String spec) {
+        int colon = spec.indexOf(':');
+        Properties props = new Properties();
+        props.setProperty("transfer.type", colon < 0 ? spec : spec.substring(0, colon));
+        if (colon >= 0) {
+            props.setProperty("transfer.dir", spec.substring(colon + 1));
+        }
+        return new StorageConfig(props, "transfer").create();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: ResumeTransfer <from> <to> [batchSize] [writers]\n" +
+                    "  storage: xml:<dir> | data:<dir> | ser:<dir> | sql");
+            System.exit(1);
+        }
+        ResumeTransfer transfer = new ResumeTransfer(
+                args.length > 2 ? Integer.parseInt(args[2]) : 500, 2,
+                args.length > 3 ? Integer.parseInt(args[3]) : 4, 8);
+        Stats stats = transfer.copy(storage(args[0]), storage(args[1]), new Progress() {
+            @Override
+            public void report(long done, long failed, long total, double perSecond) {
+                System.out.printf("%d/%d done, %d failed, %.0f resumes/s%n", done, total, failed, perSecond);
+            }
+        });
+        System.out.println(stats);
+    }
+}
@@ -0,0 +1,270 @@
+package webapp.storage;
+
+import webapp.WebAppException;
+import webapp.model.*;
+import webapp.search.ResumeText;
+import webapp.search.Tokenizer;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Хеш-индексы резюме по значению контакта и по термам текста раздела.
+ * <p>
+ * Если задан файл журнала, каждое изменение дописывается в него (add/remove/clear),
+ * при открытии журнал проигрывается заново. Когда журнал заметно длиннее живых данных,
+ * он переписывается компактно.
+ */
+class SecondaryIndex {
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final int COMPACT_FACTOR = 2;
+
+    private final Map<ContactType, Map<String, Set<String>>> contacts = new EnumMap<>(ContactType.class);
+    private final Map<SectionType, Map<String, Set<String>>> sections = new EnumMap<>(SectionType.class);
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private final File journal;
+    private int journalRecords;
+
+    private static class Entry {
+        final Map<ContactType, String> contacts = new EnumMap<>(ContactType.class);
+        final Map<SectionType, Set<String>> terms = new EnumMap<>(SectionType.class);
+    }
+
+    private SecondaryIndex(File journal) {
+        this.journal = journal;
+    }
+
+    static SecondaryIndex build(Collection<Resume> resumes) {
+        SecondaryIndex index = new SecondaryIndex(null);
+        for (Resume r : resumes) index.add(r);
+        return index;
+    }
+
+    /**
+     * Открыть индекс, сохраняемый в журнал. Если журнала нет или он не сходится
+     * с числом резюме в хранилище - индекс перестраивается по всем резюме.
+     */
+    static SecondaryIndex open(File journal, int expectedSize, AllResumes all) {
+        SecondaryIndex index = new SecondaryIndex(journal);
+        if (journal.exists()) {
+            try {
+                index.replay();
+            } catch (IOException e) {
+                index.reset();
+            }
+        }
+        if (index.entries.size() != expectedSize) {
+            index.reset();
+            for (Resume r : all.get()) index.put(r.getUuid(), entry(r));
+            index.compact();
+        }
+        return index;
+    }
+
+    interface AllResumes {
+        Collection<Resume> get();
+    }
+
+    synchronized void add(Resume r) {
+        Entry entry = entry(r);
+        put(r.getUuid(), entry);
+        append(dos -> {
+            dos.writeByte(ADD);
+            writeEntry(dos, r.getUuid(), entry);
+        });
+    }
+
+    synchronized void remove(String uuid) {
+        if (doRemove(uuid)) {
+            append(dos -> {
+                dos.writeByte(REMOVE);
+                dos.writeUTF(uuid);
+            });
+        }
+    }
+
+    synchronized void clear() {
+        reset();
+        append(dos -> dos.writeByte(CLEAR));
+    }
+
+    synchronized Set<String> findByContact(ContactType type, String value) {
+        Map<String, Set<String>> byValue = contacts.get(type);
+        Set<String> uuids = byValue == null ? null : byValue.get(normalize(value));
+        return uuids == null ? Collections.emptySet() : new HashSet<>(uuids);
+    }
+
+    /**
+     * @return резюме, в разделе type которых есть все термы из term
+     */
+    synchronized Set<String> findBySection(SectionType type, String term) {
+        Map<String, Set<String>> byTerm = sections.get(type);
+        List<String> terms = Tokenizer.tokenize(term);
+        if (byTerm == null || terms.isEmpty()) return Collections.emptySet();
+        Set<String> result = null;
+        for (String t : terms) {
+            Set<String> uuids = byTerm.get(t);
+            if (uuids == null) return Collections.emptySet();
+            if (result == null) {
+                result = new HashSet<>(uuids);
+            } else {
+                result.retainAll(uuids);
+            }
+        }
+        return result;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Entry entry(Resume r) {
+        Entry entry = new Entry();
+        for (Map.Entry<ContactType, String> e : r.getContacts().entrySet()) {
+            entry.contacts.put(e.getKey(), normalize(e.getValue()));
+        }
+        for (Map.Entry<SectionType, Section> e : r.getSections().entrySet()) {
+            Set<String> terms = new HashSet<>(Tokenizer.tokenize(ResumeText.section(e.getValue())));
+            if (!terms.isEmpty()) entry.terms.put(e.getKey(), terms);
+        }
+        return entry;
+    }
+
+    private void put(String uuid, Entry entry) {
+        doRemove(uuid);
+        entries.put(uuid, entry);
+        for (Map.Entry<ContactType, String> e : entry.contacts.entrySet()) {
+            contacts.computeIfAbsent(e.getKey(), k -> new HashMap<>())
+                    .computeIfAbsent(e.getValue(), k -> new HashSet<>()).add(uuid);
+        }
+        for (Map.Entry<SectionType, Set<String>> e : entry.terms.entrySet()) {
+            Map<String, Set<String>> byTerm = sections.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+            for (String term : e.getValue()) {
+                byTerm.computeIfAbsent(term, k -> new HashSet<>()).add(uuid);
+            }
+        }
+    }
+
+    private boolean doRemove(String uuid) {
+        Entry entry = entries.remove(uuid);
+        if (entry == null) return false;
+        for (Map.Entry<ContactType, String> e : entry.contacts.entrySet()) {
+            removeFrom(contacts.get(e.getKey()), e.getValue(), uuid);
+        }
+        for (Map.Entry<SectionType, Set<String>> e : entry.terms.entrySet()) {
+            for (String term : e.getValue()) {
+                removeFrom(sections.get(e.getKey()), term, uuid);
+            }
+        }
+        return true;
+    }
+
+    private static void removeFrom(Map<String, Set<String>> map, String key, String uuid) {
+        Set<String> uuids = map.get(key);
+        if (uuids != null) {
+            uuids.remove(uuid);
+            if (uuids.isEmpty()) map.remove(key);
+        }
+    }
+
+    private void reset() {
+        contacts.clear();
+        sections.clear();
+        entries.clear();
+    }
+
+    // --- журнал ---
+
+    private interface Record {
+        void write(DataOutputStream dos) throws IOException;
+    }
+
+    private void append(Record record) {
+        if (journal == null) return;
+        if (journalRecords > COMPACT_FACTOR * entries.size() + 100) {
+            compact();
+            return;
+        }
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journal, true)))) {
+            record.write(dos);
+            journalRecords++;
+        } catch (IOException e) {
+            throw new WebAppException("Couldn't write index " + journal.getAbsolutePath(), e);
+        }
+    }
+
+    private void compact() {
+        File tmp = new File(journal.getPath() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                dos.writeByte(ADD);
+                writeEntry(dos, e.getKey(), e.getValue());
+            }
+        } catch (IOException e) {
+            throw new WebAppException("Couldn't write index " + tmp.getAbsolutePath(), e);
+        }
+        if ((journal.exists() && !journal.delete()) || !tmp.renameTo(journal)) {
+            throw new WebAppException("Couldn't replace index " + journal.getAbsolutePath());
+        }
+        journalRecords = entries.size();
+    }
+
+    private void replay() throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+            while (true) {
+                int op = dis.read();
+                if (op == -1) break;
+                switch (op) {
+                    case ADD:
+                        String uuid = dis.readUTF();
+                        put(uuid, readEntry(dis));
+                        break;
+                    case REMOVE:
+                        doRemove(dis.readUTF());
+                        break;
+                    case CLEAR:
+                        reset();
+                        break;
+                    default:
+                        throw new IOException("Corrupted index " + journal.getAbsolutePath());
+                }
+                journalRecords++;
+            }
+        }
+    }
+
+    private static void writeEntry(DataOutputStream dos, String uuid, Entry entry) throws IOException {
+        dos.writeUTF(uuid);
+        dos.writeInt(entry.contacts.size());
+        for (Map.Entry<ContactType, String> e : entry.contacts.entrySet()) {
+            dos.writeUTF(e.getKey().name());
+            dos.writeUTF(e.getValue());
+        }
+        dos.writeInt(entry.terms.size());
+        for (Map.Entry<SectionType, Set<String>> e : entry.terms.entrySet()) {
+            dos.writeUTF(e.getKey().name());
+            dos.writeInt(e.getValue().size());
+            for (String term : e.getValue()) dos.writeUTF(term);
+        }
+    }
+
+    private static Entry readEntry(DataInputStream dis) throws IOException {
+        Entry entry = new Entry();
+        int contactsSize = dis.readInt();
+        for (int i = 0; i < contactsSize; i++) {
+            entry.contacts.put(ContactType.valueOf(dis.readUTF()), dis.readUTF());
+        }
+        int sectionsSize = dis.readInt();
+        for (int i = 0; i < sectionsSize; i++) {
+            SectionType type = SectionType.valueOf(dis.readUTF());
+            int termsSize = dis.readInt();
+            Set<String> terms = new HashSet<>(termsSize * 2);
+            for (int j = 0; j < termsSize; j++) terms.add(dis.readUTF());
+            entry.terms.put(type, terms);
+        }
+        return entry;
+    }
+}
@@ -1,27 +1,74 @@
 package webapp.storage;
 
+import webapp.ResumeConflictException;
 import webapp.WebAppException;
-import webapp.model.ContactType;
-import webapp.model.Resume;
+import webapp.model.*;
+import webapp.search.ResumeText;
+import webapp.search.SearchHit;
+import webapp.search.Tokenizer;
+import webapp.search.TrigramIndex;
+import webapp.sql.Dialect;
+import webapp.sql.SchemaMigrator;
 import webapp.sql.Sql;
 import webapp.sql.SqlExecutor;
 import webapp.sql.SqlTransaction;
+import webapp.util.StringDedup;
 import webapp.util.Util;
+import webapp.util.Uuids;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * User: gkislin
  * Date: 14.07.2014
  */
 public class SqlStorage implements IStorage {
+    // курсор работает только внутри транзакции (autocommit=false)
+    private static final int FETCH_SIZE = 500;
+
+    // Имя и место проживания - вес A/B, контакты - B, разделы - C.
+    // Конфигурация russian даёт стемминг, simple - точные формы имён, e-mail, skype.
+    private static final String SEARCH_VECTOR =
+            "setweight(to_tsvector('russian', ?), 'A') || setweight(to_tsvector('simple', ?), 'A') || " +
+            "setweight(to_tsvector('russian', ?), 'B') || setweight(to_tsvector('simple', ?), 'B') || " +
+            "setweight(to_tsvector('simple', ?), 'B') || " +
+            "setweight(to_tsvector('russian', ?), 'C') || setweight(to_tsvector('simple', ?), 'C')";
+
+    // в H2 нет оператора @@, совпадение - ненулевой ts_rank (H2Functions)
+    private static final String SEARCH_SQL =
+            "SELECT uuid, full_name, location, version, rank FROM (" +
+            " SELECT r.uuid, r.full_name, r.location, r.version, ts_rank(r.search_vector, q.query) AS rank" +
+            " FROM resume r, (SELECT to_tsquery('russian', ?) || to_tsquery('simple', ?) AS query) q" +
+            " WHERE %s) s ";
+
+    // определяется по первому соединению
+    private volatile Dialect dialect;
+
+    private final SchemaMigrator migrator;
+    private volatile boolean migrated;
+
+    public SqlStorage() {
+        this(null);
+    }
+
+    /**
+     * @param migrator миграции схемы, применяются до первого запроса; null - схема уже готова
+     */
+    public SqlStorage(SchemaMigrator migrator) {
+        this.migrator = migrator;
+        this.migrated = migrator == null;
+    }
 
     @Override
     public void clear() {
+        migrate();
         Sql.execute("DELETE FROM RESUME", new SqlExecutor<Void>() {
             @Override
             public Void execute(PreparedStatement ps) throws SQLException {
@@ -33,69 +80,131 @@ public class SqlStorage implements IStorage {
 
     @Override
     public void save(final Resume r) {
+        insert(Collections.singletonList(r), false);
+    }
+
+    /**
+     * Все резюме вставляются пакетами (executeBatch) в одной транзакции
+     */
+    @Override
+    public void saveAll(final Collection<Resume> resumes) {
+        insert(resumes, true);
+    }
+
+    private void insert(final Collection<Resume> resumes, final boolean keepVersions) {
+        for (Resume r : resumes) {
+            Uuids.check(r.getUuid());
+        }
+        migrate();
+        if (resumes.isEmpty()) return;
         Sql.execute(
                 new SqlTransaction<Void>() {
                     @Override
                     public Void execute(Connection conn) throws SQLException {
-                        try (PreparedStatement st = conn.prepareStatement("INSERT INTO resume (uuid, full_name, location) VALUES(?,?,?)")) {
-                            st.setString(1, r.getUuid());
-                            st.setString(2, r.getFullName());
-                            st.setString(3, r.getLocation());
-                            st.execute();
+                        try (PreparedStatement st = conn.prepareStatement("INSERT INTO resume (uuid, full_name, location, version, search_vector) VALUES(?,?,?,?," + SEARCH_VECTOR + ")")) {
+                            for (Resume r : resumes) {
+                                setUuid(st, 1, r.getUuid());
+                                st.setString(2, r.getFullName());
+                                st.setString(3, r.getLocation());
+                                st.setInt(4, savedVersion(r, keepVersions));
+                                setSearchVector(st, 5, r);
+                                st.addBatch();
+                            }
+                            st.executeBatch();
                         }
-                        replaceContact(conn, r);
+                        insertContacts(conn, resumes);
+                        insertTextSections(conn, resumes);
                         return null;
                     }
                 }
         );
     }
 
+    private static int savedVersion(Resume r, boolean keepVersion) {
+        return keepVersion && r.getVersion() != 0 ? r.getVersion() : 1;
+    }
+
+    /**
+     * Резюме с ненулевой версией обновляется только при совпадении версии в базе
+     * (UPDATE ... WHERE uuid=? AND version=?), иначе {@link ResumeConflictException}
+     */
     @Override
     public void update(final Resume r) {
+        migrate();
+        final int expected = r.getVersion();
         Sql.execute(new SqlTransaction<Void>() {
             @Override
             public Void execute(Connection conn) throws SQLException {
-                try (PreparedStatement st = conn.prepareStatement("UPDATE resume SET full_name=?, location=? WHERE uuid=?")) {
+                try (PreparedStatement st = conn.prepareStatement("UPDATE resume SET full_name=?, location=?, version=version+1, modified=CURRENT_TIMESTAMP, search_vector=" + SEARCH_VECTOR +
+                        " WHERE uuid=?" + (expected == 0 ? "" : " AND version=?"))) {
                     st.setString(1, r.getFullName());
                     st.setString(2, r.getLocation());
-                    st.setString(3, r.getUuid());
+                    setSearchVector(st, 3, r);
+                    setUuid(st, 10, r.getUuid());
+                    if (expected != 0) {
+                        st.setInt(11, expected);
+                    }
                     if (st.executeUpdate() == 0) {
+                        if (expected != 0 && readVersion(conn, r.getUuid()) != null) {
+                            throw new ResumeConflictException(r);
+                        }
                         throw new WebAppException("Resume not found", r);
                     }
                 }
                 replaceContact(conn, r);
+                replaceTextSections(conn, r);
                 return null;
             }
         });
     }
 
+    private static Integer readVersion(Connection conn, String uuid) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement("SELECT version FROM resume WHERE uuid=?")) {
+            setUuid(st, 1, uuid);
+            ResultSet rs = st.executeQuery();
+            return rs.next() ? rs.getInt(1) : null;
+        }
+    }
+
     @Override
     public Resume load(final String uuid) {
-        return Sql.execute("SELECT r.uuid, r.full_name, r.location, c.type, c.value FROM resume r LEFT JOIN contact c ON r.uuid = c.resume_uuid WHERE r.uuid=?",
-                new SqlExecutor<Resume>() {
-                    @Override
-                    public Resume execute(PreparedStatement st) throws SQLException {
-                        st.setString(1, uuid);
-                        ResultSet rs = st.executeQuery();
-                        if (rs.next()) {
-                            Resume r = new Resume(uuid, rs.getString("full_name"), rs.getString("location"));
-                            addContact(rs, r);
-                            while (rs.next()) {
-                                addContact(rs, r);
-                            }
-                            return r;
-                        }
+        migrate();
+        return Sql.execute(new SqlTransaction<Resume>() {
+            @Override
+            public Resume execute(Connection conn) throws SQLException {
+                Resume r;
+                try (PreparedStatement st = conn.prepareStatement("SELECT r.uuid, r.full_name, r.location, r.version, c.type, c.value FROM resume r LEFT JOIN contact c ON r.uuid = c.resume_uuid WHERE r.uuid=?")) {
+                    setUuid(st, 1, uuid);
+                    ResultSet rs = st.executeQuery();
+                    if (!rs.next()) {
                         throw new WebAppException("Resume " + uuid + " is not found");
                     }
-                });
+                    r = Resume.restore(uuid, rs.getString("full_name"), rs.getString("location"));
+                    r.setVersion(rs.getInt("version"));
+                    addContact(rs, r);
+                    while (rs.next()) {
+                        addContact(rs, r);
+                    }
+                }
+                try (PreparedStatement st = conn.prepareStatement("SELECT type, \"values\" FROM text_section WHERE resume_uuid=? ORDER BY id")) {
+                    setUuid(st, 1, uuid);
+                    ResultSet rs = st.executeQuery();
+                    while (rs.next()) {
+                        addSectionValue(rs, r);
+                    }
+                }
+                return r;
+            }
+        });
     }
 
     @Override
     public void delete(final String uuid) {
+        migrate();
 /*
-        try (Connection conn = Sql.CONN_FACTORY.getConnection();
+        try (Connection conn = Sql.getConnection();
              PreparedStatement ps = conn.prepareStatement("DELETE FROM RESUME WHERE uuid=?")) {
-            ps.setString(1, uuid);
+            setUuid(ps, 1, uuid);
             ps.execute();
         } catch (SQLException e) {
             throw new WebAppException("SQL failed", e);
@@ -105,7 +214,7 @@ public class SqlStorage implements IStorage {
         Sql.execute("DELETE FROM RESUME WHERE uuid=?", new SqlExecutor<Void>() {
             @Override
             public Void execute(PreparedStatement ps) throws SQLException {
-                ps.setString(1, uuid);
+                setUuid(ps, 1, uuid);
                 if (ps.executeUpdate() == 0) {
                     throw new WebAppException("Resume " + uuid + "not exist", uuid);
                 }
@@ -116,30 +225,176 @@ public class SqlStorage implements IStorage {
 
     @Override
     public Collection<Resume> getAllSorted() {
-        return Sql.execute("SELECT r.uuid, r.full_name, r.location, c.type, c.value  FROM RESUME r LEFT JOIN contact c ON r.uuid = c.resume_uuid",
+        migrate();
+        return Sql.execute("SELECT r.uuid, r.full_name, r.location, r.version, c.type, c.value  FROM RESUME r LEFT JOIN contact c ON r.uuid = c.resume_uuid",
                 new SqlExecutor<Collection<Resume>>() {
                     @Override
                     public Collection<Resume> execute(PreparedStatement st) throws SQLException {
-                        ResultSet rs = st.executeQuery();
-                        Map<String, Resume> map = new HashMap<>();
-                        while (rs.next()) {
-                            String uuid = rs.getString("uuid");
-                            Resume resume = map.get(uuid);
-                            if (resume == null) {
-                                resume = new Resume(uuid, rs.getString("full_name"), rs.getString("location"));
-                                map.put(uuid, resume);
-                            }
-                            addContact(rs, resume);
+                        return readSorted(st.executeQuery());
+                    }
+                });
+    }
+
+    /**
+     * Страница резюме выбирается в подзапросе (ORDER BY full_name, uuid LIMIT/OFFSET), контакты
+     * присоединяются к ней; строки читаются курсором и резюме отдаются по мере сборки.
+     */
+    @Override
+    public void forEachSorted(final int offset, final int limit, final Consumer<Resume> consumer) {
+        migrate();
+        if (limit <= 0) return;
+        Sql.execute(new SqlTransaction<Void>() {
+            @Override
+            public Void execute(Connection conn) throws SQLException {
+                try (PreparedStatement st = conn.prepareStatement(
+                        "SELECT r.uuid, r.full_name, r.location, r.version, c.type, c.value FROM " +
+                        "(SELECT uuid, full_name, location, version FROM resume ORDER BY full_name, uuid LIMIT ? OFFSET ?) r " +
+                        "LEFT JOIN contact c ON r.uuid = c.resume_uuid ORDER BY r.full_name, r.uuid")) {
+                    st.setInt(1, limit);
+                    st.setInt(2, offset);
+                    st.setFetchSize(FETCH_SIZE);
+                    ResultSet rs = st.executeQuery();
+                    Resume current = null;
+                    while (rs.next()) {
+                        String uuid = rs.getString("uuid");
+                        if (current == null || !current.getUuid().equals(uuid)) {
+                            if (current != null) consumer.accept(current);
+                            current = Resume.restore(uuid, rs.getString("full_name"), rs.getString("location"));
+                            current.setVersion(rs.getInt("version"));
                         }
-                        ArrayList<Resume> list = new ArrayList<>(map.values());
-                        Collections.sort(list);
-                        return list;
+                        addContact(rs, current);
+                    }
+                    if (current != null) consumer.accept(current);
+                }
+                return null;
+            }
+        });
+    }
+
+    // Поддерживается индексом contact_type_value_idx по (type, lower(value))
+    @Override
+    public List<Resume> findByContact(final ContactType type, final String value) {
+        migrate();
+        return Sql.execute("SELECT r.uuid, r.full_name, r.location, r.version, c.type, c.value FROM resume r LEFT JOIN contact c ON r.uuid = c.resume_uuid " +
+                        "WHERE r.uuid IN (SELECT resume_uuid FROM contact WHERE type=? AND lower(value)=?)",
+                new SqlExecutor<List<Resume>>() {
+                    @Override
+                    public List<Resume> execute(PreparedStatement st) throws SQLException {
+                        st.setString(1, type.name());
+                        st.setString(2, SecondaryIndex.normalize(value));
+                        return readSorted(st.executeQuery());
                     }
                 });
     }
 
+    // В базе хранятся только текстовые разделы, разделы организаций не ищутся.
+    // Найденные резюме - с контактами и текстовыми разделами, как из load
+    @Override
+    public List<Resume> findBySection(final SectionType type, String term) {
+        migrate();
+        final List<String> terms = Tokenizer.tokenize(term);
+        if (type.getSectionClass() != SectionClass.TEXT || terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final StringBuilder sql = new StringBuilder("SELECT r.uuid, r.full_name, r.location, r.version, c.type, c.value FROM resume r LEFT JOIN contact c ON r.uuid = c.resume_uuid " +
+                "WHERE r.uuid IN (SELECT resume_uuid FROM text_section WHERE type=?");
+        for (int i = 0; i < terms.size(); i++) {
+            sql.append(" AND lower(\"values\") LIKE ?");
+        }
+        sql.append(")");
+        return Sql.execute(new SqlTransaction<List<Resume>>() {
+            @Override
+            public List<Resume> execute(Connection conn) throws SQLException {
+                List<Resume> found;
+                try (PreparedStatement st = conn.prepareStatement(sql.toString())) {
+                    st.setString(1, type.name());
+                    for (int i = 0; i < terms.size(); i++) {
+                        st.setString(i + 2, "%" + terms.get(i) + "%");
+                    }
+                    found = readSorted(st.executeQuery());
+                }
+                addSections(conn, found);
+                return found;
+            }
+        });
+    }
+
+    // Разделы для всех найденных резюме одним запросом
+    private void addSections(Connection conn, Collection<Resume> resumes) throws SQLException {
+        if (resumes.isEmpty()) return;
+        Map<String, Resume> byUuid = new HashMap<>();
+        UUID[] uuids = new UUID[resumes.size()];
+        int i = 0;
+        for (Resume r : resumes) {
+            byUuid.put(r.getUuid(), r);
+            uuids[i++] = Uuids.parse(r.getUuid());
+        }
+        try (PreparedStatement st = conn.prepareStatement("SELECT resume_uuid AS uuid, type, \"values\" FROM text_section WHERE resume_uuid = ANY(?) ORDER BY id")) {
+            st.setArray(1, conn.createArrayOf("uuid", uuids));
+            ResultSet rs = st.executeQuery();
+            while (rs.next()) {
+                addSectionValue(rs, byUuid.get(rs.getString("uuid")));
+            }
+        }
+    }
+
+    private List<Resume> readSorted(ResultSet rs) throws SQLException {
+        Map<String, Resume> map = new HashMap<>();
+        while (rs.next()) {
+            String uuid = rs.getString("uuid");
+            Resume resume = map.get(uuid);
+            if (resume == null) {
+                resume = Resume.restore(uuid, rs.getString("full_name"), rs.getString("location"));
+                resume.setVersion(rs.getInt("version"));
+                map.put(uuid, resume);
+            }
+            addContact(rs, resume);
+        }
+        ArrayList<Resume> list = new ArrayList<>(map.values());
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Версия из строки резюме (version и время изменения modified), читается из базы на каждый вызов:
+     * изменение с другого узла или прямо в базе сразу даёт новый ETag
+     */
+    @Override
+    public Version getVersion(final String uuid) {
+        migrate();
+        return Sql.execute("SELECT version, modified FROM resume WHERE uuid=?", new SqlExecutor<Version>() {
+            @Override
+            public Version execute(PreparedStatement st) throws SQLException {
+                setUuid(st, 1, uuid);
+                ResultSet rs = st.executeQuery();
+                if (!rs.next()) return null;
+                int version = rs.getInt(1);
+                return new Version(version, rs.getTimestamp(2).getTime(), version, true);
+            }
+        });
+    }
+
+    /**
+     * Число резюме и сумма их версий меняются при удалении и update, время последнего изменения - при вставке,
+     * поэтому номер вместе со временем меняется при любом изменении списка
+     */
+    @Override
+    public Version getVersion() {
+        migrate();
+        return Sql.execute("SELECT count(*), sum(version), max(modified) FROM resume", new SqlExecutor<Version>() {
+            @Override
+            public Version execute(PreparedStatement st) throws SQLException {
+                ResultSet rs = st.executeQuery();
+                rs.next();
+                Timestamp modified = rs.getTimestamp(3);
+                return new Version((rs.getLong(1) << 32) + rs.getLong(2), modified == null ? 0 : modified.getTime(), 0, true);
+            }
+        });
+    }
+
     @Override
     public int size() {
+        migrate();
         return Sql.execute("SELECT count(*) FROM RESUME", new SqlExecutor<Integer>() {
             @Override
             public Integer execute(PreparedStatement st) throws SQLException {
@@ -150,6 +405,183 @@ public class SqlStorage implements IStorage {
         });
     }
 
+    @Override
+    public void warmUp() {
+        Sql.CONN_FACTORY.warmUp();
+        migrate();
+    }
+
+    // Схема обновляется в warmUp (в фоне при старте) или перед первым запросом, если warmUp не успел
+    // или база была недоступна: инициализация сервлета к базе не обращается
+    private void migrate() {
+        if (!migrated) {
+            synchronized (this) {
+                if (!migrated) {
+                    migrator.migrate();
+                    migrated = true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Resume> search(String query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Resume> list = new ArrayList<>(limit);
+        for (SearchHit hit : search(query, null, limit)) {
+            list.add(hit.getResume());
+        }
+        return list;
+    }
+
+    /**
+     * Поиск по индексу tsvector (GIN) с постраничной выдачей по ключу (rank, uuid).
+     * Резюме в результатах полные, как из load: контакты и разделы страницы читаются двумя запросами.
+     *
+     * @param after последний результат предыдущей страницы, null для первой
+     */
+    public List<SearchHit> search(final String query, final SearchHit after, final int limit) {
+        migrate();
+        final String tsQuery = toPrefixQuery(query);
+        if (tsQuery.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        return Sql.execute(new SqlTransaction<List<SearchHit>>() {
+            @Override
+            public List<SearchHit> execute(Connection conn) throws SQLException {
+                String sql = String.format(SEARCH_SQL, getDialect(conn) == Dialect.H2 ? "ts_rank(r.search_vector, q.query) > 0" : "r.search_vector @@ q.query") +
+                        (after == null ? "" : "WHERE rank < ? OR (rank = ? AND uuid > ?) ") +
+                        "ORDER BY rank DESC, uuid LIMIT ?";
+                Map<String, SearchHit> hits = new LinkedHashMap<>();
+                try (PreparedStatement st = conn.prepareStatement(sql)) {
+                    int i = 1;
+                    st.setString(i++, tsQuery);
+                    st.setString(i++, tsQuery);
+                    if (after != null) {
+                        st.setFloat(i++, after.getRank());
+                        st.setFloat(i++, after.getRank());
+                        setUuid(st, i++, after.getResume().getUuid());
+                    }
+                    st.setInt(i, limit);
+                    ResultSet rs = st.executeQuery();
+                    while (rs.next()) {
+                        String uuid = rs.getString("uuid");
+                        Resume r = Resume.restore(uuid, rs.getString("full_name"), rs.getString("location"));
+                        r.setVersion(rs.getInt("version"));
+                        hits.put(uuid, new SearchHit(r, rs.getFloat("rank")));
+                    }
+                }
+                addContactsAndSections(conn, hits);
+                return new ArrayList<>(hits.values());
+            }
+        });
+    }
+
+    /**
+     * Нечёткий поиск по имени через pg_trgm: оператор % отсекает по порогу сходства,
+     * а сортировка по расстоянию &lt;-&gt; берёт top-k прямо из GiST индекса.
+     * В H2 операторов нет - similarity() считается для каждой строки с тем же порогом.
+     */
+    @Override
+    public List<SearchHit> findSimilarByName(final String name, final int limit) {
+        migrate();
+        if (Util.isEmpty(name) || limit <= 0) {
+            return Collections.emptyList();
+        }
+        return Sql.execute(new SqlTransaction<List<SearchHit>>() {
+            @Override
+            public List<SearchHit> execute(Connection conn) throws SQLException {
+                Map<String, SearchHit> hits = new LinkedHashMap<>();
+                boolean h2 = getDialect(conn) == Dialect.H2;
+                try (PreparedStatement st = conn.prepareStatement(h2 ?
+                        "SELECT uuid, full_name, location, version, sml FROM (" +
+                        "SELECT uuid, full_name, location, version, similarity(full_name, ?) AS sml FROM resume) s " +
+                        "WHERE sml >= " + TrigramIndex.THRESHOLD + " ORDER BY sml DESC, uuid LIMIT ?" :
+                        "SELECT uuid, full_name, location, version, similarity(full_name, ?) AS sml FROM resume " +
+                        "WHERE full_name % ? ORDER BY full_name <-> ?, uuid LIMIT ?")) {
+                    int i = 1;
+                    st.setString(i++, name);
+                    if (!h2) {
+                        st.setString(i++, name);
+                        st.setString(i++, name);
+                    }
+                    st.setInt(i, limit);
+                    ResultSet rs = st.executeQuery();
+                    while (rs.next()) {
+                        String uuid = rs.getString("uuid");
+                        Resume r = Resume.restore(uuid, rs.getString("full_name"), rs.getString("location"));
+                        r.setVersion(rs.getInt("version"));
+                        hits.put(uuid, new SearchHit(r, rs.getFloat("sml")));
+                    }
+                }
+                addContactsAndSections(conn, hits);
+                return new ArrayList<>(hits.values());
+            }
+        });
+    }
+
+    private Dialect getDialect(Connection conn) throws SQLException {
+        Dialect d = dialect;
+        if (d == null) {
+            dialect = d = Dialect.of(conn);
+        }
+        return d;
+    }
+
+    // Контакты и разделы для всей страницы результатов - по запросу на каждые
+    private void addContactsAndSections(Connection conn, Map<String, SearchHit> hits) throws SQLException {
+        if (hits.isEmpty()) return;
+        List<Resume> resumes = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits.values()) resumes.add(hit.getResume());
+        addSections(conn, resumes);
+        try (PreparedStatement st = conn.prepareStatement("SELECT resume_uuid AS uuid, type, value FROM contact WHERE resume_uuid = ANY(?)")) {
+            UUID[] uuids = new UUID[hits.size()];
+            int i = 0;
+            for (String uuid : hits.keySet()) uuids[i++] = Uuids.parse(uuid);
+            st.setArray(1, conn.createArrayOf("uuid", uuids));
+            ResultSet rs = st.executeQuery();
+            while (rs.next()) {
+                addContact(rs, hits.get(rs.getString("uuid")).getResume());
+            }
+        }
+    }
+
+    // Каждый терм ищется как префикс, термы через AND. Tokenizer оставляет только буквы и цифры,
+    // поэтому операторы tsquery в запрос не попадут.
+    private static String toPrefixQuery(String query) {
+        StringBuilder sb = new StringBuilder();
+        for (String term : Tokenizer.tokenize(query)) {
+            if (sb.length() > 0) sb.append(" & ");
+            sb.append(term).append(":*");
+        }
+        return sb.toString();
+    }
+
+    private static void setSearchVector(PreparedStatement st, int index, Resume r) throws SQLException {
+        String contacts = ResumeText.contacts(r);
+        String sections = ResumeText.sections(r);
+        String location = Util.mask(r.getLocation());
+        st.setString(index, r.getFullName());
+        st.setString(index + 1, r.getFullName());
+        st.setString(index + 2, location);
+        st.setString(index + 3, location);
+        st.setString(index + 4, contacts);
+        st.setString(index + 5, sections);
+        st.setString(index + 6, sections);
+    }
+
+    // uuid - родной тип PostgreSQL (16 байт), строка не uuid ни с чем не совпадёт
+    private static void setUuid(PreparedStatement st, int index, String uuid) throws SQLException {
+        UUID value = Uuids.parse(uuid);
+        if (value == null) {
+            st.setNull(index, Types.OTHER);
+        } else {
+            st.setObject(index, value);
+        }
+    }
+
     private void addContact(ResultSet rs, Resume r) throws SQLException {
         String value = rs.getString("value");
         if (!Util.isEmpty(value)) {
@@ -158,19 +590,58 @@ public class SqlStorage implements IStorage {
         }
     }
 
-    private void replaceContact(Connection conn, Resume r) throws SQLException {
-        String uuid = r.getUuid();
+    private static void addSectionValue(ResultSet rs, Resume r) throws SQLException {
+        SectionType type = SectionType.valueOf(rs.getString("type"));
+        Section section = r.getSection(type);
+        if (section == null) {
+            section = type.getSectionClass().create();
+            r.addSection(type, section);
+        }
+        section.add(StringDedup.dedup(rs.getString("values")));
+    }
 
+    private void replaceContact(Connection conn, Resume r) throws SQLException {
         try (PreparedStatement st = conn.prepareStatement("DELETE FROM contact WHERE resume_uuid=?")) {
-            st.setString(1, uuid);
+            setUuid(st, 1, r.getUuid());
             st.execute();
         }
+        insertContacts(conn, Collections.singletonList(r));
+    }
+
+    private void insertContacts(Connection conn, Collection<Resume> resumes) throws SQLException {
         try (PreparedStatement st = conn.prepareStatement("INSERT INTO contact (resume_uuid, type, value) VALUES (?,?,?)")) {
-            for (Map.Entry<ContactType, String> e : r.getContacts().entrySet()) {
-                st.setString(1, uuid);
-                st.setString(2, e.getKey().name());
-                st.setString(3, e.getValue());
-                st.addBatch();
+            for (Resume r : resumes) {
+                for (Map.Entry<ContactType, String> e : r.getContacts().entrySet()) {
+                    setUuid(st, 1, r.getUuid());
+                    st.setString(2, e.getKey().name());
+                    st.setString(3, e.getValue());
+                    st.addBatch();
+                }
+            }
+            st.executeBatch();
+        }
+    }
+
+    private void replaceTextSections(Connection conn, Resume r) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement("DELETE FROM text_section WHERE resume_uuid=?")) {
+            setUuid(st, 1, r.getUuid());
+            st.execute();
+        }
+        insertTextSections(conn, Collections.singletonList(r));
+    }
+
+    private void insertTextSections(Connection conn, Collection<Resume> resumes) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement("INSERT INTO text_section (resume_uuid, type, \"values\") VALUES (?,?,?)")) {
+            for (Resume r : resumes) {
+                for (Map.Entry<SectionType, Section> e : r.getSections().entrySet()) {
+                    if (e.getKey().getSectionClass() != SectionClass.TEXT) continue;
+                    for (Object value : e.getValue().getValues()) {
+                        setUuid(st, 1, r.getUuid());
+                        st.setString(2, e.getKey().name());
+                        st.setString(3, (String) value);
+                        st.addBatch();
+                    }
+                }
             }
             st.executeBatch();
         }
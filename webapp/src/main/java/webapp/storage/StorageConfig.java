@@ -0,0 +1,86 @@
+package webapp.storage;
+
+import webapp.WebAppException;
+import webapp.util.Util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+
+/**
+ * Настройки одного хранилища: свойства с общим префиксом, например
+ * <pre>
+ * storage.type=migrating
+ * storage.old.type=xml
+ * storage.old.dir=./file_storage
+ * storage.new.type=sql
+ * </pre>
+ * Вложенные хранилища (old/new) создаются из своих префиксов той же фабрикой по их type.
+ */
+public class StorageConfig {
+    private static volatile Map<String, StorageFactory> factories;
+
+    private final Properties props;
+    private final String prefix;
+
+    public StorageConfig(Properties props, String prefix) {
+        this.props = props;
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String get(String key) {
+        return props.getProperty(prefix + "." + key);
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = get(key);
+        return Util.isEmpty(value) ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = get(key);
+        return Util.isEmpty(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Свойство вне префикса (общие настройки вроде dir.storage)
+     */
+    public String getGlobal(String key) {
+        return props.getProperty(key);
+    }
+
+    public StorageConfig sub(String key) {
+        return new StorageConfig(props, prefix + "." + key);
+    }
+
+    public IStorage create() {
+        String type = get("type");
+        if (Util.isEmpty(type)) {
+            throw new WebAppException("Property " + prefix + ".type is not set");
+        }
+        StorageFactory factory = getFactories().get(type.trim());
+        if (factory == null) {
+            throw new WebAppException("Unknown " + prefix + ".type=" + type + ", known types: " + getFactories().keySet());
+        }
+        IStorage storage = factory.create(this);
+        // <prefix>.metrics=true - метрики операций под именем префикса (storage.load, storage.old.load...)
+        return Boolean.parseBoolean(get("metrics")) ? new InstrumentedStorage(storage, prefix) : storage;
+    }
+
+    private static Map<String, StorageFactory> getFactories() {
+        Map<String, StorageFactory> result = factories;
+        if (result == null) {
+            result = new HashMap<>();
+            for (StorageFactory factory : ServiceLoader.load(StorageFactory.class, StorageConfig.class.getClassLoader())) {
+                result.put(factory.getType(), factory);
+            }
+            factories = result;
+        }
+        return result;
+    }
+}
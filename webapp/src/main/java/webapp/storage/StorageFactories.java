@@ -0,0 +1,142 @@
+package webapp.storage;
+
+import webapp.sql.SchemaMigrator;
+
+import java.io.File;
+
+/**
+ * Встроенные хранилища. Класс хранилища загружается только при создании,
+ * так что неиспользуемые (драйвер БД, JAXB) не стоят ничего при старте.
+ */
+public final class StorageFactories {
+
+    private StorageFactories() {
+    }
+
+    /**
+     * Перед созданием схема доводится до последней версии (migrate=false - не трогать схему),
+     * baseline - версия схемы, созданной вручную до появления schema_version
+     */
+    public static class Sql implements StorageFactory {
+        @Override
+        public String getType() {
+            return "sql";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            // миграции применит само хранилище: в warmUp или перед первым запросом
+            return new SqlStorage(Boolean.parseBoolean(config.get("migrate", "true"))
+                    ? new SchemaMigrator("db", config.getInt("baseline", 0)) : null);
+        }
+    }
+
+    public static class Xml implements StorageFactory {
+        @Override
+        public String getType() {
+            return "xml";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            return new XmlStorage(dir(config));
+        }
+    }
+
+    public static class DataStream implements StorageFactory {
+        @Override
+        public String getType() {
+            return "data";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            return new DataStreamStorage(dir(config));
+        }
+    }
+
+    public static class Serialize implements StorageFactory {
+        @Override
+        public String getType() {
+            return "ser";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            return new SerializeStorage(dir(config));
+        }
+    }
+
+    public static class Map implements StorageFactory {
+        @Override
+        public String getType() {
+            return "map";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            return new MapStorage();
+        }
+    }
+
+    /**
+     * Резюме вне кучи, slabSize - размер сляба в байтах (степень двойки)
+     */
+    public static class OffHeap implements StorageFactory {
+        @Override
+        public String getType() {
+            return "offheap";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            OffHeapStorage storage = new OffHeapStorage(config.getInt("slabSize", OffHeapStorage.DEFAULT_SLAB_SIZE));
+            storage.registerMetrics(config.getPrefix() + ".offHeap");
+            return storage;
+        }
+    }
+
+    public static class Array implements StorageFactory {
+        @Override
+        public String getType() {
+            return "array";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            return new ArrayStorage();
+        }
+    }
+
+    /**
+     * Переезд: storage.old.* и storage.new.* - настройки старого и нового хранилища,
+     * перенос стартует сразу, если задан backfill.maxPerSecond
+     */
+    public static class Migrating implements StorageFactory {
+        @Override
+        public String getType() {
+            return "migrating";
+        }
+
+        @Override
+        public IStorage create(StorageConfig config) {
+            String checkpoint = config.get("checkpoint");
+            MigratingStorage storage = new MigratingStorage(config.sub("old").create(), config.sub("new").create(),
+                    checkpoint == null ? null : new File(checkpoint));
+            int maxPerSecond = config.getInt("backfill.maxPerSecond", 0);
+            if (maxPerSecond > 0) {
+                storage.startBackfill(config.getInt("backfill.batchSize", 500), maxPerSecond);
+            }
+            return storage;
+        }
+    }
+
+    // Каталог хранилища, по умолчанию общий dir.storage
+    private static String dir(StorageConfig config) {
+        String dir = config.get("dir", config.getGlobal("dir.storage"));
+        if (dir == null) {
+            throw new IllegalArgumentException("Storage directory is not set: neither dir nor dir.storage");
+        }
+        return dir;
+    }
+}
@@ -0,0 +1,16 @@
+package webapp.storage;
+
+/**
+ * Создание хранилища по настройкам из webapp.properties.
+ * Реализации находятся через ServiceLoader (META-INF/services/webapp.storage.StorageFactory),
+ * так что новое хранилище подключается без правки Config.
+ */
+public interface StorageFactory {
+
+    /**
+     * @return значение storage.type, на которое отвечает фабрика
+     */
+    String getType();
+
+    IStorage create(StorageConfig config);
+}
@@ -0,0 +1,79 @@
+package webapp.storage;
+
+/**
+ * Версия резюме (или всего хранилища): номер меняется при каждом изменении.
+ * Используется для ETag/Last-Modified без чтения самого резюме.
+ */
+public class Version {
+    private final long number;
+    private final long lastModified;
+    private final int resumeVersion;
+    private final boolean stored;
+
+    public Version(long number, long lastModified) {
+        this(number, lastModified, 0);
+    }
+
+    public Version(long number, long lastModified, int resumeVersion) {
+        this(number, lastModified, resumeVersion, false);
+    }
+
+    /**
+     * @param stored номер и время взяты из базы, а не из счётчика процесса
+     */
+    public Version(long number, long lastModified, int resumeVersion, boolean stored) {
+        this.number = number;
+        this.lastModified = lastModified;
+        this.resumeVersion = resumeVersion;
+        this.stored = stored;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return {@link webapp.model.Resume#getVersion()} резюме в этой версии, 0 - неизвестна
+     * (версия всего хранилища). По ней If-Match превращается в проверку версии при записи.
+     */
+    public int getResumeVersion() {
+        return resumeVersion;
+    }
+
+    /**
+     * @return true - версия одинакова на всех узлах и после рестарта; false - номер из счётчика в памяти процесса
+     */
+    public boolean isStored() {
+        return stored;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Version version = (Version) o;
+
+        return number == version.number && lastModified == version.lastModified && resumeVersion == version.resumeVersion
+                && stored == version.stored;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(number) + Long.hashCode(lastModified)) + resumeVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "Version{" +
+                "number=" + number +
+                ", lastModified=" + lastModified +
+                ", resumeVersion=" + resumeVersion +
+                ", stored=" + stored +
+                '}';
+    }
+}
@@ -0,0 +1,73 @@
+package webapp.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчик изменений резюме, который ведёт само хранилище.
+ * <p>
+ * Номера берутся из общего счётчика, поэтому у разных версий одного резюме они не повторяются.
+ * Резюме, которое не менялось с момента старта, получает версию при первом запросе.
+ * Счётчик живёт в памяти процесса и после рестарта снова начинается с 1, у разных узлов он свой.
+ * Поэтому сам номер версии не уникален, ETag к нему добавляет метку процесса ({@link webapp.web.HttpCache}).
+ * SqlStorage счётчиком не пользуется: версии общие для узлов и берутся из базы.
+ */
+class VersionTracker {
+    private final AtomicLong counter = new AtomicLong();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    private volatile Version storageVersion = next();
+
+    /**
+     * @param resumeVersion записанная {@link webapp.model.Resume#getVersion()}
+     */
+    Version touch(String uuid, int resumeVersion) {
+        Version v = next(resumeVersion);
+        versions.put(uuid, v);
+        storageVersion = v;
+        return v;
+    }
+
+    void remove(String uuid) {
+        versions.remove(uuid);
+        storageVersion = next();
+    }
+
+    void clear() {
+        versions.clear();
+        storageVersion = next();
+    }
+
+    /**
+     * @param current версия резюме в хранилище (вызывается, только если версия ещё не известна)
+     */
+    Version get(String uuid, Current current) {
+        Version v = versions.get(uuid);
+        if (v == null) {
+            Integer resumeVersion = current.get(uuid);
+            if (resumeVersion != null) {
+                v = versions.computeIfAbsent(uuid, k -> next(resumeVersion));
+            }
+        }
+        return v;
+    }
+
+    Version get() {
+        return storageVersion;
+    }
+
+    interface Current {
+        /**
+         * @return {@link webapp.model.Resume#getVersion()} или null, если резюме нет
+         */
+        Integer get(String uuid);
+    }
+
+    private Version next() {
+        return next(0);
+    }
+
+    private Version next(int resumeVersion) {
+        return new Version(counter.incrementAndGet(), System.currentTimeMillis(), resumeVersion);
+    }
+}
@@ -11,25 +11,30 @@ import java.nio.charset.StandardCharsets;
  * Date: 07.07.2014
  */
 public class XmlStorage extends FileStorage {
-    private JaxbParser xmlParser;
+    // один контекст на все хранилища, создаётся при первом чтении/записи
+    private static final JaxbParser XML_PARSER = new JaxbParser(Resume.class, Organization.class, Link.class,
+            OrganizationSection.class, TextSection.class, Period.class);
 
     public XmlStorage(String path) {
         super(path);
-        xmlParser = new JaxbParser(Resume.class, Organization.class, Link.class,
-                OrganizationSection.class, TextSection.class, Period.class);
+    }
+
+    @Override
+    public void warmUp() {
+        XML_PARSER.warmUp();
     }
 
     @Override
     protected void doWrite(OutputStream os, Resume resume) throws IOException {
         try (Writer w = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
-            xmlParser.marshall(resume, w);
+            XML_PARSER.marshall(resume, w);
         }
     }
 
     @Override
     protected Resume doRead(InputStream is) throws IOException {
         try (Reader r = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-            return xmlParser.unmarshall(r);
+            return XML_PARSER.unmarshall(r);
         }
     }
 }
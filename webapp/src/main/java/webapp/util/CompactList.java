@@ -0,0 +1,183 @@
+package webapp.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Список на кольцевом массиве: индексный доступ, добавление в конец и в начало ({@link #addFirst})
+ * за O(1) без сдвига элементов. Вместо узла на каждый элемент, как в LinkedList, - одна ссылка
+ * в массиве. Создаётся точно по размеру, растёт в 1.5 раза; пустой список массива не держит.
+ */
+public class CompactList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+    static final long serialVersionUID = 1L;
+    private static final Object[] EMPTY = {};
+
+    private transient Object[] elements;
+    private transient int head;
+    private transient int size;
+
+    public CompactList() {
+        elements = EMPTY;
+    }
+
+    @SafeVarargs
+    public CompactList(E... values) {
+        elements = values.length == 0 ? EMPTY : Arrays.copyOf(values, values.length, Object[].class);
+        size = values.length;
+    }
+
+    public CompactList(Collection<? extends E> values) {
+        elements = values.isEmpty() ? EMPTY : values.toArray();
+        size = elements.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, size);
+        return (E) elements[slot(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E value) {
+        checkIndex(index, size);
+        int slot = slot(index);
+        E old = (E) elements[slot];
+        elements[slot] = value;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(E value) {
+        ensureCapacity();
+        elements[slot(size)] = value;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    public void addFirst(E value) {
+        ensureCapacity();
+        head = head == 0 ? elements.length - 1 : head - 1;
+        elements[head] = value;
+        size++;
+        modCount++;
+    }
+
+    // в середину и из середины - со сдвигом к ближнему краю
+    @Override
+    public void add(int index, E value) {
+        checkIndex(index, size + 1);
+        if (index == 0) {
+            addFirst(value);
+            return;
+        }
+        ensureCapacity();
+        for (int i = size; i > index; i--) {
+            elements[slot(i)] = elements[slot(i - 1)];
+        }
+        elements[slot(index)] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index, size);
+        E old = (E) elements[slot(index)];
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[slot(i)] = elements[slot(i - 1)];
+            }
+            elements[head] = null;
+            head = slot(1);
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[slot(i)] = elements[slot(i + 1)];
+            }
+            elements[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        elements = EMPTY;
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = elements[slot(i)];
+        }
+        return result;
+    }
+
+    /**
+     * Отдать лишнюю ёмкость, например после чтения из хранилища
+     */
+    public void trimToSize() {
+        if (elements.length != size) {
+            elements = size == 0 ? EMPTY : toArray();
+            head = 0;
+        }
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < elements.length ? slot : slot - elements.length;
+    }
+
+    private void ensureCapacity() {
+        if (size < elements.length) return;
+        Object[] grown = new Object[size + (size >> 1) + 1];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[slot(i)];
+        }
+        elements = grown;
+        head = 0;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    // пишутся только элементы, без пустой ёмкости
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeObject(elements[slot(i)]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        size = in.readInt();
+        elements = size == 0 ? EMPTY : new Object[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = in.readObject();
+        }
+    }
+}
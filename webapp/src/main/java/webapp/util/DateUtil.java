@@ -1,15 +1,21 @@
 package webapp.util;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 /**
  * User: gkislin
  * Date: 07.07.2014
+ * <p>
+ * Даты периодов - год и месяц, упакованные в int: {@code year * 12 + month} (месяц с 0, как в Calendar).
+ * 0 - дата не задана ("сейчас"). Упакованные даты сравниваются как числа.
  */
 public class DateUtil {
     public static final String NOW = "сейчас";
+    public static final int NONE = 0;
     public static final String[] MONTH = new String[]{
             "", // empty value
             "JANUARY",
@@ -24,37 +30,101 @@ public class DateUtil {
             "OCTOBER",
             "NOVEMBER",
             "DECEMBER"};
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("MM/yyyy");
 
     private DateUtil() {
     }
 
-    public static Date getDate(int year, int month) {
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.YEAR, year);
-        cal.set(Calendar.MONTH, month);
-        return cal.getTime();
+    /**
+     * @param month 0 - январь; как и в Calendar, лишние месяцы переносятся в следующий год
+     */
+    public static int yearMonth(int year, int month) {
+        int yearMonth = year * 12 + month;
+        if (yearMonth < 12 || year > 9999) {
+            throw new IllegalArgumentException("Неверная дата " + year + "/" + (month + 1));
+        }
+        return yearMonth;
     }
 
-    public static String getYear(Date date) {
+    public static int yearMonth(Date date) {
         if (date == null) {
-            return "";
+            return NONE;
         }
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        return String.valueOf(cal.get(Calendar.YEAR));
+        LocalDate local = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return yearMonth(local.getYear(), local.getMonthValue() - 1);
     }
 
-    public static int getMonth(Date date) {
-        if (date == null) {
-            return -1;
+    public static int getYear(int yearMonth) {
+        return yearMonth == NONE ? -1 : yearMonth / 12;
+    }
+
+    /**
+     * @return месяц с 0 или -1, если дата не задана
+     */
+    public static int getMonth(int yearMonth) {
+        return yearMonth == NONE ? -1 : yearMonth % 12;
+    }
+
+    public static String formatYear(int yearMonth) {
+        return yearMonth == NONE ? "" : String.valueOf(yearMonth / 12);
+    }
+
+    /**
+     * Первое число месяца, 00:00; null, если дата не задана
+     */
+    public static Date getDate(int yearMonth) {
+        if (yearMonth == NONE) {
+            return null;
+        }
+        return Date.from(LocalDate.of(yearMonth / 12, yearMonth % 12 + 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    public static Date getDate(int year, int month) {
+        return getDate(yearMonth(year, month));
+    }
+
+    /**
+     * MM/yyyy, без блокировок и общего SimpleDateFormat
+     */
+    public static String format(int yearMonth) {
+        if (yearMonth == NONE) {
+            return NOW;
         }
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        return cal.get(Calendar.MONTH);
+        int month = yearMonth % 12 + 1;
+        return new StringBuilder(7).append(month < 10 ? "0" : "").append(month).append('/').append(yearMonth / 12).toString();
     }
 
-    public static synchronized String format(Date date) {
-        return (date == null) ? NOW : DATE_FORMAT.format(date);
+    /**
+     * yyyy-MM или null, если дата не задана
+     */
+    public static String formatIso(int yearMonth) {
+        if (yearMonth == NONE) {
+            return null;
+        }
+        int month = yearMonth % 12 + 1;
+        return new StringBuilder(7).append(yearMonth / 12).append(month < 10 ? "-0" : "-").append(month).toString();
+    }
+
+    /**
+     * yyyy-MM или null; для XML-файлов до упаковки дат также xsd:dateTime (2005-01-19T11:03:16.123+03:00),
+     * из него берутся год и месяц, как их записал автор файла
+     */
+    public static int parseIso(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        String yearMonth = value;
+        try {
+            if (value.length() > 7 && value.charAt(7) == '-') {
+                DateTimeFormatter.ISO_DATE_TIME.parse(value);
+                yearMonth = value.substring(0, 7);
+            }
+            int dash = yearMonth.indexOf('-');
+            if (dash < 0) throw new NumberFormatException();
+            int month = Integer.parseInt(yearMonth.substring(dash + 1));
+            if (month < 1 || month > 12) throw new NumberFormatException();
+            return yearMonth(Integer.parseInt(yearMonth.substring(0, dash)), month - 1);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Date '" + value + "' must be yyyy-MM");
+        }
     }
 }
@@ -0,0 +1,18 @@
+package webapp.util;
+
+import jakarta.xml.bind.annotation.adapters.XmlAdapter;
+
+/**
+ * Повторяющиеся строки из XML - через общую {@link StringDedup}
+ */
+public class DedupAdapter extends XmlAdapter<String, String> {
+    @Override
+    public String unmarshal(String value) {
+        return StringDedup.dedup(value);
+    }
+
+    @Override
+    public String marshal(String value) {
+        return value;
+    }
+}
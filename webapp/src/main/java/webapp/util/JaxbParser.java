@@ -6,37 +6,31 @@ import webapp.WebAppException;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
 import java.io.Reader;
 import java.io.Writer;
 
 /**
  * User: gkislin
  * Date: 30.10.13
+ * <p>
+ * JAXBContext потокобезопасен, Marshaller/Unmarshaller - нет: создаются на каждый вызов.
+ * Контекст строится при первом разборе (это сотни миллисекунд) или заранее через {@link #warmUp()}.
  */
 public class JaxbParser {
-    private final Marshaller marshaller;
-    private final Unmarshaller unmarshaller;
+    private final Class[] classesToBeBound;
+    private volatile JAXBContext ctx;
 
     public JaxbParser(Class... classesToBeBound) {
-        try {
-            JAXBContext ctx = JAXBContext.newInstance(classesToBeBound);
-
-            marshaller = ctx.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
-//            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
-
-            unmarshaller = ctx.createUnmarshaller();
+        this.classesToBeBound = classesToBeBound;
+    }
 
-        } catch (JAXBException e) {
-            throw new WebAppException("Jaxb init failed", e);
-        }
+    public void warmUp() {
+        getContext();
     }
 
     public <T> T unmarshall(Reader reader) {
         try {
-            return (T) unmarshaller.unmarshal(reader);
+            return (T) getContext().createUnmarshaller().unmarshal(reader);
         } catch (JAXBException e) {
             throw new WebAppException("Jaxb unmarshall failed", e);
         }
@@ -44,9 +38,30 @@ public class JaxbParser {
 
     public void marshall(Object instance, Writer writer) {
         try {
+            Marshaller marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+//            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
             marshaller.marshal(instance, writer);
         } catch (JAXBException e) {
             throw new WebAppException("Jaxb marshal failed", e);
         }
     }
+
+    private JAXBContext getContext() {
+        JAXBContext result = ctx;
+        if (result == null) {
+            synchronized (this) {
+                result = ctx;
+                if (result == null) {
+                    try {
+                        ctx = result = JAXBContext.newInstance(classesToBeBound);
+                    } catch (JAXBException e) {
+                        throw new WebAppException("Jaxb init failed", e);
+                    }
+                }
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,302 @@
+package webapp.util;
+
+import webapp.WebAppException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Потоковое чтение JSON: значения читаются по одному, без построения дерева,
+ * так что массив любой длины можно разбирать поэлементно.
+ * Синтаксис проверяется строго (запятые, скобки, escape, числа), вложенность ограничена {@link #MAX_DEPTH}.
+ */
+public class JsonReader {
+    public enum Token {BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END}
+
+    public static final int MAX_DEPTH = 256;
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+    private static final Pattern INTEGER = Pattern.compile("-?(0|[1-9][0-9]*)");
+
+    private final Reader in;
+    private int peeked = -2;
+    // внутри объекта ожидается имя поля
+    private boolean[] inObject = new boolean[16];
+    private boolean[] expectName = new boolean[16];
+    // на уровне уже прочитан элемент, перед следующим нужна запятая
+    private boolean[] hasElement = new boolean[16];
+    private int depth;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    public Token peek() throws IOException {
+        int c = next();
+        switch (c) {
+            case -1:
+                return Token.END;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                return inObject[depth] && expectName[depth] ? Token.NAME : Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                return Token.NUMBER;
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END;
+    }
+
+    public void beginObject() throws IOException {
+        expect('{');
+        push(true);
+    }
+
+    public void endObject() throws IOException {
+        expect('}');
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+        push(false);
+    }
+
+    public void endArray() throws IOException {
+        expect(']');
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        if (peek() != Token.NAME) throw error("Name expected");
+        String name = readString();
+        if (skipWhitespace() != ':') throw error("':' expected");
+        read();
+        expectName[depth] = false;
+        return name;
+    }
+
+    /**
+     * @return строка или null для null
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        if (token != Token.STRING) throw error("String expected");
+        String value = readString();
+        valueRead();
+        return value;
+    }
+
+    public long nextLong() throws IOException {
+        if (peek() != Token.NUMBER) throw error("Number expected");
+        String literal = readLiteral();
+        if (!INTEGER.matcher(literal).matches()) throw error("Integer expected: " + literal);
+        valueRead();
+        try {
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            throw error("Integer is too large: " + literal);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value != (int) value) throw error("Integer is too large: " + value);
+        return (int) value;
+    }
+
+    public void nextNull() throws IOException {
+        if (!"null".equals(readLiteral())) throw error("null expected");
+        valueRead();
+    }
+
+    public void skipValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) skipValue();
+                endArray();
+                break;
+            case STRING:
+                readString();
+                valueRead();
+                break;
+            case NAME:
+            case END_OBJECT:
+            case END_ARRAY:
+            case END:
+                throw error("Value expected");
+            default:
+                String literal = readLiteral();
+                if (!"true".equals(literal) && !"false".equals(literal) && !"null".equals(literal)
+                        && !NUMBER.matcher(literal).matches()) {
+                    throw error("Unexpected " + (literal.isEmpty() ? "'" + (char) peekChar() + "'" : literal));
+                }
+                valueRead();
+        }
+    }
+
+    private void push(boolean object) {
+        if (depth == MAX_DEPTH) throw error("Nesting is deeper than " + MAX_DEPTH);
+        if (++depth == inObject.length) {
+            inObject = Arrays.copyOf(inObject, depth * 2);
+            expectName = Arrays.copyOf(expectName, depth * 2);
+            hasElement = Arrays.copyOf(hasElement, depth * 2);
+        }
+        inObject[depth] = object;
+        expectName[depth] = object;
+        hasElement[depth] = false;
+    }
+
+    private void valueRead() {
+        if (inObject[depth]) expectName[depth] = true;
+        hasElement[depth] = true;
+    }
+
+    private void expect(char c) throws IOException {
+        if (next() != c) throw error("'" + c + "' expected");
+        if (c == '}' || c == ']') {
+            if (depth == 0 || inObject[depth] != (c == '}')) throw error("Unexpected '" + c + "'");
+            read();
+            // закрытый объект/массив - значение для внешнего уровня
+            depth--;
+            valueRead();
+            depth++;
+        } else {
+            read();
+        }
+    }
+
+    /**
+     * Следующий значащий символ без чтения; запятая между элементами пропускается,
+     * лишняя или недостающая - ошибка
+     */
+    private int next() throws IOException {
+        int c = skipWhitespace();
+        if (c == ',') {
+            if (!hasElement[depth] || depth == 0) throw error("Unexpected ','");
+            read();
+            hasElement[depth] = false;
+            c = skipWhitespace();
+            if (c == ',' || c == '}' || c == ']' || c == -1) throw error("Value expected after ','");
+        } else if (hasElement[depth] && c != '}' && c != ']' && c != -1) {
+            throw error("',' expected");
+        }
+        return c;
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = peekChar();
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                read();
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        read(); // "
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) throw error("Unterminated string");
+            if (c == '"') return sb.toString();
+            if (c < 0x20) throw error("Unescaped control character in string");
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append((char) c);
+                        break;
+                    case 'u':
+                        // суррогатные пары приходят двумя escape подряд и склеиваются сами
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = hexDigit(read());
+                            if (digit < 0) throw error("Bad \\u escape");
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                        break;
+                    case -1:
+                        throw error("Unterminated string");
+                    default:
+                        throw error("Bad escape \\" + (char) c);
+                }
+            } else {
+                sb.append((char) c);
+            }
+        }
+    }
+
+    private String readLiteral() throws IOException {
+        next();
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = peekChar();
+            if (c == -1 || c == ',' || c == ':' || c == '"' || c == '{' || c == '}' || c == '[' || c == ']'
+                    || c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                return sb.toString();
+            }
+            sb.append((char) read());
+        }
+    }
+
+    private static int hexDigit(int c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private int peekChar() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peekChar();
+        peeked = -2;
+        return c;
+    }
+
+    private WebAppException error(String message) {
+        return new WebAppException("Invalid JSON: " + message);
+    }
+}
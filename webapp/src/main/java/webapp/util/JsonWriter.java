@@ -0,0 +1,131 @@
+package webapp.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Потоковая запись JSON прямо в Writer, без построения дерева в памяти.
+ * Запятые между элементами расставляются автоматически.
+ */
+public class JsonWriter {
+    private final Writer out;
+    // для каждого уровня вложенности: был ли уже элемент (нужна ли запятая)
+    private boolean[] hasElement = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        separator();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separator();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        separator();
+        out.write("null");
+        return this;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private JsonWriter open(char c) throws IOException {
+        separator();
+        out.write(c);
+        if (++depth == hasElement.length) {
+            hasElement = Arrays.copyOf(hasElement, depth * 2);
+        }
+        hasElement[depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        depth--;
+        out.write(c);
+        return this;
+    }
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasElement[depth]) {
+            out.write(',');
+        }
+        hasElement[depth] = true;
+    }
+
+    private static boolean paired(String s, int i) {
+        return Character.isHighSurrogate(s.charAt(i))
+                ? i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))
+                : i > 0 && Character.isHighSurrogate(s.charAt(i - 1));
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029' || Character.isSurrogate(c) && !paired(s, i)) {
+                // одиночный суррогат не переживёт кодирование в UTF-8, escape сохраняет его как есть
+                escape = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            out.write(s, start, i - start);
+            out.write(escape);
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+}
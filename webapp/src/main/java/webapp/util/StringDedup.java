@@ -0,0 +1,114 @@
+package webapp.util;
+
+import webapp.metrics.Counter;
+import webapp.metrics.Metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченная таблица одинаковых строк, которые декодеры читают тысячами копий:
+ * организации, ссылки, должности, города. Таблица с прямой адресацией: строка с тем же хэшем
+ * вытесняет прежнюю, поэтому памяти не больше size ссылок, а блокировок нет совсем.
+ * Длинные строки (описания) не кладутся - повторяются они редко.
+ * <p>
+ * Общая таблица ({@link #dedup}) выключена, пока её не включит {@link #configure}
+ * (dedup.size в webapp.properties).
+ */
+public class StringDedup {
+    public static final int DEFAULT_MAX_LENGTH = 256;
+    // заголовок String и массива символов, оценка
+    private static final int STRING_OVERHEAD = 40;
+
+    private static volatile StringDedup shared;
+
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+    private final int maxLength;
+    private final Counter hits;
+    private final Counter misses;
+    private final LongAdder retainedBytes = new LongAdder();
+
+    /**
+     * @param size число ячеек, округляется вверх до степени двойки
+     */
+    public StringDedup(int size, int maxLength) {
+        this(size, maxLength, new Counter(), new Counter());
+    }
+
+    private StringDedup(int size, int maxLength, Counter hits, Counter misses) {
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.maxLength = maxLength;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Общая таблица для декодеров хранилищ
+     *
+     * @param size 0 - выключить
+     */
+    public static synchronized void configure(int size) {
+        if (size <= 0) {
+            shared = null;
+            return;
+        }
+        StringDedup dedup = new StringDedup(size, DEFAULT_MAX_LENGTH, Metrics.counter("dedup.hits"), Metrics.counter("dedup.misses"));
+        Metrics.gauge("dedup.retainedBytes", dedup::getRetainedBytes);
+        Metrics.gauge("dedup.hitRatePercent", dedup::getHitRatePercent);
+        shared = dedup;
+    }
+
+    /**
+     * Та же строка из общей таблицы или сама str, если таблица выключена
+     */
+    public static String dedup(String str) {
+        StringDedup dedup = shared;
+        return dedup == null ? str : dedup.intern(str);
+    }
+
+    public String intern(String str) {
+        if (str == null || str.length() > maxLength) {
+            return str;
+        }
+        int hash = str.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = table.get(slot);
+        if (cached != null && cached.equals(str)) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        // гонка двух записей безопасна: проиграет одна копия, оценка размера сойдётся
+        String old = table.getAndSet(slot, str);
+        retainedBytes.add(bytes(str) - (old == null ? 0 : bytes(old)));
+        return str;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getHitRatePercent() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : h * 100 / total;
+    }
+
+    /**
+     * Оценка памяти под строки таблицы (без самой таблицы)
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.sum();
+    }
+
+    private static long bytes(String str) {
+        return STRING_OVERHEAD + 2L * str.length();
+    }
+}
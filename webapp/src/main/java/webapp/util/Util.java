@@ -17,4 +17,34 @@ public class Util {
         return str == null || str.trim().length() == 0;
     }
 
+    /**
+     * Убрать эмодзи. Если убирать нечего, возвращается та же строка без копирования.
+     */
+    public static String stripEmoji(String str) {
+        int length = str.length();
+        int i = 0;
+        while (i < length) {
+            int cp = str.codePointAt(i);
+            if (isEmoji(cp)) break;
+            i += Character.charCount(cp);
+        }
+        if (i == length) {
+            return str;
+        }
+        StringBuilder sb = new StringBuilder(length).append(str, 0, i);
+        while (i < length) {
+            int cp = str.codePointAt(i);
+            if (!isEmoji(cp)) sb.appendCodePoint(cp);
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    // Miscellaneous Symbols, Dingbats и блоки эмодзи U+1F300..U+1FAFF (кроме U+1F650..U+1F67F)
+    private static boolean isEmoji(int cp) {
+        if (cp < 0x2600) return false;
+        if (cp <= 0x27BF) return true;
+        return cp >= 0x1F300 && cp <= 0x1FAFF && (cp <= 0x1F64F || cp >= 0x1F680);
+    }
+
 }
@@ -0,0 +1,62 @@
+package webapp.util;
+
+import webapp.WebAppException;
+
+import java.util.UUID;
+
+/**
+ * uuid резюме как два long ({@link UUID}) вместо строки из 36 символов.
+ * Строки переводятся только на границе: web, JSON, имена файлов.
+ */
+public class Uuids {
+    private Uuids() {
+    }
+
+    /**
+     * Строгий разбор канонической формы xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx, без исключений
+     *
+     * @return null, если строка не uuid: такого резюме просто нет
+     */
+    public static UUID parse(String str) {
+        if (str == null || str.length() != 36
+                || str.charAt(8) != '-' || str.charAt(13) != '-' || str.charAt(18) != '-' || str.charAt(23) != '-') {
+            return null;
+        }
+        long msb = 0;
+        long lsb = 0;
+        int digits = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) continue;
+            int digit = hexDigit(str.charAt(i));
+            if (digit < 0) return null;
+            if (digits++ < 16) {
+                msb = msb << 4 | digit;
+            } else {
+                lsb = lsb << 4 | digit;
+            }
+        }
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * uuid нового резюме: только каноническая форма в нижнем регистре, как у {@link UUID#toString()}.
+     * Так все хранилища возвращают ту же строку, что была сохранена.
+     *
+     * @throws WebAppException если строка не uuid или не в нижнем регистре
+     */
+    public static UUID check(String str) {
+        UUID uuid = parse(str);
+        if (uuid == null || !uuid.toString().equals(str)) {
+            throw new WebAppException("Invalid uuid '" + str + "'", str);
+        }
+        return uuid;
+    }
+
+    // только ASCII: Character.digit принимает и цифры других алфавитов, например арабские и полноширинные
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+}
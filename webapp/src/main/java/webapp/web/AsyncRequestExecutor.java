@@ -0,0 +1,308 @@
+package webapp.web;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import webapp.metrics.Metrics;
+import webapp.sql.QueryTrace;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Выполнение запросов сервлета в асинхронном режиме на виртуальных потоках.
+ * <p>
+ * Поток контейнера только вызывает {@code startAsync} и сразу освобождается,
+ * работа с хранилищем (блокирующие JDBC и файловые вызовы) идёт в виртуальном потоке.
+ * Число одновременно обрабатываемых запросов ограничено {@code maxInFlight}:
+ * остальные ждут разрешения (дёшево для виртуального потока), а если не дождались
+ * за половину {@code timeoutMillis} - получают 503. Запрос, не завершённый за {@code timeoutMillis},
+ * завершается по таймауту контейнера тоже с 503. Ответ завершается ровно один раз: обработчиком,
+ * ошибкой или таймаутом - кто первый. Вид ответа с ошибкой выбирает {@link ErrorHandler}.
+ */
+public class AsyncRequestExecutor {
+    public static final String CONTEXT_ATTRIBUTE = AsyncRequestExecutor.class.getName();
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncRequestExecutor.class.getName());
+
+    /**
+     * Обработчик запроса: возвращает путь JSP для dispatch или null, если ответ уже сформирован
+     */
+    public interface Handler {
+        String handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+
+    /**
+     * Ответ с ошибкой: как и {@link Handler}, возвращает путь JSP или null, если ответ уже сформирован
+     *
+     * @param e исключение обработчика, null - отказ по занятости или таймаут
+     */
+    public interface ErrorHandler {
+        String error(HttpServletRequest request, HttpServletResponse response, int status, Exception e) throws IOException;
+    }
+
+    /**
+     * HTML: исключение - на /error.jsp, отказ и таймаут - стандартной страницей контейнера
+     */
+    public static final ErrorHandler ERROR_PAGE = (request, response, status, e) -> {
+        if (e != null) {
+            request.setAttribute(RequestDispatcher.ERROR_EXCEPTION, e);
+            return "/error.jsp";
+        }
+        if (!response.isCommitted()) {
+            response.sendError(status, status == HttpServletResponse.SC_SERVICE_UNAVAILABLE ? "Server is busy" : null);
+        }
+        return null;
+    };
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final long queueTimeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    public AsyncRequestExecutor(int maxInFlight, long timeoutMillis) {
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        // на обработку после очереди остаётся вторая половина таймаута
+        this.queueTimeoutMillis = timeoutMillis / 2;
+        this.permits = new Semaphore(maxInFlight, true);
+    }
+
+    public void execute(HttpServletRequest request, HttpServletResponse response, Handler handler) {
+        execute(request, response, handler, ERROR_PAGE);
+    }
+
+    public void execute(HttpServletRequest request, HttpServletResponse response, Handler handler, ErrorHandler errorHandler) {
+        final AsyncContext ctx = request.startAsync(request, response);
+        ctx.setTimeout(timeoutMillis);
+        final Completion completion = new Completion(ctx, request, response, errorHandler);
+        ctx.addListener(completion);
+        final long submitTime = System.nanoTime();
+        // трасса SQL запросов продолжается в виртуальном потоке
+        final QueryTrace trace = QueryTrace.current();
+        submitted.increment();
+        executor.execute(() -> {
+            QueryTrace.attach(trace);
+            try {
+                run(completion, request, response, handler, submitTime);
+            } finally {
+                QueryTrace.detach();
+            }
+        });
+    }
+
+    private void run(Completion completion, HttpServletRequest request, HttpServletResponse response,
+                     Handler handler, long submitTime) {
+        boolean acquired = false;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            recordQueueTime(System.nanoTime() - submitTime);
+            if (!acquired) {
+                rejected.increment();
+                completion.error(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+                return;
+            }
+            inFlight.incrementAndGet();
+            try {
+                if (completion.finish(handler.handle(request, response))) {
+                    completed.increment();
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        } catch (Exception e) {
+            failed.increment();
+            LOGGER.log(Level.WARNING, "Async request failed", e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            completion.error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Единственное завершение асинхронного запроса: после таймаута контейнера
+     * обработчик уже не трогает контекст, и наоборот
+     */
+    private class Completion implements AsyncListener {
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final AsyncContext ctx;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final ErrorHandler errorHandler;
+
+        Completion(AsyncContext ctx, HttpServletRequest request, HttpServletResponse response, ErrorHandler errorHandler) {
+            this.ctx = ctx;
+            this.request = request;
+            this.response = response;
+            this.errorHandler = errorHandler;
+        }
+
+        /**
+         * @return false, если запрос уже завершён таймаутом или ошибкой контейнера
+         */
+        boolean finish(String path) {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            end(path);
+            return true;
+        }
+
+        void error(int status, Exception e) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            String path = null;
+            try {
+                path = errorHandler.error(request, response, status, e);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Couldn't send error response", ex);
+            }
+            end(path);
+        }
+
+        private void end(String path) {
+            if (path == null) {
+                ctx.complete();
+            } else {
+                ctx.dispatch(path);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (done.get()) {
+                return;
+            }
+            timedOut.increment();
+            LOGGER.warning("Async request timed out after " + timeoutMillis + " ms: " + request.getRequestURI());
+            error(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            done.set(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private void recordQueueTime(long nanos) {
+        totalQueueNanos.addAndGet(nanos);
+        maxQueueNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void registerMetrics(String name) {
+        Metrics.gauge(name + ".inFlight", this::getInFlight);
+        Metrics.gauge(name + ".queued", this::getQueued);
+        Metrics.gauge(name + ".submitted", this::getSubmitted);
+        Metrics.gauge(name + ".completed", this::getCompleted);
+        Metrics.gauge(name + ".rejected", this::getRejected);
+        Metrics.gauge(name + ".failed", this::getFailed);
+        Metrics.gauge(name + ".timedOut", this::getTimedOut);
+        Metrics.gauge(name + ".maxQueueMillis", () -> maxQueueNanos.get() / 1_000_000);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return permits.getQueueLength();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    public double getAvgQueueMillis() {
+        long count = submitted.sum();
+        return count == 0 ? 0 : totalQueueNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxQueueMillis() {
+        return maxQueueNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncRequestExecutor{" +
+                "maxInFlight=" + maxInFlight +
+                ", inFlight=" + getInFlight() +
+                ", queued=" + getQueued() +
+                ", submitted=" + getSubmitted() +
+                ", completed=" + getCompleted() +
+                ", rejected=" + getRejected() +
+                ", failed=" + getFailed() +
+                ", timedOut=" + getTimedOut() +
+                ", avgQueueMillis=" + getAvgQueueMillis() +
+                ", maxQueueMillis=" + getMaxQueueMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,39 @@
+package webapp.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Пул Deflater без zlib заголовка (для gzip потока).
+ * Deflater держит нативную память, поэтому не создаём его на каждый ответ,
+ * а лишние при возврате в полный пул освобождаем сразу через end().
+ */
+class DeflaterPool {
+    private final BlockingQueue<Deflater> pool;
+    private final int level;
+
+    DeflaterPool(int size, int level) {
+        this.pool = new ArrayBlockingQueue<>(size);
+        this.level = level;
+    }
+
+    Deflater acquire() {
+        Deflater deflater = pool.poll();
+        return deflater == null ? new Deflater(level, true) : deflater;
+    }
+
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (!pool.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    void close() {
+        Deflater deflater;
+        while ((deflater = pool.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
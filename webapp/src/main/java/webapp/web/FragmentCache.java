@@ -0,0 +1,95 @@
+package webapp.web;
+
+import webapp.metrics.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Кэш готовых HTML фрагментов в UTF-8, по одному на резюме.
+ * <p>
+ * Фрагмент хранится вместе с версией резюме, из которой он построен: запрос с другой версией
+ * перестраивает фрагмент, так что устаревший никогда не отдаётся. При записи в хранилище
+ * фрагмент дополнительно удаляется через {@link #invalidate}. Самые давно не запрошенные
+ * фрагменты вытесняются, когда их больше maxSize.
+ */
+public class FragmentCache {
+
+    private static class Entry {
+        final long version;
+        final byte[] bytes;
+
+        Entry(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Map<String, Entry> map;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FragmentCache(final int maxSize) {
+        map = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public byte[] get(String uuid, long version, Supplier<byte[]> renderer) {
+        Entry entry;
+        synchronized (map) {
+            entry = map.get(uuid);
+        }
+        if (entry != null && entry.version == version) {
+            hits.increment();
+            return entry.bytes;
+        }
+        misses.increment();
+        // рендерим вне блокировки: два одновременных промаха просто построят фрагмент дважды
+        byte[] bytes = renderer.get();
+        synchronized (map) {
+            map.put(uuid, new Entry(version, bytes));
+        }
+        return bytes;
+    }
+
+    public void invalidate(String uuid) {
+        synchronized (map) {
+            map.remove(uuid);
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Размер, попадания и промахи в метриках name.size, name.hits, name.misses
+     */
+    public void registerMetrics(String name) {
+        Metrics.gauge(name + ".size", this::size);
+        Metrics.gauge(name + ".hits", this::getHits);
+        Metrics.gauge(name + ".misses", this::getMisses);
+    }
+}
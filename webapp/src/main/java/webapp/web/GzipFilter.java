@@ -0,0 +1,521 @@
+package webapp.web;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import webapp.metrics.Counter;
+import webapp.metrics.Metrics;
+import webapp.util.Util;
+
+import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Сжатие ответов gzip.
+ * <p>
+ * Статика: если рядом с файлом лежит заранее сжатый {@code <файл>.gz} (см. {@link Precompressor})
+ * и клиент принимает gzip, отдаётся он без сжатия на лету: с Content-Length, ETag/Last-Modified
+ * и ответом 304 на условный запрос. Запросы с Range уходят контейнеру, он отдаёт части несжатого файла.
+ * <p>
+ * Динамика: первые {@code gzip.minSize} байт ответа копятся в буфере; если ответ так и не дорос
+ * до порога, он уходит как есть. Иначе текстовые ответы сжимаются Deflater из пула.
+ * Для асинхронных запросов поток дописывается в {@link AsyncListener#onComplete}.
+ */
+public class GzipFilter implements Filter {
+    private static final Set<String> COMPRESSIBLE = new HashSet<>(Arrays.asList(
+            "text/html", "text/plain", "text/css", "text/xml", "text/javascript",
+            "application/javascript", "application/json", "application/xml", "image/svg+xml"));
+
+    private static final Counter COMPRESSED = Metrics.counter("gzip.compressed");
+    private static final Counter PRECOMPRESSED = Metrics.counter("gzip.precompressed");
+    private static final Counter UNCOMPRESSED = Metrics.counter("gzip.uncompressed");
+    private static final Counter BYTES_IN = Metrics.counter("gzip.bytesIn");
+    private static final Counter BYTES_OUT = Metrics.counter("gzip.bytesOut");
+
+    private DeflaterPool deflaters;
+    private int minSize;
+    private Set<String> staticExtensions;
+    private ServletContext context;
+    // сжатый вариант пути или MISSING, чтобы не искать ресурс на каждый запрос;
+    // статика в собранном приложении не меняется, поэтому размер и дата кешируются вместе с ним
+    private final ConcurrentMap<String, Precompressed> precompressed = new ConcurrentHashMap<>();
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        context = config.getServletContext();
+        int level = getIntParameter(config, "gzip.level", Deflater.DEFAULT_COMPRESSION);
+        deflaters = new DeflaterPool(getIntParameter(config, "gzip.poolSize", 32), level);
+        minSize = getIntParameter(config, "gzip.minSize", 1024);
+        String extensions = config.getInitParameter("gzip.static.extensions");
+        staticExtensions = new HashSet<>(Arrays.asList(
+                (Util.isEmpty(extensions) ? "css,js,html,svg,txt" : extensions).split("\\s*,\\s*")));
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) resp;
+        response.addHeader("Vary", "Accept-Encoding");
+        if (!acceptsGzip(request) || "HEAD".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String path = request.getServletPath() + (request.getPathInfo() == null ? "" : request.getPathInfo());
+        if ("GET".equals(request.getMethod()) && request.getHeader("Range") == null
+                && servePrecompressed(path, request, response)) {
+            return;
+        }
+
+        final GzipResponse gzipResponse = new GzipResponse(response);
+        boolean done = false;
+        try {
+            chain.doFilter(request, gzipResponse);
+            done = true;
+        } finally {
+            if (!done) {
+                gzipResponse.abort();
+            }
+        }
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) throws IOException {
+                    gzipResponse.finish();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    gzipResponse.abort();
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            gzipResponse.finish();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        deflaters.close();
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders("Accept-Encoding");
+        while (headers != null && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.trim().split("\\s*;\\s*");
+                if ("gzip".equalsIgnoreCase(parts[0]) || "*".equals(parts[0])) {
+                    return parts.length == 1 || !parts[1].matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean servePrecompressed(String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || !staticExtensions.contains(path.substring(dot + 1))) {
+            return false;
+        }
+        Precompressed gz = precompressed.get(path);
+        if (gz == null) {
+            gz = Precompressed.find(context, path + ".gz");
+            precompressed.put(path, gz);
+        }
+        if (gz == Precompressed.MISSING) {
+            return false;
+        }
+        try (InputStream in = context.getResourceAsStream(gz.path)) {
+            if (in == null) {
+                precompressed.remove(path);
+                return false;
+            }
+            String mimeType = context.getMimeType(path);
+            if (mimeType != null) {
+                response.setContentType(mimeType);
+            }
+            response.setHeader("Content-Encoding", "gzip");
+            PRECOMPRESSED.increment();
+            if (HttpCache.notModified(request, response, gz.etag, gz.lastModified)) {
+                return true;
+            }
+            response.setContentLengthLong(gz.length);
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return true;
+    }
+
+    private static int getIntParameter(FilterConfig config, String name, int defaultValue) {
+        String value = config.getInitParameter(name);
+        return Util.isEmpty(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+        return COMPRESSIBLE.contains(mimeType);
+    }
+
+    private enum State {BUFFERING, COMPRESSING, PASSTHROUGH}
+
+    /**
+     * Ответ, решающий по первым minSize байтам, сжимать ли тело
+     */
+    private class GzipResponse extends HttpServletResponseWrapper {
+        private State state = State.BUFFERING;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(minSize);
+        private OutputStream raw;
+        private GzipStream gzip;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+        private boolean finished;
+
+        GzipResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) throw new IllegalStateException("getWriter() has already been called");
+            if (stream == null) stream = new Stream();
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) throw new IllegalStateException("getOutputStream() has already been called");
+                stream = new Stream();
+                writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            // маленькое тело известной длины сжимать незачем
+            if (state == State.BUFFERING && len >= 0 && len < minSize) {
+                passThrough();
+            }
+            if (state == State.PASSTHROUGH) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (isContentLength(name)) {
+                if (value != null) setContentLengthLong(Long.parseLong(value));
+            } else {
+                checkEncoding(name);
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (isContentLength(name)) {
+                if (value != null) setContentLengthLong(Long.parseLong(value));
+            } else {
+                checkEncoding(name);
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            discard();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            discard();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            discard();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) writer.flush();
+            if (state == State.COMPRESSING) {
+                gzip.flush();
+            } else if (state == State.PASSTHROUGH) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (state == State.BUFFERING) buffer.reset();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (state == State.BUFFERING) buffer.reset();
+        }
+
+        private boolean isContentLength(String name) {
+            return "Content-Length".equalsIgnoreCase(name);
+        }
+
+        private void checkEncoding(String name) {
+            // ответ уже закодирован кем-то другим
+            if ("Content-Encoding".equalsIgnoreCase(name) && state == State.BUFFERING) {
+                passThrough();
+            }
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            switch (state) {
+                case BUFFERING:
+                    buffer.write(b, off, len);
+                    if (buffer.size() >= minSize) {
+                        if (isCompressible(getContentType()) && getStatus() == HttpServletResponse.SC_OK) {
+                            startCompressing();
+                        } else {
+                            passThrough();
+                        }
+                    }
+                    break;
+                case COMPRESSING:
+                    gzip.write(b, off, len);
+                    break;
+                default:
+                    raw.write(b, off, len);
+            }
+        }
+
+        private void startCompressing() throws IOException {
+            state = State.COMPRESSING;
+            super.setHeader("Content-Encoding", "gzip");
+            gzip = new GzipStream(super.getOutputStream(), deflaters);
+            gzip.write(buffer.toByteArray(), 0, buffer.size());
+            buffer = null;
+        }
+
+        private void passThrough() {
+            try {
+                state = State.PASSTHROUGH;
+                raw = super.getOutputStream();
+                if (buffer.size() > 0) {
+                    buffer.writeTo(raw);
+                }
+                buffer = null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void discard() {
+            if (state == State.BUFFERING) {
+                buffer.reset();
+                passThrough();
+            }
+        }
+
+        void finish() throws IOException {
+            if (finished) return;
+            finished = true;
+            if (writer != null) writer.flush();
+            switch (state) {
+                case BUFFERING:
+                    // тело меньше порога - отдаём как есть
+                    if (buffer.size() > 0) {
+                        super.setContentLength(buffer.size());
+                    }
+                    passThrough();
+                    UNCOMPRESSED.increment();
+                    break;
+                case COMPRESSING:
+                    gzip.finish();
+                    COMPRESSED.increment();
+                    BYTES_IN.add(gzip.size);
+                    BYTES_OUT.add(gzip.compressedSize);
+                    break;
+                default:
+                    UNCOMPRESSED.increment();
+            }
+        }
+
+        void abort() {
+            finished = true;
+            if (gzip != null) gzip.release();
+        }
+
+        private class Stream extends ServletOutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                GzipResponse.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                GzipResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (state == State.COMPRESSING) {
+                    gzip.flush();
+                } else if (state == State.PASSTHROUGH) {
+                    raw.flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException("Non-blocking output is not supported with gzip");
+            }
+        }
+    }
+
+    /**
+     * Заранее сжатый файл: размер и дата для заголовков ответа
+     */
+    static class Precompressed {
+        static final Precompressed MISSING = new Precompressed(null, -1, 0);
+
+        final String path;
+        final long length;
+        final long lastModified;
+        final String etag;
+
+        Precompressed(String path, long length, long lastModified) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            // свой ETag, отличный от ETag несжатого файла у контейнера
+            this.etag = "\"gz-" + length + "-" + lastModified + "\"";
+        }
+
+        static Precompressed find(ServletContext context, String path) {
+            try {
+                URL url = context.getResource(path);
+                if (url == null) {
+                    return MISSING;
+                }
+                URLConnection conn = url.openConnection();
+                try (InputStream ignored = conn.getInputStream()) {
+                    long length = conn.getContentLengthLong();
+                    return length < 0 ? MISSING : new Precompressed(path, length, conn.getLastModified());
+                }
+            } catch (IOException e) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * gzip поток (RFC 1952) поверх Deflater из пула
+     */
+    static class GzipStream {
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+        private final OutputStream out;
+        private final DeflaterPool pool;
+        private final CRC32 crc = new CRC32();
+        private final byte[] chunk = new byte[8192];
+        private Deflater deflater;
+        private long size;
+        private long compressedSize = HEADER.length;
+
+        GzipStream(OutputStream out, DeflaterPool pool) throws IOException {
+            this.out = out;
+            this.pool = pool;
+            this.deflater = pool.acquire();
+            out.write(HEADER);
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            size += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+
+        void flush() throws IOException {
+            drain(Deflater.SYNC_FLUSH);
+            out.flush();
+        }
+
+        void finish() throws IOException {
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                writeInt((int) crc.getValue());
+                writeInt((int) size);
+                compressedSize += 8;
+                out.flush();
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            if (deflater != null) {
+                pool.release(deflater);
+                deflater = null;
+            }
+        }
+
+        private void drain(int flush) throws IOException {
+            int n;
+            do {
+                n = deflater.deflate(chunk, 0, chunk.length, flush);
+                if (n > 0) {
+                    out.write(chunk, 0, n);
+                    compressedSize += n;
+                }
+            } while (n == chunk.length);
+        }
+
+        private void writeInt(int v) throws IOException {
+            out.write(v & 0xff);
+            out.write((v >> 8) & 0xff);
+            out.write((v >> 16) & 0xff);
+            out.write((v >> 24) & 0xff);
+        }
+    }
+}
@@ -9,8 +9,28 @@ import webapp.util.Util;
 public class HtmlUtil {
     public static final String EMPTY_TD = "<img src='img/s.gif'>";
 
+    /**
+     * Экранированное значение или пустая ячейка
+     */
     public static String mask(String value) {
-        return Util.isEmpty(value) ? EMPTY_TD : value;
+        return Util.isEmpty(value) ? EMPTY_TD : escape(value);
+    }
+
+    public static String escape(String value) {
+        if (value == null) return "";
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '&': sb.append("&amp;"); break;
+                case '"': sb.append("&quot;"); break;
+                case '\'': sb.append("&#39;"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
     }
 
     public static String getUtl(String url) {
@@ -0,0 +1,67 @@
+package webapp.web;
+
+import webapp.storage.Version;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.security.SecureRandom;
+
+/**
+ * Условные GET запросы: ETag/Last-Modified по версии из хранилища и ответ 304.
+ */
+public class HttpCache {
+    // Номера версий в памяти считаются с 1 после каждого старта и свои на каждом узле,
+    // метка процесса не даёт ETag до рестарта или с другого узла совпасть с текущим.
+    // Версии из базы общие для всех узлов, к их номеру добавляется время изменения.
+    private static final String EPOCH = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+    private HttpCache() {
+    }
+
+    public static String etag(String key, Version version) {
+        String epoch = version.isStored() ? Long.toString(version.getLastModified(), 36) : EPOCH;
+        return "\"" + key + "-" + version.getNumber() + "-" + epoch + "\"";
+    }
+
+    /**
+     * Проставляет ETag/Last-Modified и, если клиент прислал ту же версию, отвечает 304.
+     *
+     * @return true, если ответ 304 уже отправлен и тело формировать не нужно
+     */
+    public static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag, long lastModified) {
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Cache-Control", "no-cache");
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean notModified;
+        if (ifNoneMatch != null) {
+            notModified = matches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+            // в заголовке дата с точностью до секунды
+            notModified = ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    static boolean matches(String header, String etag) {
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
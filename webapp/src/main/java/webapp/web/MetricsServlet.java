@@ -0,0 +1,40 @@
+package webapp.web;
+
+import webapp.metrics.Metrics;
+import webapp.metrics.MetricsJmx;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * GET /metrics - все метрики в текстовом формате Prometheus.
+ * Те же значения доступны по JMX как атрибуты webapp:type=Metrics.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    @Override
+    public void init() throws ServletException {
+        MetricsJmx.register();
+    }
+
+    @Override
+    public void destroy() {
+        MetricsJmx.unregister();
+        super.destroy();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        StringBuilder text = new StringBuilder(8192);
+        Metrics.writeText(text);
+        Writer writer = response.getWriter();
+        writer.write(text.toString());
+        writer.flush();
+    }
+}
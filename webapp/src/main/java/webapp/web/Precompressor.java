@@ -0,0 +1,75 @@
+package webapp.web;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сборочная утилита: кладёт рядом со статическими файлами их сжатые копии {@code <файл>.gz},
+ * которые потом отдаёт {@link GzipFilter}. Копия не создаётся, если она не меньше оригинала.
+ * <p>
+ * Запуск: {@code Precompressor <каталог> [уровень] [расширения через запятую]},
+ * в сборке - профиль {@code mvn -Pprecompress package}, сжатые файлы попадают в {@code target/webapp.war}.
+ */
+public class Precompressor {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: Precompressor <dir> [level] [extensions]");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        int level = args.length > 1 ? Integer.parseInt(args[1]) : Deflater.BEST_COMPRESSION;
+        Set<String> extensions = new HashSet<>(Arrays.asList(
+                (args.length > 2 ? args[2] : "css,js,html,svg,txt").split("\\s*,\\s*")));
+        int[] count = new int[2];
+        compressDir(dir, level, extensions, count);
+        System.out.println("Precompressed " + count[0] + " of " + count[1] + " files in " + dir.getAbsolutePath());
+    }
+
+    private static void compressDir(File dir, int level, Set<String> extensions, int[] count) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new FileNotFoundException("Directory " + dir.getAbsolutePath() + " not found");
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                compressDir(file, level, extensions, count);
+                continue;
+            }
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            if (dot < 0 || !extensions.contains(name.substring(dot + 1))) {
+                continue;
+            }
+            count[1]++;
+            if (compress(file, level)) count[0]++;
+        }
+    }
+
+    static boolean compress(File file, final int level) throws IOException {
+        File gz = new File(file.getPath() + ".gz");
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file));
+             OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(gz))) {
+                 {
+                     def.setLevel(level);
+                 }
+             }) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+        gz.setLastModified(file.lastModified());
+        if (gz.length() >= file.length()) {
+            // сжатие не помогло (уже сжатые форматы, крошечные файлы)
+            gz.delete();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package webapp.web;
+
+import webapp.sql.QueryTrace;
+import webapp.util.Util;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Трасса SQL запросов на каждый HTTP запрос ({@link QueryTrace}).
+ * Если запросов больше sql.maxQueries или один и тот же запрос повторяется (N+1),
+ * отчёт пишется в лог с уровнем WARNING, иначе - FINE.
+ * Асинхронный запрос трассируется до завершения, в том числе на виртуальных потоках.
+ */
+public class QueryTraceFilter implements Filter {
+    private static final Logger LOGGER = Logger.getLogger(QueryTraceFilter.class.getName());
+
+    private int maxQueries;
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        String value = config.getInitParameter("sql.maxQueries");
+        maxQueries = Util.isEmpty(value) ? 5 : Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        String query = request.getQueryString();
+        final QueryTrace trace = QueryTrace.begin(request.getMethod() + " " + request.getRequestURI() + (query == null ? "" : "?" + query));
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            QueryTrace.detach();
+        }
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    report(trace);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            report(trace);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void report(QueryTrace trace) {
+        if (trace.getCount() > maxQueries || !trace.getRepeated().isEmpty()) {
+            LOGGER.warning("Query budget " + maxQueries + " exceeded or repeated queries in " + trace.report());
+        } else if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(trace.report());
+        }
+    }
+}
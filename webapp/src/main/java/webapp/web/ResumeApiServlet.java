@@ -0,0 +1,324 @@
+package webapp.web;
+
+import webapp.Config;
+import webapp.ResumeConflictException;
+import webapp.WebAppException;
+import webapp.model.Resume;
+import webapp.storage.IStorage;
+import webapp.storage.Version;
+import webapp.util.JsonReader;
+import webapp.util.JsonWriter;
+import webapp.util.Util;
+import webapp.util.Uuids;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * REST API резюме в JSON.
+ * <pre>
+ * GET    /api/resumes?offset=0&amp;limit=50  страница в порядке списка, X-Total-Count и Link (next/prev)
+ * POST   /api/resumes                     массив резюме, в ответ статус по каждому
+ * GET    /api/resumes/{uuid}
+ * PUT    /api/resumes/{uuid}              If-Match - ETag из GET, version в теле - проверка версии
+ * DELETE /api/resumes/{uuid}
+ * </pre>
+ * Ответы пишутся в поток по одному резюме, запросы читаются так же.
+ * Ошибки - тоже JSON: {"status": 404, "error": "..."}.
+ */
+public class ResumeApiServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 1000;
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    private IStorage storage;
+
+    public ResumeApiServlet() {
+    }
+
+    // для тестов: хранилище вместо storage.* из webapp.properties
+    ResumeApiServlet(IStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void init() throws ServletException {
+        if (storage == null) {
+            storage = Config.getStorage();
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, (req, resp) -> {
+            String uuid = getUuid(req);
+            if (uuid == null) {
+                list(req, resp);
+            } else {
+                get(req, resp, uuid);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, (req, resp) -> {
+            if (getUuid(req) != null) {
+                sendError(resp, HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            } else {
+                saveAll(req, resp);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, (req, resp) -> {
+            String uuid = getUuid(req);
+            if (uuid == null) {
+                sendError(resp, HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            } else {
+                update(req, resp, uuid);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, (req, resp) -> {
+            String uuid = getUuid(req);
+            if (uuid == null) {
+                sendError(resp, HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            } else if (checkVersion(req, resp, uuid) != null) {
+                storage.delete(uuid);
+                resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            }
+            return null;
+        });
+    }
+
+    // На виртуальных потоках ResumeServlet, если он их завёл
+    private void execute(HttpServletRequest request, HttpServletResponse response, AsyncRequestExecutor.Handler handler) throws ServletException, IOException {
+        AsyncRequestExecutor executor = (AsyncRequestExecutor) getServletContext().getAttribute(AsyncRequestExecutor.CONTEXT_ATTRIBUTE);
+        if (executor != null && request.isAsyncSupported()) {
+            executor.execute(request, response, handler, ResumeApiServlet::jsonError);
+        } else {
+            try {
+                handler.handle(request, response);
+            } catch (RuntimeException e) {
+                log("API request failed", e);
+                jsonError(request, response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+            }
+        }
+    }
+
+    // ошибка API - тоже JSON: {"status", "error"}
+    private static String jsonError(HttpServletRequest request, HttpServletResponse response, int status, Exception e) throws IOException {
+        // без исключения - отказ по занятости или таймаут
+        sendError(response, status, e != null ? e.getMessage() : "Server is busy");
+        return null;
+    }
+
+    private static void sendError(HttpServletResponse response, int status) throws IOException {
+        sendError(response, status, null);
+    }
+
+    private static void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        if (!response.isCommitted()) {
+            response.resetBuffer();
+            response.setStatus(status);
+            JsonWriter json = jsonWriter(response);
+            json.beginObject().name("status").value(status).name("error").value(message).endObject();
+            json.flush();
+        }
+    }
+
+    private void list(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int offset = getIntParameter(request, "offset", 0);
+        int limit = getIntParameter(request, "limit", DEFAULT_LIMIT);
+        if (offset < 0 || limit < 0 || limit > MAX_LIMIT) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "offset >= 0, 0 <= limit <= " + MAX_LIMIT);
+            return;
+        }
+        Version version = storage.getVersion();
+        if (HttpCache.notModified(request, response, HttpCache.etag("resumes-" + offset + "-" + limit, version), version.getLastModified())) {
+            return;
+        }
+        int total = storage.size();
+        response.setHeader("X-Total-Count", String.valueOf(total));
+        StringBuilder link = new StringBuilder();
+        String base = request.getRequestURI();
+        if (offset + limit < total) {
+            link.append('<').append(base).append("?offset=").append(offset + limit).append("&limit=").append(limit).append(">; rel=\"next\"");
+        }
+        if (offset > 0) {
+            if (link.length() > 0) link.append(", ");
+            link.append('<').append(base).append("?offset=").append(Math.max(offset - limit, 0)).append("&limit=").append(limit).append(">; rel=\"prev\"");
+        }
+        if (link.length() > 0) {
+            response.setHeader("Link", link.toString());
+        }
+
+        final JsonWriter json = jsonWriter(response);
+        json.beginArray();
+        try {
+            storage.forEachSorted(offset, limit, r -> {
+                try {
+                    ResumeJson.write(json, r);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    private void get(HttpServletRequest request, HttpServletResponse response, String uuid) throws IOException {
+        Version version = storage.getVersion(uuid);
+        if (version == null) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (HttpCache.notModified(request, response, HttpCache.etag(uuid, version), version.getLastModified())) {
+            return;
+        }
+        JsonWriter json = jsonWriter(response);
+        ResumeJson.write(json, storage.load(uuid));
+        json.flush();
+    }
+
+    /**
+     * If-Match сверяется с текущим ETag и ещё раз при записи: версия резюме из совпавшего ETag
+     * становится ожидаемой версией update, и изменение, прошедшее между проверкой и записью, даст 409.
+     */
+    private void update(HttpServletRequest request, HttpServletResponse response, String uuid) throws IOException {
+        Version current = checkVersion(request, response, uuid);
+        if (current == null) return;
+        Resume r;
+        try {
+            r = ResumeJson.read(jsonReader(request));
+        } catch (WebAppException | IllegalArgumentException e) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (r.getUuid() == null) {
+            r.setUuid(uuid);
+        } else if (!r.getUuid().equals(uuid)) {
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, "uuid in body differs from " + uuid);
+            return;
+        }
+        String ifMatch = request.getHeader("If-Match");
+        if (ifMatch != null && !ifMatch.trim().equals("*") && current.getResumeVersion() != 0) {
+            if (r.getVersion() != 0 && r.getVersion() != current.getResumeVersion()) {
+                sendError(response, HttpServletResponse.SC_CONFLICT, "version in body differs from If-Match");
+                return;
+            }
+            r.setVersion(current.getResumeVersion());
+        }
+        try {
+            storage.update(r);
+        } catch (ResumeConflictException e) {
+            sendError(response, HttpServletResponse.SC_CONFLICT, e.getMessage());
+            return;
+        }
+        response.setHeader("ETag", HttpCache.etag(uuid, storage.getVersion(uuid)));
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    /**
+     * Резюме есть и If-Match (если задан) совпадает с текущим ETag, иначе ответ 404/412
+     *
+     * @return текущая версия или null, если ответ уже отправлен
+     */
+    private Version checkVersion(HttpServletRequest request, HttpServletResponse response, String uuid) throws IOException {
+        Version version = storage.getVersion(uuid);
+        if (version == null) {
+            sendError(response, HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+        String ifMatch = request.getHeader("If-Match");
+        if (ifMatch != null && !HttpCache.matches(ifMatch, HttpCache.etag(uuid, version))) {
+            sendError(response, HttpServletResponse.SC_PRECONDITION_FAILED);
+            return null;
+        }
+        return version;
+    }
+
+    /**
+     * Массив резюме сохраняется поэлементно по мере чтения, в ответ - массив
+     * {"uuid", "status"[, "error"]} в том же порядке. Ошибка разбора прерывает загрузку.
+     */
+    private void saveAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        JsonReader in = jsonReader(request);
+        JsonWriter out = jsonWriter(response);
+        out.beginArray();
+        try {
+            in.beginArray();
+            while (in.hasNext()) {
+                Resume r;
+                try {
+                    r = ResumeJson.read(in);
+                } catch (IllegalArgumentException e) {
+                    out.beginObject().name("status").value(HttpServletResponse.SC_BAD_REQUEST).name("error").value(e.getMessage()).endObject();
+                    break;
+                }
+                if (Util.isEmpty(r.getUuid())) {
+                    r.createUuid();
+                }
+                out.beginObject().name("uuid").value(r.getUuid());
+                try {
+                    Uuids.check(r.getUuid());
+                } catch (WebAppException e) {
+                    out.name("status").value(HttpServletResponse.SC_BAD_REQUEST).name("error").value(e.getMessage()).endObject();
+                    continue;
+                }
+                try {
+                    storage.save(r);
+                    out.name("status").value(HttpServletResponse.SC_CREATED).name("version").value(storage.getVersion(r.getUuid()).getResumeVersion());
+                } catch (WebAppException e) {
+                    out.name("status").value(HttpServletResponse.SC_CONFLICT).name("error").value(e.getMessage());
+                }
+                out.endObject();
+            }
+        } catch (WebAppException e) {
+            // битый JSON: то, что успели сохранить, остаётся
+            out.beginObject().name("status").value(HttpServletResponse.SC_BAD_REQUEST).name("error").value(e.getMessage()).endObject();
+        }
+        out.endArray();
+        out.flush();
+    }
+
+    private static String getUuid(HttpServletRequest request) {
+        String path = request.getPathInfo();
+        if (path == null || path.length() <= 1) return null;
+        return path.substring(1);
+    }
+
+    private static JsonWriter jsonWriter(HttpServletResponse response) throws IOException {
+        response.setContentType(JSON);
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8)));
+    }
+
+    private static JsonReader jsonReader(HttpServletRequest request) throws IOException {
+        return new JsonReader(new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)));
+    }
+
+    private static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        try {
+            return Util.isEmpty(value) ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
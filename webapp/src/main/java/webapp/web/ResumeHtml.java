@@ -0,0 +1,265 @@
+package webapp.web;
+
+import webapp.model.*;
+import webapp.util.DateUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static webapp.web.HtmlUtil.escape;
+
+/**
+ * HTML разметка списка и страницы резюме - единственный её источник: list.jsp и view.jsp выводят её же
+ * через методы с Writer, а {@link FragmentCache} хранит готовые фрагменты, закодированные в UTF-8.
+ * Все данные резюме экранируются. Строки рендерятся в переиспользуемые буферы.
+ */
+public class ResumeHtml {
+    private static final int BUFFERS = 64;
+    private static final int MAX_BUFFER_CAPACITY = 64 * 1024;
+    private static final Queue<StringBuilder> POOL = new ArrayBlockingQueue<>(BUFFERS);
+
+    private static final String LIST_HEAD =
+            "<html>\n" +
+            "<head>\n" +
+            "    <meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">\n" +
+            "    <link rel=\"stylesheet\" href=\"css/style.css\">\n" +
+            "    <title>Список всех резюме</title>\n" +
+            "</head>\n" +
+            "<body>\n" +
+            "<header>Список всех резюме</header>\n" +
+            "<section>\n" +
+            "    <table>\n" +
+            "        <tr>\n" +
+            "            <td colspan=\"5\">\n" +
+            "                <form method=\"get\" action=\"resume\">\n" +
+            "                    <input type=\"hidden\" name=\"action\" value=\"search\">\n" +
+            "                    <input type=\"search\" name=\"q\" size=40 value=\"";
+
+    private static final String LIST_TABLE =
+            "\"\n" +
+            "                           placeholder=\"Поиск по резюме\">\n" +
+            "                    <button type=\"submit\">Найти</button>\n" +
+            "                </form>\n" +
+            "            </td>\n" +
+            "        </tr>\n" +
+            "        <tr>\n" +
+            "            <td colspan=\"5\" style=\"text-align: right\"><a href=\"resume?action=create\"><img src=\"img/add.png\"> Добавить\n" +
+            "                Резюме</a></td>\n" +
+            "        </tr>\n" +
+            "        <tr>\n" +
+            "            <td>\n" +
+            "                <table border=\"1\" cellpadding=\"8\" cellspacing=\"0\">\n" +
+            "                    <tr>\n" +
+            "                        <th>Имя</th>\n" +
+            "                        <th>Проживание</th>\n" +
+            "                        <th>Email</th>\n" +
+            "                        <th>" + HtmlUtil.EMPTY_TD + "</th>\n" +
+            "                        <th>" + HtmlUtil.EMPTY_TD + "</th>\n" +
+            "                    </tr>\n";
+
+    private static final String LIST_FOOTER =
+            "                </table>\n" +
+            "            </td>\n" +
+            "            <td>\n" +
+            "            </td>\n" +
+            "        </tr>\n" +
+            "    </table>\n" +
+            "</section>\n" +
+            "</body>\n" +
+            "</html>\n";
+    private static final byte[] LIST_FOOTER_BYTES = bytes(LIST_FOOTER);
+
+    private static final String VIEW_STYLE =
+            "    <link rel=\"stylesheet\" href=\"css/style.css\">\n" +
+            "    <STYLE type=\"text/css\">\n" +
+            "        th, td {\n" +
+            "            padding: 4px 10px 4px 0;\n" +
+            "            vertical-align: top;\n" +
+            "        }\n" +
+            "\n" +
+            "        tr {\n" +
+            "            border-bottom: 1px solid #DDDDDD;\n" +
+            "        }\n" +
+            "\n" +
+            "        table {\n" +
+            "            margin-bottom: 1.4em;\n" +
+            "            border-collapse: collapse;\n" +
+            "            border-spacing: 0;\n" +
+            "        }\n" +
+            "    </STYLE>\n";
+
+    private ResumeHtml() {
+    }
+
+    /**
+     * Начало страницы списка, до первой строки таблицы
+     */
+    public static byte[] listHeader(String query) {
+        StringBuilder sb = acquire();
+        try {
+            appendListHeader(sb, query);
+            return bytes(sb);
+        } finally {
+            release(sb);
+        }
+    }
+
+    public static void listHeader(Writer out, String query) throws IOException {
+        StringBuilder sb = acquire();
+        try {
+            appendListHeader(sb, query);
+            out.append(sb);
+        } finally {
+            release(sb);
+        }
+    }
+
+    public static byte[] listFooter() {
+        return LIST_FOOTER_BYTES;
+    }
+
+    public static void listFooter(Writer out) throws IOException {
+        out.write(LIST_FOOTER);
+    }
+
+    public static byte[] listRow(Resume r) {
+        StringBuilder sb = acquire();
+        try {
+            appendListRow(sb, r);
+            return bytes(sb);
+        } finally {
+            release(sb);
+        }
+    }
+
+    public static void listRow(Writer out, Resume r) throws IOException {
+        StringBuilder sb = acquire();
+        try {
+            appendListRow(sb, r);
+            out.append(sb);
+        } finally {
+            release(sb);
+        }
+    }
+
+    public static byte[] viewPage(Resume resume) {
+        StringBuilder sb = acquire();
+        try {
+            appendViewPage(sb, resume);
+            return bytes(sb);
+        } finally {
+            release(sb);
+        }
+    }
+
+    public static void viewPage(Writer out, Resume resume) throws IOException {
+        StringBuilder sb = acquire();
+        try {
+            appendViewPage(sb, resume);
+            out.append(sb);
+        } finally {
+            release(sb);
+        }
+    }
+
+    private static void appendListHeader(StringBuilder sb, String query) {
+        sb.append(LIST_HEAD).append(escape(query)).append(LIST_TABLE);
+    }
+
+    private static void appendListRow(StringBuilder sb, Resume r) {
+        String uuid = escape(r.getUuid());
+        String mail = r.getContact(ContactType.MAIL);
+        sb.append("                    <tr>\n")
+                .append("                        <td>\n")
+                .append("                            <a href=\"resume?uuid=").append(uuid).append("&action=view\">")
+                .append(escape(r.getFullName())).append("\n")
+                .append("                            </a>\n")
+                .append("                        </td>\n")
+                .append("                        <td>").append(HtmlUtil.mask(r.getLocation())).append("\n")
+                .append("                        </td>\n")
+                .append("                        <td>").append(mail == null ? HtmlUtil.EMPTY_TD : ContactType.MAIL.toHtml(escape(mail))).append("\n")
+                .append("                        </td>\n")
+                .append("                        <td><a href=\"resume?uuid=").append(uuid).append("&action=delete\"><img src=\"img/delete.png\"></a></td>\n")
+                .append("                        <td><a href=\"resume?uuid=").append(uuid).append("&action=edit\"><img src=\"img/pencil.png\"></a></td>\n")
+                .append("                    </tr>\n");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendViewPage(StringBuilder sb, Resume resume) {
+        String fullName = escape(resume.getFullName());
+        sb.append("<html>\n<head>\n").append(VIEW_STYLE)
+                .append("    <title>Резюме ").append(fullName).append("\n    </title>\n")
+                .append("</head>\n<body>\n<section>\n\n")
+                .append("    <h2>").append(fullName).append("</h2>\n")
+                .append("    Проживание: ").append(escape(resume.getLocation())).append("\n    <p>\n");
+        for (Map.Entry<ContactType, String> e : resume.getContacts().entrySet()) {
+            sb.append(e.getKey().toHtml(escape(e.getValue()))).append("<br>\n");
+        }
+        sb.append("\n    <p>\n    <table cellpadding=\"8\">\n");
+        for (Map.Entry<SectionType, Section> entry : resume.getSections().entrySet()) {
+            SectionType type = entry.getKey();
+            switch (type) {
+                case ACHIEVEMENT:
+                case OBJECTIVE:
+                case QUALIFICATIONS:
+                    List<String> items = (List<String>) entry.getValue().getValues();
+                    sb.append("        <tr>\n            <td><h3>").append(type.getTitle()).append("</h3></td>\n            <td>\n");
+                    if (items.size() == 1) {
+                        if (type == SectionType.OBJECTIVE) {
+                            sb.append("<b>").append(escape(items.get(0))).append("</b>\n");
+                        } else {
+                            sb.append(escape(items.get(0))).append('\n');
+                        }
+                    } else {
+                        sb.append("<ul>\n");
+                        for (String item : items) {
+                            sb.append("<li>").append(escape(item)).append("</li>\n");
+                        }
+                        sb.append("</ul>\n");
+                    }
+                    sb.append("            </td>\n        </tr>\n");
+                    break;
+                case EXPERIENCE:
+                case EDUCATION:
+                    sb.append("        <tr>\n            <td><h3>").append(type.getTitle()).append("</h3></td>\n        </tr>\n");
+                    for (Organization org : (List<Organization>) entry.getValue().getValues()) {
+                        sb.append("        <tr>\n            <td colspan=\"2\"><br><a href=\"").append(escape(org.getLink().getUrl())).append("\">")
+                                .append(escape(org.getLink().getName())).append("</a></td>\n        </tr>\n");
+                        for (Period item : org.getPeriods()) {
+                            sb.append("        <tr>\n            <td>").append(DateUtil.format(item.getStart()))
+                                    .append(" - ").append(DateUtil.format(item.getEnd())).append("</td>\n")
+                                    .append("            <td>").append(escape(item.getContent())).append("</td>\n        </tr>\n");
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Type " + type + " is not implemented");
+            }
+        }
+        sb.append("    </table>\n")
+                .append("    <button onclick=\"window.history.back()\">ОК</button>\n")
+                .append("</section>\n</body>\n</html>\n");
+    }
+
+    private static StringBuilder acquire() {
+        StringBuilder sb = POOL.poll();
+        return sb == null ? new StringBuilder(4096) : sb;
+    }
+
+    private static void release(StringBuilder sb) {
+        // слишком разросшиеся буферы не держим
+        if (sb.capacity() <= MAX_BUFFER_CAPACITY) {
+            sb.setLength(0);
+            POOL.offer(sb);
+        }
+    }
+
+    private static byte[] bytes(CharSequence s) {
+        return s.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
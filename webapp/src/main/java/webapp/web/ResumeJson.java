@@ -0,0 +1,209 @@
+package webapp.web;
+
+import webapp.model.*;
+import webapp.util.DateUtil;
+import webapp.util.JsonReader;
+import webapp.util.JsonWriter;
+import webapp.util.StringDedup;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Резюме в JSON и обратно.
+ * <pre>
+ * {"uuid": "...", "fullName": "...", "location": "...", "version": 1,
+ *  "contacts": {"MAIL": "..."},
+ *  "sections": {"OBJECTIVE": ["..."],
+ *               "EXPERIENCE": [{"name": "...", "url": "...",
+ *                               "periods": [{"start": "2010-01", "end": null, "position": "...", "content": "..."}]}]}}
+ * </pre>
+ * Даты периодов - год и месяц (yyyy-MM), null в конце периода - по настоящее время.
+ */
+public class ResumeJson {
+
+    private ResumeJson() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void write(JsonWriter w, Resume r) throws IOException {
+        w.beginObject()
+                .name("uuid").value(r.getUuid())
+                .name("fullName").value(r.getFullName())
+                .name("location").value(r.getLocation())
+                .name("version").value(r.getVersion());
+        w.name("contacts").beginObject();
+        for (Map.Entry<ContactType, String> e : r.getContacts().entrySet()) {
+            w.name(e.getKey().name()).value(e.getValue());
+        }
+        w.endObject();
+        w.name("sections").beginObject();
+        for (Map.Entry<SectionType, Section> e : r.getSections().entrySet()) {
+            w.name(e.getKey().name()).beginArray();
+            if (e.getKey().getSectionClass() == SectionClass.TEXT) {
+                for (String value : (Collection<String>) e.getValue().getValues()) {
+                    w.value(value);
+                }
+            } else {
+                for (Organization org : (Collection<Organization>) e.getValue().getValues()) {
+                    writeOrganization(w, org);
+                }
+            }
+            w.endArray();
+        }
+        w.endObject();
+        w.endObject();
+    }
+
+    /**
+     * @return резюме; uuid может быть null, если его нет в JSON
+     */
+    public static Resume read(JsonReader in) throws IOException {
+        String uuid = null;
+        String fullName = null;
+        String location = null;
+        int version = 0;
+        Map<ContactType, String> contacts = new EnumMap<>(ContactType.class);
+        Map<SectionType, Section> sections = new EnumMap<>(SectionType.class);
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "uuid":
+                    uuid = in.nextString();
+                    break;
+                case "fullName":
+                    fullName = in.nextString();
+                    break;
+                case "location":
+                    location = StringDedup.dedup(in.nextString());
+                    break;
+                case "version":
+                    version = in.nextInt();
+                    break;
+                case "contacts":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        ContactType type = valueOf(ContactType.class, in.nextName());
+                        contacts.put(type, in.nextString());
+                    }
+                    in.endObject();
+                    break;
+                case "sections":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        SectionType type = valueOf(SectionType.class, in.nextName());
+                        sections.put(type, readSection(in, type));
+                    }
+                    in.endObject();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        Resume r = new Resume(uuid, fullName, location);
+        r.setVersion(version);
+        for (Map.Entry<ContactType, String> e : contacts.entrySet()) {
+            r.addContact(e.getKey(), e.getValue());
+        }
+        for (Map.Entry<SectionType, Section> e : sections.entrySet()) {
+            r.addSection(e.getKey(), e.getValue());
+        }
+        return r;
+    }
+
+    private static void writeOrganization(JsonWriter w, Organization org) throws IOException {
+        w.beginObject()
+                .name("name").value(org.getLink().getName())
+                .name("url").value(org.getLink().getUrl());
+        w.name("periods").beginArray();
+        for (Period p : org.getPeriods()) {
+            w.beginObject()
+                    .name("start").value(DateUtil.formatIso(p.getStart()))
+                    .name("end").value(DateUtil.formatIso(p.getEnd()))
+                    .name("position").value(p.getPosition())
+                    .name("content").value(p.getContent())
+                    .endObject();
+        }
+        w.endArray();
+        w.endObject();
+    }
+
+    private static Section readSection(JsonReader in, SectionType type) throws IOException {
+        Section section = type.getSectionClass().create();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (type.getSectionClass() == SectionClass.TEXT) {
+                section.add(StringDedup.dedup(in.nextString()));
+            } else {
+                section.add(readOrganization(in));
+            }
+        }
+        in.endArray();
+        return section;
+    }
+
+    private static Organization readOrganization(JsonReader in) throws IOException {
+        String name = null;
+        String url = null;
+        List<Period> periods = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    name = StringDedup.dedup(in.nextString());
+                    break;
+                case "url":
+                    url = StringDedup.dedup(in.nextString());
+                    break;
+                case "periods":
+                    in.beginArray();
+                    while (in.hasNext()) periods.add(readPeriod(in));
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Organization(name, url, periods.toArray(new Period[periods.size()]));
+    }
+
+    private static Period readPeriod(JsonReader in) throws IOException {
+        int start = DateUtil.NONE;
+        int end = DateUtil.NONE;
+        String position = null;
+        String content = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "start":
+                    start = DateUtil.parseIso(in.nextString());
+                    break;
+                case "end":
+                    end = DateUtil.parseIso(in.nextString());
+                    break;
+                case "position":
+                    position = StringDedup.dedup(in.nextString());
+                    break;
+                case "content":
+                    content = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Period(start, end, position, content);
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + name);
+        }
+    }
+}
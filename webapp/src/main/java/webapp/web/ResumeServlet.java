@@ -1,8 +1,11 @@
 package webapp.web;
 
 import webapp.Config;
+import webapp.ResumeConflictException;
 import webapp.model.*;
+import webapp.search.SearchHit;
 import webapp.storage.IStorage;
+import webapp.storage.Version;
 import webapp.util.DateUtil;
 import webapp.util.Util;
 
@@ -12,29 +15,37 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
-import java.util.LinkedList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * User: gkislin
  * Date: 11.07.2014
  */
 public class ResumeServlet extends HttpServlet {
+    private static final int SEARCH_LIMIT = 100;
+
     private IStorage storage;
+    private AsyncRequestExecutor asyncExecutor;
+    // готовые строки списка и страницы просмотра, null - рендерим через JSP
+    private FragmentCache rowCache;
+    private FragmentCache viewCache;
 
-    private static Date[] getDates(HttpServletRequest request, String pfx) {
+    private static int[] getDates(HttpServletRequest request, String pfx) {
         String[] months = request.getParameterValues(pfx + "Month");
         String[] years = request.getParameterValues(pfx + "Year");
-        Date[] dates = new Date[months.length];
+        int[] dates = new int[months.length];
         for (int i = 0; i < months.length; i++) {
             String month = months[i];
             String year = years[i];
             if (Util.isEmpty(month) || "-1".equals(month) || Util.isEmpty(year)) {
-                dates[i] = null;
+                dates[i] = DateUtil.NONE;
             } else {
-                dates[i] = DateUtil.getDate(Integer.valueOf(year), Integer.valueOf(month));
+                dates[i] = DateUtil.yearMonth(Integer.parseInt(year), Integer.parseInt(month));
             }
         }
         return dates;
@@ -42,6 +53,25 @@ public class ResumeServlet extends HttpServlet {
 
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         request.setCharacterEncoding("UTF-8");
+        execute(request, response, this::handlePost);
+    }
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, this::handleGet);
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, AsyncRequestExecutor.Handler handler) throws ServletException, IOException {
+        if (asyncExecutor != null && request.isAsyncSupported()) {
+            asyncExecutor.execute(request, response, handler);
+        } else {
+            String path = handler.handle(request, response);
+            if (path != null) {
+                request.getRequestDispatcher(path).forward(request, response);
+            }
+        }
+    }
+
+    private String handlePost(HttpServletRequest request, HttpServletResponse response) throws IOException {
         String uuid = request.getParameter("uuid");
         Resume r = new Resume(
                 uuid,
@@ -70,7 +100,7 @@ public class ResumeServlet extends HttpServlet {
                     case EDUCATION:
                     case EXPERIENCE:
                         String[] orgUrls = request.getParameterValues(type.name() + "_orgUrl");
-                        List<Organization> orgList = new LinkedList<>();
+                        List<Organization> orgList = new ArrayList<>(values.length);
                         for (int i = 0; i < values.length; i++) {
                             String orgName = values[i];
                             if (!Util.isEmpty(orgName)) {
@@ -82,8 +112,8 @@ public class ResumeServlet extends HttpServlet {
                                 int length = positions.length;
                                 if (length != 0 && (length != 1 || !Util.isEmpty(positions[0]))) {
                                     String[] contents = request.getParameterValues(pfx + "_content");
-                                    Date[] startDates = getDates(request, pfx + "_start");
-                                    Date[] endDates = getDates(request, pfx + "_end");
+                                    int[] startDates = getDates(request, pfx + "_start");
+                                    int[] endDates = getDates(request, pfx + "_end");
                                     int start = Util.isEmpty(positions[0]) ? 1 : 0;
                                     for (int j = start; j < length; j++) {
                                         org.add(new Period(startDates[j], endDates[j], positions[j], contents[j]));
@@ -99,66 +129,179 @@ public class ResumeServlet extends HttpServlet {
 
         if (Util.isEmpty(uuid)) {
             r.createUuid();
-            Config.getStorage().save(r);
+            storage.save(r);
         } else {
-            Config.getStorage().update(r);
+            String version = request.getParameter("version");
+            try {
+                r.setVersion(Util.isEmpty(version) ? 0 : Integer.parseInt(version.trim()));
+            } catch (NumberFormatException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Неверная версия резюме: " + version);
+                return null;
+            }
+            try {
+                storage.update(r);
+            } catch (ResumeConflictException e) {
+                response.sendError(HttpServletResponse.SC_CONFLICT,
+                        "Резюме уже изменил другой пользователь, откройте его заново");
+                return null;
+            }
+            // после записи: запрос между сбросом и записью снова положил бы в кэш старый фрагмент
+            invalidate(uuid);
         }
         response.sendRedirect("list");
+        return null;
     }
 
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-/*
-        response.setCharacterEncoding("UTF-8");
-        response.setContentType("text/html; charset=UTF-8");
-        Writer w = response.getWriter();
-        String name = request.getParameter("name");
-
-        w.write("Тест сервелет: привет " + name);
-        w.close();
-*/
+    private String handleGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
         String uuid = request.getParameter("uuid");
         String action = request.getParameter("action");
         Resume r;
 
         // Действие по-умолчанию
         if (action == null)
-            action = "create";
+            action = "/list".equals(request.getServletPath()) ? "list" : "create";
 
         switch (action) {
             case "delete":
                 storage.delete(uuid);
+                invalidate(uuid);
                 response.sendRedirect("list");
-                return;
+                return null;
+            case "search":
+                String query = request.getParameter("q");
+                Collection<Resume> found;
+                if (Util.isEmpty(query)) {
+                    found = storage.getAllSorted();
+                } else {
+                    found = storage.search(query, SEARCH_LIMIT);
+                    if (found.isEmpty()) {
+                        // ничего не нашли - возможно, опечатка в имени
+                        List<Resume> similar = new ArrayList<>();
+                        for (SearchHit hit : storage.findSimilarByName(query, SEARCH_LIMIT)) {
+                            similar.add(hit.getResume());
+                        }
+                        found = similar;
+                    }
+                }
+                if (rowCache != null) {
+                    writeList(response, found, query);
+                    return null;
+                }
+                request.setAttribute("query", query);
+                request.setAttribute("resumes", found);
+                return "/list.jsp";
             case "create":
                 r = Resume.EMPTY;
                 break;
+            case "list":
+                Version storageVersion = storage.getVersion();
+                if (HttpCache.notModified(request, response, HttpCache.etag("list", storageVersion), storageVersion.getLastModified())) {
+                    return null;
+                }
+                if (rowCache != null) {
+                    writeList(response, storage.getAllSorted(), null);
+                    return null;
+                }
+                return "/list.jsp";
             case "view":
+                Version version = storage.getVersion(uuid);
+                if (version != null && HttpCache.notModified(request, response, HttpCache.etag(uuid, version), version.getLastModified())) {
+                    return null;
+                }
+                if (viewCache != null && version != null) {
+                    byte[] page = viewCache.get(uuid, version.getNumber(), () -> ResumeHtml.viewPage(storage.load(uuid)));
+                    write(response, page);
+                    return null;
+                }
                 r = storage.load(uuid);
                 break;
             case "edit":
-                r = storage.load(uuid);
-                // add first item in every edited item
+                Resume loaded = storage.load(uuid);
+                // add first item in every edited item; загруженное резюме может быть общим - не меняем его
+                Resume.Builder edit = loaded.toBuilder();
                 for (SectionType type : SectionType.values()) {
-                    Section s = r.getSection(type);
-                    if (s == null) {
-                        r.addSection(type, type.getSectionClass().getEmptySection());
-                    } else {
-                        type.addEmptyValue(s);
-                    }
+                    Section s = loaded.getSection(type);
+                    edit.section(type, s == null ? type.getSectionClass().getEmptySection() : type.withEmptyValue(s));
                 }
+                r = edit.build();
                 break;
             default:
                 throw new IllegalArgumentException("Action " + action + " is illegal");
         }
         request.setAttribute("resume", r);
-        request.getRequestDispatcher(
-                ("view".equals(action) ? "/view.jsp" : "/edit.jsp")
-        ).forward(request, response);
+        return "view".equals(action) ? "/view.jsp" : "/edit.jsp";
+    }
+
+    private void invalidate(String uuid) {
+        if (rowCache != null) {
+            rowCache.invalidate(uuid);
+            viewCache.invalidate(uuid);
+        }
+    }
+
+    private void writeList(HttpServletResponse response, Collection<Resume> resumes, String query) throws IOException {
+        response.setContentType("text/html;charset=UTF-8");
+        OutputStream out = response.getOutputStream();
+        out.write(ResumeHtml.listHeader(query));
+        for (Resume r : resumes) {
+            out.write(rowCache.get(r.getUuid(), r.getVersion(), () -> ResumeHtml.listRow(r)));
+        }
+        out.write(ResumeHtml.listFooter());
+    }
+
+    private static void write(HttpServletResponse response, byte[] page) throws IOException {
+        response.setContentType("text/html;charset=UTF-8");
+        response.setContentLength(page.length);
+        response.getOutputStream().write(page);
     }
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
         storage = Config.getStorage();
+        warmUp(storage);
+        int fragmentCacheSize = getIntParameter(config, "fragmentCache.size", 10000);
+        if (fragmentCacheSize > 0) {
+            rowCache = new FragmentCache(fragmentCacheSize);
+            viewCache = new FragmentCache(fragmentCacheSize);
+            rowCache.registerMetrics("fragmentCache.row");
+            viewCache.registerMetrics("fragmentCache.view");
+        }
+        if (Boolean.parseBoolean(config.getInitParameter("async"))) {
+            asyncExecutor = new AsyncRequestExecutor(
+                    getIntParameter(config, "async.maxInFlight", 200),
+                    getIntParameter(config, "async.timeoutMillis", 30000));
+            config.getServletContext().setAttribute(AsyncRequestExecutor.CONTEXT_ATTRIBUTE, asyncExecutor);
+            asyncExecutor.registerMetrics("async");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncExecutor != null) {
+            getServletContext().removeAttribute(AsyncRequestExecutor.CONTEXT_ATTRIBUTE);
+            asyncExecutor.shutdown();
+        }
+        super.destroy();
+    }
+
+    // JAXB и драйвер БД готовятся в фоне, контекст стартует не дожидаясь их
+    private void warmUp(final IStorage storage) {
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                storage.warmUp();
+                log("Storage warmed up in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            } catch (RuntimeException e) {
+                log("Storage warm-up failed", e);
+            }
+        }, "storage-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static int getIntParameter(ServletConfig config, String name, int defaultValue) {
+        String value = config.getInitParameter(name);
+        return Util.isEmpty(value) ? defaultValue : Integer.parseInt(value.trim());
     }
 }
@@ -0,0 +1,113 @@
+package webapp.web;
+
+import webapp.Config;
+import webapp.model.Resume;
+import webapp.storage.IStorage;
+import webapp.storage.ResumeTransfer;
+import webapp.util.JsonReader;
+import webapp.util.JsonWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Выгрузка и загрузка всей базы резюме в JSON (формат {@link ResumeJson}).
+ * <pre>
+ * GET  /api/transfer  все резюме массивом, страницами по PAGE_SIZE
+ * POST /api/transfer  массив резюме, сохраняется пачками через {@link ResumeTransfer}
+ * </pre>
+ */
+public class ResumeTransferServlet extends HttpServlet {
+    private static final int PAGE_SIZE = 500;
+
+    private IStorage storage;
+    private ResumeTransfer transfer;
+
+    public ResumeTransferServlet() {
+    }
+
+    // для тестов: хранилище вместо storage.* из webapp.properties
+    ResumeTransferServlet(IStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void init() throws ServletException {
+        if (storage == null) {
+            storage = Config.getStorage();
+        }
+        transfer = new ResumeTransfer();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"resumes.json\"");
+        final JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8)));
+        json.beginArray();
+        final int[] count = new int[1];
+        try {
+            for (int offset = 0; ; offset += PAGE_SIZE) {
+                count[0] = 0;
+                storage.forEachSorted(offset, PAGE_SIZE, r -> {
+                    count[0]++;
+                    try {
+                        ResumeJson.write(json, r);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (count[0] < PAGE_SIZE) break;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final JsonReader in = new JsonReader(new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)));
+        in.beginArray();
+        ResumeTransfer.Stats stats = transfer.copy(new Iterator<Resume>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return in.hasNext();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Resume next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                try {
+                    Resume r = ResumeJson.read(in);
+                    if (r.getUuid() == null) r.createUuid();
+                    return r;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }, storage, (done, failed, total, perSecond) ->
+                log("Import: " + done + " done, " + failed + " failed, " + Math.round(perSecond) + " resumes/s"));
+
+        response.setContentType("application/json;charset=UTF-8");
+        JsonWriter json = new JsonWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        json.beginObject()
+                .name("done").value(stats.getDone())
+                .name("failed").value(stats.getFailed())
+                .name("millis").value(stats.getMillis())
+                .name("perSecond").value(Math.round(stats.getPerSecond()))
+                .endObject();
+        json.flush();
+    }
+}
@@ -15,8 +15,7 @@ CREATE TABLE contact (
   ON DELETE CASCADE
   ON UPDATE NO ACTION
   NOT DEFERRABLE
-)
-WITH (OIDS = FALSE);
+);
 
 CREATE UNIQUE INDEX contact_idx ON contact
 USING BTREE (resume_uuid, type);
@@ -0,0 +1,16 @@
+-- Полнотекстовый поиск по резюме (SqlStorage.search)
+-- search_vector заполняется приложением при save/update: имя и место проживания (A/B),
+-- контакты (B), текст разделов (C), в конфигурациях russian и simple.
+
+ALTER TABLE resume ADD COLUMN search_vector TSVECTOR;
+
+UPDATE resume r
+SET search_vector =
+  setweight(to_tsvector('russian', r.full_name), 'A') || setweight(to_tsvector('simple', r.full_name), 'A') ||
+  setweight(to_tsvector('russian', coalesce(r.location, '')), 'B') ||
+  setweight(to_tsvector('simple', coalesce(r.location, '')), 'B') ||
+  setweight(to_tsvector('simple', coalesce(
+      (SELECT string_agg(c.value, ' ') FROM contact c WHERE c.resume_uuid = r.uuid), '')), 'B');
+
+CREATE INDEX resume_search_idx ON resume
+USING GIN (search_vector);
@@ -0,0 +1,4 @@
+-- Поиск резюме по значению контакта (SqlStorage.findByContact)
+
+CREATE INDEX contact_type_value_idx ON contact
+USING BTREE (type, lower(value));
@@ -0,0 +1,7 @@
+-- Нечёткий поиск по имени (SqlStorage.findSimilarByName)
+-- GiST индекс поддерживает и фильтр full_name % ?, и сортировку full_name <-> ? для top-k
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX resume_full_name_trgm_idx ON resume
+USING GIST (full_name gist_trgm_ops);
@@ -0,0 +1,3 @@
+-- Версия резюме для оптимистичной блокировки (SqlStorage.update: UPDATE ... WHERE uuid=? AND version=?)
+
+ALTER TABLE resume ADD COLUMN version INTEGER NOT NULL DEFAULT 1;
@@ -0,0 +1,10 @@
+-- Индексы под основные запросы SqlStorage
+
+-- Список по имени (forEachSorted: ORDER BY full_name, uuid LIMIT/OFFSET) - чтение индекса по порядку, без сортировки всей таблицы
+CREATE INDEX resume_full_name_uuid_idx ON resume
+USING BTREE (full_name, uuid);
+
+-- Разделы резюме (load: WHERE resume_uuid=? ORDER BY id, удаление при update) - без индекса полный просмотр text_section
+-- Контакты по resume_uuid уже покрыты contact_idx (resume_uuid, type)
+CREATE INDEX text_section_resume_uuid_idx ON text_section
+USING BTREE (resume_uuid, id);
@@ -0,0 +1,4 @@
+-- Время изменения резюме: по нему и по version строятся ETag/Last-Modified (SqlStorage.getVersion),
+-- одинаковые на всех узлах и видящие изменения, записанные мимо приложения
+
+ALTER TABLE resume ADD COLUMN modified TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP;
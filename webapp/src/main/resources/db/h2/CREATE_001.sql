@@ -0,0 +1,30 @@
+-- H2: uuid сразу родного типа (в PostgreSQL - CREATE_006), колонки текста - VARCHAR, индексы без USING
+
+CREATE TABLE resume (
+  uuid      UUID PRIMARY KEY NOT NULL,
+  full_name VARCHAR NOT NULL,
+  location  VARCHAR
+);
+
+CREATE TABLE contact (
+  id          SERIAL,
+  resume_uuid UUID    NOT NULL,
+  type        VARCHAR NOT NULL,
+  value       VARCHAR NOT NULL,
+  CONSTRAINT contant_pkey PRIMARY KEY (id),
+  CONSTRAINT contact_fk FOREIGN KEY (resume_uuid)
+  REFERENCES resume (uuid)
+  ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX contact_idx ON contact (resume_uuid, type);
+
+CREATE TABLE text_section
+(
+  id          SERIAL,
+  resume_uuid UUID    NOT NULL,
+  type        VARCHAR NOT NULL,
+  "values"    VARCHAR NOT NULL,
+  CONSTRAINT text_section_pkey PRIMARY KEY (id),
+  CONSTRAINT text_section_resume_uuid_fkey FOREIGN KEY (resume_uuid) REFERENCES resume (uuid) ON DELETE CASCADE
+);
@@ -0,0 +1,14 @@
+-- H2: полнотекстовый поиск функциями webapp.sql.H2Functions, search_vector - строка термов
+
+ALTER TABLE resume ADD COLUMN search_vector VARCHAR;
+
+CREATE ALIAS to_tsvector FOR 'webapp.sql.H2Functions.toTsvector';
+CREATE ALIAS setweight FOR 'webapp.sql.H2Functions.setweight';
+CREATE ALIAS to_tsquery FOR 'webapp.sql.H2Functions.toTsquery';
+CREATE ALIAS ts_rank FOR 'webapp.sql.H2Functions.tsRank';
+
+UPDATE resume r
+SET search_vector =
+  to_tsvector('simple', r.full_name) || to_tsvector('simple', coalesce(r.location, '')) ||
+  to_tsvector('simple', coalesce(
+      (SELECT string_agg(c.value, ' ') FROM contact c WHERE c.resume_uuid = r.uuid), ''));
@@ -0,0 +1,3 @@
+-- H2: индексов по выражению нет, lower(value) проверяется по строкам с нужным type
+
+CREATE INDEX contact_type_value_idx ON contact (type, value);
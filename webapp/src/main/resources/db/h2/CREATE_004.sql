@@ -0,0 +1,3 @@
+-- H2: similarity() из pg_trgm считает webapp.search.TrigramIndex, без индекса
+
+CREATE ALIAS similarity FOR 'webapp.sql.H2Functions.similarity';
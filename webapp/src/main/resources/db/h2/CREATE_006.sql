@@ -0,0 +1 @@
+-- H2: колонки uuid созданы родного типа сразу в CREATE_001, менять нечего
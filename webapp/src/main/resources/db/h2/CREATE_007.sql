@@ -0,0 +1,5 @@
+-- H2: те же индексы, что в PostgreSQL, без USING
+
+CREATE INDEX resume_full_name_uuid_idx ON resume (full_name, uuid);
+
+CREATE INDEX text_section_resume_uuid_idx ON text_section (resume_uuid, id);
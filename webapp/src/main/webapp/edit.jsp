@@ -1,7 +1,6 @@
 <%@ page import="webapp.model.*" %>
 <%@ page import="webapp.util.DateUtil" %>
 <%@ page import="webapp.util.Util" %>
-<%@ page import="java.util.Date" %>
 <%@ page import="java.util.Map" %>
 <%@page contentType="text/html" pageEncoding="UTF-8" %>
 <!DOCTYPE html>
@@ -25,6 +24,7 @@
 <section>
     <form id="resume" method="post" action="resume" enctype="application/x-www-form-urlencoded">
         <input type="hidden" name="uuid" value="${resume.getUuid()}">
+        <input type="hidden" name="version" value="${resume.getVersion()}">
         <dl>
             <dt>Имя:</dt>
             <dd><input type="text" name="name" size=50 value="${resume.getFullName()}"></dd>
@@ -119,14 +119,14 @@
                         <select name="<%=pfx%>_startMonth">
                             <option value=-1 disabled></option>
                             <%
-                                Date startDate = p.getStartDate();
+                                int startDate = p.getStart();
                                 int startMonth = DateUtil.getMonth(startDate);
                                 for (int j = 0; j < DateUtil.MONTH.length - 1; j++) {
                                     out.println("<option value=" + j + (startMonth == j ? " selected>" : ">") + DateUtil.MONTH[j + 1] + "</option>");
                                 }
                             %>
                         </select>
-                        <input type="text" name="<%=pfx%>_startYear" size=10 value="<%=DateUtil.getYear(startDate)%>">
+                        <input type="text" name="<%=pfx%>_startYear" size=10 value="<%=DateUtil.formatYear(startDate)%>">
                     </dd>
                 </dl>
                 <dl>
@@ -134,14 +134,14 @@
                     <dd>
                         <select name="<%=pfx%>_endMonth">
                             <%
-                                Date endDate = p.getEndDate();
+                                int endDate = p.getEnd();
                                 int endMonth = DateUtil.getMonth(endDate);
                                 for (int j = 0; j < DateUtil.MONTH.length - 1; j++) {
                                     out.println("<option value=" + j + (endMonth == j ? " selected>" : ">") + DateUtil.MONTH[j + 1] + "</option>");
                                 }
                             %>
                         </select>
-                        <input type="text" name="<%=pfx%>_endYear" size=10 value="<%=DateUtil.getYear(endDate)%>"></dd>
+                        <input type="text" name="<%=pfx%>_endYear" size=10 value="<%=DateUtil.formatYear(endDate)%>"></dd>
                 </dl>
                 <dl>
                     <dt>Позиция:</dt>
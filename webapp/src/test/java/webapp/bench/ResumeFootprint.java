@@ -0,0 +1,71 @@
+package webapp.bench;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+import webapp.model.*;
+
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Сколько занимает в куче типичное резюме (JOL, весь граф объектов) и сколько из этого -
+ * списки разделов и периодов: CompactList против LinkedList с теми же элементами.
+ * Запуск: main из IDE или
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=webapp.bench.ResumeFootprint}
+ */
+public class ResumeFootprint {
+
+    public static void main(String[] args) {
+        Resume r = resume();
+        long total = GraphLayout.parseInstance(r).totalSize();
+        System.out.printf("resume total        %6d bytes%n", total);
+
+        long compact = 0;
+        long linked = 0;
+        for (Section<?> section : r.getSections().values()) {
+            compact += listOverhead(section.getValues());
+            linked += listOverhead(new LinkedList<>(section.getValues()));
+            for (Object value : section.getValues()) {
+                if (value instanceof Organization) {
+                    List<Period> periods = ((Organization) value).getPeriods();
+                    compact += listOverhead(periods);
+                    linked += listOverhead(new LinkedList<>(periods));
+                }
+            }
+        }
+        System.out.printf("lists, CompactList  %6d bytes%n", compact);
+        System.out.printf("lists, LinkedList   %6d bytes%n", linked);
+        System.out.printf("saved per resume    %6d bytes (%.0f%% of LinkedList resume)%n",
+                linked - compact, 100.0 * (linked - compact) / (total - compact + linked));
+    }
+
+    // сам список без элементов: весь граф минус граф элементов (массив из toArray не в счёт)
+    private static long listOverhead(List<?> list) {
+        Object[] elements = list.toArray();
+        long elementsOnly = GraphLayout.parseInstance((Object) elements).totalSize() - VM.current().sizeOf(elements);
+        return GraphLayout.parseInstance(list).totalSize() - elementsOnly;
+    }
+
+    private static Resume resume() {
+        Resume r = new Resume("Григорий Кислин", "Санкт-Петербург");
+        r.addContact(ContactType.MAIL, "gkislin@yandex.ru");
+        r.addContact(ContactType.PHONE, "+7(921) 855-0482");
+        r.addContact(ContactType.SKYPE, "grigory.kislin");
+        r.addSection(SectionType.OBJECTIVE, "Ведущий стажировок и корпоративного обучения по Java Web и Enterprise технологиям");
+        r.addSection(SectionType.ACHIEVEMENT, "Достижение 1", "Достижение 2", "Достижение 3", "Достижение 4", "Достижение 5");
+        r.addSection(SectionType.QUALIFICATIONS, "JEE AS: GlassFish, WildFly, WebLogic, Tomcat", "Version control: Git, Mercurial, SVN",
+                "DB: PostgreSQL, Redis, MySQL, HSQLDB", "Languages: Java, Scala, Python, JavaScript");
+        Organization[] jobs = new Organization[5];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = new Organization("Организация " + i, "http://organization" + i + ".ru",
+                    new Period(2010 - 2 * i, Calendar.JANUARY, 2011 - 2 * i, Calendar.DECEMBER, "Позиция " + i, "Обязанности " + i),
+                    new Period(2009 - 2 * i, Calendar.MARCH, 2010 - 2 * i, Calendar.JANUARY, "Позиция " + i + "a", "Обязанности " + i + "a"));
+        }
+        r.addSection(SectionType.EXPERIENCE, jobs);
+        r.addSection(SectionType.EDUCATION,
+                new Organization("Университет", "http://university.ru",
+                        new Period(1987, Calendar.SEPTEMBER, 1993, Calendar.JULY, "Инженер", null)));
+        return r;
+    }
+}
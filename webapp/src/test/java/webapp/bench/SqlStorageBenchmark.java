@@ -0,0 +1,116 @@
+package webapp.bench;
+
+import webapp.model.ContactType;
+import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.sql.EmbeddedConnection;
+import webapp.sql.QueryTrace;
+import webapp.sql.SchemaMigrator;
+import webapp.sql.Sql;
+import webapp.sql.TracingConnectionFactory;
+import webapp.storage.SqlStorage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Основные операции SqlStorage на встроенной H2, без внешнего PostgreSQL: время и число SQL запросов.
+ * Запуск: main из IDE или
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=webapp.bench.SqlStorageBenchmark}
+ * <pre>
+ * аргументы: [число резюме, по умолчанию 10000] [файл базы, по умолчанию база в памяти]
+ * </pre>
+ * Абсолютные числа H2 не переносятся на PostgreSQL, сравнивать стоит прогоны до и после изменения
+ * и число запросов на операцию.
+ */
+public class SqlStorageBenchmark {
+    private static final int BATCH = 500;
+    private static final int OPERATIONS = 1000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Sql.CONN_FACTORY = new TracingConnectionFactory(args.length > 1
+                ? EmbeddedConnection.file(new File(args[1]))
+                : EmbeddedConnection.inMemory("webapp_bench"), 0);
+        new SchemaMigrator("db", 0).migrate();
+        SqlStorage storage = new SqlStorage();
+        storage.clear();
+
+        List<Resume> resumes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            resumes.add(resume(i));
+        }
+        QueryTrace trace = QueryTrace.begin("saveAll");
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i += BATCH) {
+            storage.saveAll(resumes.subList(i, Math.min(i + BATCH, count)));
+        }
+        report(trace, start, count);
+
+        Random random = new Random(0);
+        trace = QueryTrace.begin("load");
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            storage.load(resumes.get(random.nextInt(count)).getUuid());
+        }
+        report(trace, start, OPERATIONS);
+
+        trace = QueryTrace.begin("update");
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            Resume r = resumes.get(random.nextInt(count));
+            r.setLocation("Город " + i);
+            storage.update(r);
+        }
+        report(trace, start, OPERATIONS);
+
+        trace = QueryTrace.begin("page");
+        start = System.nanoTime();
+        int pages = Math.max(count / 100, 1);
+        for (int page = 0; page < pages; page++) {
+            storage.forEachSorted(page * 100, 100, r -> {
+            });
+        }
+        report(trace, start, pages);
+
+        trace = QueryTrace.begin("contact");
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            storage.findByContact(ContactType.MAIL, "user" + random.nextInt(count) + "@mail.ru");
+        }
+        report(trace, start, OPERATIONS);
+
+        trace = QueryTrace.begin("search");
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            storage.search("java " + random.nextInt(count), 20);
+        }
+        report(trace, start, 100);
+
+        trace = QueryTrace.begin("similar");
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            storage.findSimilarByName("Ивонов Пётр " + random.nextInt(count), 10);
+        }
+        report(trace, start, 100);
+        storage.clear();
+    }
+
+    private static void report(QueryTrace trace, long start, int operations) {
+        long nanos = System.nanoTime() - start;
+        QueryTrace.end();
+        System.out.printf("%-8s %8.1f ms %10.1f op/s %6.2f queries/op%n", trace.getName(), nanos / 1e6,
+                operations * 1e9 / nanos, (double) trace.getCount() / operations);
+    }
+
+    private static Resume resume(int i) {
+        Resume r = new Resume("Иванов Пётр " + i, "Москва");
+        r.addContact(ContactType.MAIL, "user" + i + "@mail.ru");
+        r.addContact(ContactType.PHONE, "+7 921 " + i);
+        r.addSection(SectionType.OBJECTIVE, "Java разработчик " + i);
+        r.addSection(SectionType.QUALIFICATIONS, "Java, SQL", "Spring Framework", "PostgreSQL");
+        return r;
+    }
+}
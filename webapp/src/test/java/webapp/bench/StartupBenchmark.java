@@ -0,0 +1,73 @@
+package webapp.bench;
+
+import webapp.Config;
+import webapp.model.*;
+import webapp.sql.Sql;
+import webapp.storage.IStorage;
+import webapp.storage.XmlStorage;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Calendar;
+
+/**
+ * Холодный старт: что успевает сделать ResumeServlet.init и что откладывается до первого запроса.
+ * Запускать в отдельной JVM (каждый запуск - один замер), например
+ * {@code mvn -Pappcds verify} - с архивом AppCDS и без.
+ * <pre>
+ * jvm        от старта JVM до main
+ * config     загрузка webapp.properties и logging.properties
+ * storage    Config.getStorage() - то, что ждёт init сервлета (для sql - и проверка миграций схемы)
+ * warmUp     JAXB-контекст и драйвер БД (в приложении - в фоновом потоке)
+ * xml first  первая запись и чтение XmlStorage после warmUp
+ * xml next   то же во второй раз
+ * </pre>
+ */
+public class StartupBenchmark {
+    private static long last;
+
+    public static void main(String[] args) throws Exception {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.printf("%-10s %6d ms%n", "jvm", System.currentTimeMillis() - jvmStart);
+        last = System.nanoTime();
+        long start = last;
+
+        Class.forName(Config.class.getName());
+        phase("config");
+        IStorage storage = Config.getStorage();
+        phase("storage");
+
+        File dir = Files.createTempDirectory("startup_bench").toFile();
+        XmlStorage xml = new XmlStorage(dir.getAbsolutePath());
+        xml.warmUp();
+        Sql.CONN_FACTORY.warmUp();
+        storage.warmUp();
+        phase("warmUp");
+
+        for (String name : new String[]{"xml first", "xml next"}) {
+            Resume r = resume();
+            xml.save(r);
+            xml.load(r.getUuid());
+            phase(name);
+        }
+        xml.clear();
+        dir.delete();
+        System.out.printf("%-10s %6d ms%n", "total", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void phase(String name) {
+        long now = System.nanoTime();
+        System.out.printf("%-10s %6.1f ms%n", name, (now - last) / 1e6);
+        last = now;
+    }
+
+    private static Resume resume() {
+        Resume r = new Resume("Полное Имя", "Москва");
+        r.addContact(ContactType.MAIL, "mail@ya.ru");
+        r.addSection(SectionType.OBJECTIVE, "Objective");
+        r.addSection(SectionType.EXPERIENCE, new Organization("Organization", "http://organization.ru",
+                new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position", "content")));
+        return r;
+    }
+}
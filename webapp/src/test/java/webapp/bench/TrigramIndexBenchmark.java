@@ -0,0 +1,112 @@
+package webapp.bench;
+
+import webapp.search.TrigramIndex;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка нечёткого поиска по имени на 100 000 резюме против бюджета AbstractStorage (50 мс)
+ * и полнота выдачи относительно перебора всех имён.
+ * Запуск: main из IDE или
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=webapp.bench.TrigramIndexBenchmark}
+ * <pre>
+ * аргументы: [число резюме, по умолчанию 100000] [число запросов, по умолчанию 2000]
+ * </pre>
+ * Имена собраны из небольших словарей, поэтому частые триграммы встречаются у десятков тысяч
+ * резюме - худший случай для индекса.
+ */
+public class TrigramIndexBenchmark {
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int LIMIT = 10;
+    private static final int RECALL_QUERIES = 50;
+
+    private static final String[] SURNAMES = {"Иванов", "Петров", "Сидоров", "Смирнов", "Кузнецов", "Попов", "Васильев",
+            "Соколов", "Михайлов", "Новиков", "Фёдоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семёнов", "Егоров",
+            "Павлов", "Козлов", "Степанов", "Николаев", "Орлов", "Андреев", "Макаров", "Никитин", "Захаров", "Зайцев",
+            "Соловьёв", "Борисов", "Яковлев", "Григорьев", "Романов", "Воробьёв", "Сергеев", "Кузьмин", "Фролов",
+            "Александров", "Дмитриев", "Королёв", "Гусев", "Киселёв", "Ильин", "Максимов", "Поляков", "Сорокин",
+            "Виноградов", "Ковалёв", "Белов", "Медведев", "Антонов", "Тарасов", "Жуков", "Баранов", "Филиппов",
+            "Комаров", "Давыдов", "Беляев", "Герасимов", "Богданов", "Осипов", "Сидоренко", "Щербаков", "Шевченко"};
+    private static final String[] NAMES = {"Иван", "Пётр", "Алексей", "Сергей", "Андрей", "Дмитрий", "Михаил",
+            "Николай", "Александр", "Евгений", "Владимир", "Павел", "Артём", "Максим", "Роман", "Олег", "Юрий",
+            "Анна", "Мария", "Елена", "Ольга", "Наталья", "Татьяна", "Ирина", "Светлана", "Екатерина"};
+    private static final String[] PATRONYMICS = {"Иванович", "Петрович", "Сергеевич", "Андреевич", "Дмитриевич",
+            "Михайлович", "Николаевич", "Александрович", "Владимирович", "Павлович", "Ивановна", "Петровна",
+            "Сергеевна", "Андреевна", "Дмитриевна", "Михайловна", "Николаевна", "Александровна"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        Random random = new Random(0);
+
+        String[] names = new String[count];
+        TrigramIndex index = new TrigramIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            names[i] = name(random);
+            index.add(String.valueOf(i), names[i]);
+        }
+        System.out.printf("index    %d names in %.0f ms%n", count, (System.nanoTime() - start) / 1e6);
+
+        // прогрев JIT
+        for (int i = 0; i < 500; i++) {
+            index.search(typo(random, name(random)), LIMIT, BUDGET_NANOS);
+        }
+
+        long[] nanos = new long[queries];
+        int overBudget = 0;
+        for (int i = 0; i < queries; i++) {
+            String query = typo(random, names[random.nextInt(count)]);
+            long t = System.nanoTime();
+            index.search(query, LIMIT, BUDGET_NANOS);
+            nanos[i] = System.nanoTime() - t;
+            if (nanos[i] > BUDGET_NANOS) overBudget++;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("search   p50 %.2f ms, p99 %.2f ms, max %.2f ms, over budget %d of %d%n",
+                nanos[queries / 2] / 1e6, nanos[queries * 99 / 100] / 1e6, nanos[queries - 1] / 1e6, overBudget, queries);
+
+        // полнота: доля лучших по перебору, попавших в выдачу с бюджетом
+        int expected = 0;
+        int found = 0;
+        for (int i = 0; i < RECALL_QUERIES; i++) {
+            String query = typo(random, names[random.nextInt(count)]);
+            List<Float> hits = new ArrayList<>();
+            for (TrigramIndex.Match m : index.search(query, LIMIT, BUDGET_NANOS)) {
+                hits.add(m.getSimilarity());
+            }
+            for (Float similarity : bruteForce(names, query)) {
+                expected++;
+                if (hits.remove(similarity)) found++;
+            }
+        }
+        System.out.printf("recall   %.1f%% of top-%d by similarity%n", 100.0 * found / expected, LIMIT);
+    }
+
+    // сходство лучших LIMIT имён; uuid при равном сходстве могут отличаться, сравниваются только значения
+    private static List<Float> bruteForce(String[] names, String query) {
+        List<Float> all = new ArrayList<>();
+        for (String name : names) {
+            float similarity = TrigramIndex.similarity(query, name);
+            if (similarity >= TrigramIndex.THRESHOLD) all.add(similarity);
+        }
+        all.sort(Collections.reverseOrder());
+        return all.subList(0, Math.min(LIMIT, all.size()));
+    }
+
+    private static String name(Random random) {
+        return SURNAMES[random.nextInt(SURNAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)] + " "
+                + PATRONYMICS[random.nextInt(PATRONYMICS.length)];
+    }
+
+    // перестановка двух соседних букв в случайном месте
+    private static String typo(Random random, String name) {
+        char[] chars = name.toCharArray();
+        int i = random.nextInt(chars.length - 1);
+        char c = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = c;
+        return new String(chars);
+    }
+}
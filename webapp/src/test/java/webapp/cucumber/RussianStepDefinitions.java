@@ -5,6 +5,8 @@ import io.cucumber.java.ru.*;
 import io.cucumber.java.en.*;
 import webapp.WebAppException;
 import webapp.model.*;
+import webapp.sql.EmbeddedDb;
+import webapp.sql.QueryTrace;
 import webapp.storage.*;
 import webapp.model.Organization;
 import webapp.model.Period;
@@ -240,6 +242,10 @@ public class RussianStepDefinitions {
             case "MAP":
                 storage = new MapStorage();
                 break;
+            case "SQL":
+                // SqlStorage на встроенной H2
+                storage = EmbeddedDb.storage();
+                break;
             default:
                 throw new IllegalArgumentException("Неизвестный тип хранилища: " + type);
         }
@@ -684,14 +690,8 @@ public class RussianStepDefinitions {
         // Сохраняем поисковый запрос для дальнейшего использования
         testContext.put("searchQuery", searchQuery);
 
-        // Выполняем поиск среди резюме
-        List<Resume> searchResults = new ArrayList<>();
-        for (Resume resume : testResumes) {
-            if (resume.getFullName().toLowerCase().contains(searchQuery.toLowerCase()) ||
-                resume.getLocation().toLowerCase().contains(searchQuery.toLowerCase())) {
-                searchResults.add(resume);
-            }
-        }
+        // Поиск выполняет само хранилище (индекс в памяти или tsvector в SqlStorage)
+        List<Resume> searchResults = storage.search(searchQuery, testResumes.size());
 
         testContext.put("searchResults", searchResults);
         searchTime = System.currentTimeMillis();
@@ -2742,6 +2742,14 @@ public class RussianStepDefinitions {
 
     @Когда("я загружаю страницу с резюме и всеми связанными данными")
     public void iLoadPageWithResumeAndAllRelatedData() {
+        QueryTrace.begin("page");
+        try {
+            for (Resume r : storage.getAllSorted()) {
+                storage.load(r.getUuid());
+            }
+        } finally {
+            testContext.put("queryTrace", QueryTrace.end());
+        }
         testContext.put("pageLoaded", true);
     }
 
@@ -2930,6 +2938,8 @@ public class RussianStepDefinitions {
     @Тогда("должно быть выполнено не более {int} SQL запросов")
     public void noMoreThanSqlQueriesShouldBeExecuted(int maxQueries) {
         testContext.put("maxSqlQueries", maxQueries);
+        QueryTrace trace = (QueryTrace) testContext.get("queryTrace");
+        if (trace != null) trace.assertAtMost(maxQueries);
     }
 
     @Тогда("должно быть отправлено письмо подтверждения")
@@ -3041,6 +3051,8 @@ public class RussianStepDefinitions {
     @Тогда("не должно быть N+{int} проблем")
     public void thereShouldBeNoNPlusOneProblems(int n) {
         testContext.put("noNPlusOne", true);
+        QueryTrace trace = (QueryTrace) testContext.get("queryTrace");
+        if (trace != null) trace.assertNoRepeated();
     }
 
     @Тогда("все запросы должны использовать индексы")
@@ -0,0 +1,132 @@
+package webapp.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+    private static final String[] SURNAMES = {"Иванов", "Петров", "Сидоров", "Смирнов", "Кузнецов", "Попов", "Васильев", "Соколов", "Михайлов", "Новиков"};
+    private static final String[] NAMES = {"Иван", "Пётр", "Алексей", "Сергей", "Андрей", "Дмитрий", "Михаил", "Николай"};
+
+    @Test
+    public void testTypos() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("1", "Щербаков Алексей");
+        index.add("2", "Иванов Пётр");
+        index.add("3", "Петров Иван");
+
+        List<TrigramIndex.Match> found = index.search("Щербокав Алексей", 10, Long.MAX_VALUE);
+        assertEquals(1, found.size());
+        assertEquals("1", found.get(0).getUuid());
+        assertEquals(TrigramIndex.similarity("Щербокав Алексей", "Щербаков Алексей"), found.get(0).getSimilarity());
+
+        found = index.search("иванов петр", 10, Long.MAX_VALUE);
+        assertEquals("2", found.get(0).getUuid());
+        assertEquals(1f, found.get(0).getSimilarity());
+        assertTrue(index.search("Ким", 10, Long.MAX_VALUE).isEmpty());
+        assertTrue(index.search("", 10, Long.MAX_VALUE).isEmpty());
+
+        index.remove("1");
+        assertTrue(index.search("Щербаков", 10, Long.MAX_VALUE).isEmpty());
+        index.add("2", "Щербаков Алексей");
+        assertEquals("2", index.search("Щербаков", 10, Long.MAX_VALUE).get(0).getUuid());
+        assertTrue(index.search("Иванов Пётр", 10, Long.MAX_VALUE).stream().noneMatch(m -> m.getUuid().equals("2")));
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Map<String, String> names = names(5000, 1);
+        TrigramIndex index = index(names);
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            String query = typo(random, SURNAMES[random.nextInt(SURNAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)]);
+            assertEquals(toString(bruteForce(names, query, 20)), toString(index.search(query, 20, Long.MAX_VALUE)), query);
+        }
+    }
+
+    // бюджет исчерпан: выдача неполная, но сходство найденного посчитано точно и не ниже порога
+    @Test
+    public void testExpiredBudget() {
+        Map<String, String> names = names(20000, 3);
+        TrigramIndex index = index(names);
+        String query = "Иванов Иван";
+        List<TrigramIndex.Match> found = index.search(query, 50, 0);
+        assertFalse(found.isEmpty());
+        for (TrigramIndex.Match m : found) {
+            assertEquals(TrigramIndex.similarity(query, names.get(m.getUuid())), m.getSimilarity(), names.get(m.getUuid()));
+            assertTrue(m.getSimilarity() >= TrigramIndex.THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testUpdatesAndCompaction() {
+        Map<String, String> names = names(3000, 4);
+        TrigramIndex index = index(names);
+        // больше половины удалено или переименовано - номера уплотняются
+        Random random = new Random(5);
+        for (int i = 0; i < 2500; i++) {
+            String uuid = String.format("%08d", i);
+            if (random.nextBoolean()) {
+                index.remove(uuid);
+                names.remove(uuid);
+            } else {
+                String name = typo(random, SURNAMES[random.nextInt(SURNAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)]);
+                index.add(uuid, name);
+                names.put(uuid, name);
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            String query = SURNAMES[random.nextInt(SURNAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)];
+            assertEquals(toString(bruteForce(names, query, 20)), toString(index.search(query, 20, Long.MAX_VALUE)), query);
+        }
+        index.clear();
+        assertTrue(index.search("Иванов Иван", 10, Long.MAX_VALUE).isEmpty());
+    }
+
+    private static TrigramIndex index(Map<String, String> names) {
+        TrigramIndex index = new TrigramIndex();
+        for (Map.Entry<String, String> e : names.entrySet()) {
+            index.add(e.getKey(), e.getValue());
+        }
+        return index;
+    }
+
+    private static List<TrigramIndex.Match> bruteForce(Map<String, String> names, String query, int limit) {
+        List<TrigramIndex.Match> all = new ArrayList<>();
+        for (Map.Entry<String, String> e : names.entrySet()) {
+            float similarity = TrigramIndex.similarity(query, e.getValue());
+            if (similarity >= TrigramIndex.THRESHOLD) all.add(new TrigramIndex.Match(e.getKey(), similarity));
+        }
+        all.sort(Comparator.comparingDouble(TrigramIndex.Match::getSimilarity).reversed().thenComparing(TrigramIndex.Match::getUuid));
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    private static List<String> toString(List<TrigramIndex.Match> matches) {
+        List<String> result = new ArrayList<>();
+        for (TrigramIndex.Match m : matches) {
+            result.add(m.getUuid() + "=" + m.getSimilarity());
+        }
+        return result;
+    }
+
+    private static Map<String, String> names(int count, long seed) {
+        Random random = new Random(seed);
+        Map<String, String> names = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            names.put(String.format("%08d", i), typo(random, SURNAMES[random.nextInt(SURNAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)]));
+        }
+        return names;
+    }
+
+    // перестановка двух соседних букв в случайном месте
+    private static String typo(Random random, String name) {
+        char[] chars = name.toCharArray();
+        int i = random.nextInt(chars.length - 1);
+        char c = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = c;
+        return new String(chars);
+    }
+}
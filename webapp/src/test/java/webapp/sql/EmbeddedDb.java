@@ -0,0 +1,24 @@
+package webapp.sql;
+
+import webapp.storage.SqlStorage;
+
+/**
+ * Общая база H2 в памяти для тестов SqlStorage: соединения идут в неё вместо PostgreSQL
+ * из webapp.properties, схема мигрирует один раз на JVM
+ */
+public final class EmbeddedDb {
+    private static final ConnectionFactory FACTORY = new TracingConnectionFactory(EmbeddedConnection.inMemory("webapp_test"), 0);
+    private static boolean migrated;
+
+    private EmbeddedDb() {
+    }
+
+    public static synchronized SqlStorage storage() {
+        Sql.CONN_FACTORY = FACTORY;
+        if (!migrated) {
+            new SchemaMigrator("db", 0).migrate();
+            migrated = true;
+        }
+        return new SqlStorage();
+    }
+}
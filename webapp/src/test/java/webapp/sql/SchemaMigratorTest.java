@@ -0,0 +1,186 @@
+package webapp.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import webapp.WebAppException;
+import webapp.storage.SqlStorage;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Разбор скриптов, миграции и планы запросов - на встроенной H2; планы в PostgreSQL - только при доступном PostgreSQL из webapp.properties
+ */
+public class SchemaMigratorTest {
+    private ConnectionFactory factory;
+
+    @BeforeEach
+    public void before() {
+        factory = Sql.CONN_FACTORY;
+    }
+
+    @AfterEach
+    public void after() {
+        Sql.CONN_FACTORY = factory;
+    }
+
+    @Test
+    public void testSplit() {
+        assertEquals(Arrays.asList(
+                        "CREATE TABLE t (a TEXT)",
+                        "INSERT INTO t VALUES ('a;b'), ('it''s')",
+                        "CREATE FUNCTION f() RETURNS INT AS $$ SELECT 1; $$ LANGUAGE SQL",
+                        "SELECT \"x;y\"   FROM t"),
+                SchemaMigrator.split("-- комментарий; не команда\n" +
+                        "CREATE TABLE t (a TEXT);\n" +
+                        "INSERT INTO t VALUES ('a;b'), ('it''s');\n" +
+                        "CREATE FUNCTION f() RETURNS INT AS $$ SELECT 1; $$ LANGUAGE SQL;\n" +
+                        "SELECT \"x;y\" /* ; */ FROM t;\n" +
+                        ";\n-- конец"));
+    }
+
+    @Test
+    public void testChecksum() {
+        String checksum = SchemaMigrator.checksum("SELECT 1;\n");
+        assertEquals(64, checksum.length());
+        assertEquals(checksum, SchemaMigrator.checksum("SELECT 1;\r\n"));
+        assertNotEquals(checksum, SchemaMigrator.checksum("SELECT 2;\n"));
+    }
+
+    @Test
+    public void testLoad() {
+        List<SchemaMigrator.Migration> migrations = new SchemaMigrator("db", 0).load(Dialect.POSTGRESQL);
+        assertTrue(migrations.size() >= 7);
+        for (int i = 0; i < migrations.size(); i++) {
+            assertEquals(i + 1, migrations.get(i).version);
+            assertFalse(SchemaMigrator.split(migrations.get(i).script).isEmpty(), migrations.get(i).name);
+        }
+        // скрипты H2 заменяют общие, недостающие берутся общие
+        List<SchemaMigrator.Migration> h2 = new SchemaMigrator("db", 0).load(Dialect.H2);
+        assertEquals(migrations.size(), h2.size());
+        assertEquals("h2/CREATE_001.sql", h2.get(0).name);
+        assertEquals("CREATE_005.sql", h2.get(4).name);
+    }
+
+    @Test
+    public void testMigrateEmbedded() throws SQLException {
+        Sql.CONN_FACTORY = EmbeddedConnection.inMemory("webapp_migrate");
+        SchemaMigrator migrator = new SchemaMigrator("db", 0);
+        int count = migrator.load(Dialect.H2).size();
+        assertEquals(count, migrator.migrate());
+        // повторный запуск ничего не применяет
+        assertEquals(0, migrator.migrate());
+
+        try (Connection conn = Sql.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("UPDATE schema_version SET checksum='changed' WHERE version=1");
+        }
+        WebAppException e = assertThrows(WebAppException.class, migrator::migrate);
+        assertTrue(e.getMessage().contains("CREATE_001.sql"));
+    }
+
+    @Test
+    public void testBaseline() throws SQLException {
+        Sql.CONN_FACTORY = EmbeddedConnection.inMemory("webapp_baseline");
+        // схема до 001 включительно создана вручную
+        try (Connection conn = Sql.getConnection(); Statement st = conn.createStatement()) {
+            for (String sql : SchemaMigrator.split(new SchemaMigrator("db", 0).load(Dialect.H2).get(0).script)) {
+                st.execute(sql);
+            }
+        }
+        SchemaMigrator migrator = new SchemaMigrator("db", 1);
+        assertEquals(migrator.load(Dialect.H2).size() - 1, migrator.migrate());
+    }
+
+    @Test
+    public void testExistingSchemaWithoutBaseline() throws SQLException {
+        Sql.CONN_FACTORY = EmbeddedConnection.inMemory("webapp_no_baseline");
+        try (Connection conn = Sql.getConnection(); Statement st = conn.createStatement()) {
+            for (String sql : SchemaMigrator.split(new SchemaMigrator("db", 0).load(Dialect.H2).get(0).script)) {
+                st.execute(sql);
+            }
+        }
+        WebAppException e = assertThrows(WebAppException.class, () -> new SchemaMigrator("db", 0).migrate());
+        assertTrue(e.getMessage().contains("storage.baseline"), e.getMessage());
+    }
+
+    @Test
+    public void testStorageMigratesOnFirstUse() throws SQLException {
+        Sql.CONN_FACTORY = EmbeddedConnection.inMemory("webapp_lazy");
+        SqlStorage storage = new SqlStorage(new SchemaMigrator("db", 0));
+        // создание хранилища к базе не обращается
+        assertFalse(hasTable(SchemaMigrator.TABLE));
+        assertEquals(0, storage.size());
+        assertTrue(hasTable(SchemaMigrator.TABLE));
+    }
+
+    // индексы CREATE_007 на H2, без внешней базы
+    @Test
+    public void testIndexesUsedEmbedded() throws SQLException {
+        Sql.CONN_FACTORY = EmbeddedConnection.inMemory("webapp_explain");
+        new SchemaMigrator("db", 0).migrate();
+        try (Connection conn = Sql.getConnection(); Statement st = conn.createStatement()) {
+            assertPlan(st, "SELECT uuid FROM resume ORDER BY full_name, uuid LIMIT 20 OFFSET 40", "resume_full_name_uuid_idx");
+            // внешний ключ H2 ведёт своим индексом по resume_uuid и выбирает его: сортировку по id
+            // индекс (resume_uuid, id) в H2 не экономит. Разделы ищутся по индексу, не полным просмотром,
+            // а индекс из CREATE_007 подходит к тому же условию
+            assertPlan(st, "SELECT type, \"values\" FROM text_section WHERE resume_uuid='00000000-0000-0000-0000-000000000000' ORDER BY id", ": resume_uuid = ");
+            assertPlan(st, "SELECT type, \"values\" FROM text_section USE INDEX (text_section_resume_uuid_idx) WHERE resume_uuid='00000000-0000-0000-0000-000000000000' ORDER BY id", "text_section_resume_uuid_idx: resume_uuid = ");
+        }
+    }
+
+    @Test
+    public void testIndexesUsed() throws SQLException {
+        Sql.CONN_FACTORY = new DirectConnection();
+        assumeTrue(available(), "PostgreSQL is not available");
+        SchemaMigrator migrator = new SchemaMigrator("db", 0);
+        migrator.migrate();
+        assertEquals(0, migrator.migrate());
+
+        // на пустой таблице планировщик всё равно выбрал бы полный просмотр
+        try (Connection conn = Sql.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("SET enable_seqscan = off");
+            assertPlan(st, "SELECT uuid FROM resume ORDER BY full_name, uuid LIMIT 20 OFFSET 40", "resume_full_name_uuid_idx");
+            assertPlan(st, "SELECT type, \"values\" FROM text_section WHERE resume_uuid='00000000-0000-0000-0000-000000000000' ORDER BY id", "text_section_resume_uuid_idx");
+            assertPlan(st, "SELECT type, value FROM contact WHERE resume_uuid='00000000-0000-0000-0000-000000000000'", "contact_idx");
+            assertPlan(st, "SELECT resume_uuid FROM contact WHERE type='MAIL' AND lower(value)='a@b.ru'", "contact_type_value_idx");
+        }
+    }
+
+    private static void assertPlan(Statement st, String sql, String index) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet rs = st.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        // H2 пишет имена индексов в верхнем регистре
+        assertTrue(plan.toString().toLowerCase().contains(index), sql + " doesn't use " + index + ":\n" + plan);
+    }
+
+    private static boolean hasTable(String table) throws SQLException {
+        try (Connection conn = Sql.getConnection();
+             ResultSet rs = conn.getMetaData().getTables(null, null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private static boolean available() {
+        try (Connection conn = Sql.getConnection()) {
+            return conn.isValid(1);
+        } catch (SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+}
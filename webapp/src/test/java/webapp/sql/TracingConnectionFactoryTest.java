@@ -0,0 +1,110 @@
+package webapp.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Трассировка на фальшивом соединении: каждый SELECT отдаёт 3 строки, UPDATE меняет 2
+ */
+public class TracingConnectionFactoryTest {
+    private static final int ROWS = 3;
+
+    private final ConnectionFactory factory = new TracingConnectionFactory(new ConnectionFactory() {
+        @Override
+        public Connection getConnection() {
+            return fake(Connection.class, (proxy, method, args) ->
+                    method.getName().equals("prepareStatement") ? statement() : null);
+        }
+    }, 0);
+
+    @AfterEach
+    public void after() {
+        QueryTrace.end();
+    }
+
+    @Test
+    public void testTrace() throws SQLException {
+        QueryTrace trace = QueryTrace.begin("test");
+        try (Connection conn = factory.getConnection()) {
+            query(conn, "SELECT * FROM resume");
+            for (int i = 0; i < 2; i++) {
+                query(conn, "SELECT * FROM contact WHERE resume_uuid=?");
+            }
+            try (PreparedStatement st = conn.prepareStatement("UPDATE resume SET full_name=?")) {
+                st.executeUpdate();
+            }
+        }
+        assertEquals(trace, QueryTrace.end());
+        assertNull(QueryTrace.current());
+
+        assertEquals(4, trace.getCount());
+        assertEquals(ROWS, trace.getQueries().get(0).getRows());
+        assertEquals(2, trace.getQueries().get(3).getRows());
+        assertEquals(1, trace.getRepeated().size());
+        assertEquals(Integer.valueOf(2), trace.getRepeated().get("SELECT * FROM contact WHERE resume_uuid=?"));
+
+        trace.assertAtMost(4);
+        assertThrows(AssertionError.class, () -> trace.assertAtMost(3));
+        AssertionError e = assertThrows(AssertionError.class, trace::assertNoRepeated);
+        assertTrue(e.getMessage().contains("repeated 2 times"));
+    }
+
+    @Test
+    public void testNoTrace() throws SQLException {
+        try (Connection conn = factory.getConnection()) {
+            query(conn, "SELECT 1");
+        }
+        assertNull(QueryTrace.current());
+    }
+
+    private static void query(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement(sql)) {
+            ResultSet rs = st.executeQuery();
+            while (rs.next()) {
+                rs.getString(1);
+            }
+        }
+    }
+
+    private static PreparedStatement statement() {
+        return fake(PreparedStatement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return resultSet();
+                case "executeUpdate":
+                    return 2;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static ResultSet resultSet() {
+        final int[] row = {0};
+        return fake(ResultSet.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] <= ROWS;
+                case "getString":
+                    return "value" + row[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static <T> T fake(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -1,11 +1,55 @@
 package webapp.storage;
 
+import org.junit.jupiter.api.Test;
+import webapp.model.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * User: gkislin
  * Date: 18.04.2014
  */
 public class DataStreamStorageTest extends StorageTest {
+    private static final String LEGACY_UUID = "2f1c5b1e-6d1a-4c1e-9b5a-3e2d4c5b6a70";
+
     static {
         storage = new DataStreamStorage(STORAGE_DIR);
     }
+
+    // файл без заголовка, даты периодов - Date.getTime() с днём и временем, без версии
+    @Test
+    public void testLegacyFormat() throws Exception {
+        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(new File(STORAGE_DIR, LEGACY_UUID)))) {
+            dos.writeUTF("Полное Имя4");
+            dos.writeUTF("null");
+            dos.writeInt(1);
+            dos.writeUTF(ContactType.MAIL.name());
+            dos.writeUTF("mail4@ya.ru");
+            dos.writeInt(1);
+            dos.writeUTF(SectionType.EXPERIENCE.name());
+            dos.writeInt(1);
+            dos.writeUTF("Organization41");
+            dos.writeUTF("null");
+            dos.writeInt(1);
+            dos.writeLong(new GregorianCalendar(2005, Calendar.JANUARY, 19, 11, 3).getTimeInMillis());
+            dos.writeLong(new GregorianCalendar(2008, Calendar.DECEMBER, 15, 12, 0).getTimeInMillis());
+            dos.writeUTF("position1");
+            dos.writeUTF("content1");
+        }
+        Resume expected = new Resume(LEGACY_UUID, "Полное Имя4", null);
+        expected.addContact(ContactType.MAIL, "mail4@ya.ru");
+        expected.addSection(SectionType.EXPERIENCE, new Organization("Organization41", null,
+                new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position1", "content1")));
+        assertEquals(expected, storage.load(LEGACY_UUID));
+
+        // после update файл в новом формате
+        storage.update(expected);
+        assertEquals(expected, storage.load(LEGACY_UUID));
+    }
 }
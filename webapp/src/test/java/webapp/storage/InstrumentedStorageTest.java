@@ -0,0 +1,38 @@
+package webapp.storage;
+
+import org.junit.jupiter.api.Test;
+import webapp.WebAppException;
+import webapp.metrics.Metrics;
+import webapp.model.Resume;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Общие тесты хранилища через метрики, плюс подсчёт вызовов и ошибок
+ */
+public class InstrumentedStorageTest extends StorageTest {
+    static {
+        storage = new InstrumentedStorage(new MapStorage(), "test.storage");
+    }
+
+    @Test
+    public void testMetrics() {
+        IStorage instrumented = new InstrumentedStorage(new MapStorage(), "test.metrics");
+        Resume r = new Resume("Имя", null);
+        instrumented.save(r);
+        instrumented.load(r.getUuid());
+        instrumented.load(r.getUuid());
+        assertThrows(WebAppException.class, () -> instrumented.load("dummy"));
+
+        Map<String, Number> snapshot = Metrics.snapshot();
+        assertEquals(1L, snapshot.get("test.metrics.save.count"));
+        assertEquals(3L, snapshot.get("test.metrics.load.count"));
+        assertEquals(1L, snapshot.get("test.metrics.load.errors"));
+        assertTrue(snapshot.get("test.metrics.load.p99Millis").doubleValue() >= snapshot.get("test.metrics.load.p50Millis").doubleValue());
+        assertTrue(snapshot.get("test.metrics.load.maxMillis").doubleValue() > 0);
+    }
+}
@@ -1,5 +1,19 @@
 package webapp.storage;
 
+import org.junit.jupiter.api.Test;
+import webapp.WebAppException;
+import webapp.model.Resume;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static webapp.model.ContactType.MAIL;
+
 /**
  * User: gkislin
  * Date: 18.04.2014
@@ -8,4 +22,96 @@ public class MapStorageTest extends StorageTest {
     static {
         storage = new MapStorage();
     }
+
+    @Test
+    public void testSaveDuringIndexBuild() throws Exception {
+        final Resume late = new Resume("Поздний Писатель", null);
+        final CountDownLatch saved = new CountDownLatch(1);
+        final AtomicBoolean armed = new AtomicBoolean();
+        final Thread[] writer = new Thread[1];
+        MapStorage map = new MapStorage() {
+            @Override
+            protected void doSave(String uuid, Resume r) {
+                super.doSave(uuid, r);
+                if (r.getUuid().equals(late.getUuid())) saved.countDown();
+            }
+
+            // резюме сохраняется после снимка для индекса, но до его публикации
+            @Override
+            protected List<Resume> doGetAll() {
+                List<Resume> all = super.doGetAll();
+                if (armed.compareAndSet(true, false)) {
+                    writer[0] = new Thread(() -> save(late));
+                    writer[0].start();
+                    try {
+                        saved.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return all;
+            }
+        };
+        map.save(new Resume("Полное Имя", null));
+        armed.set(true);
+        assertEquals(1, map.search("полное", 10).size());
+        writer[0].join();
+        assertEquals(Collections.singletonList(late), map.search("писатель", 10));
+    }
+
+    @Test
+    public void testWritesDontBuildSecondaryIndex() {
+        final AtomicInteger scans = new AtomicInteger();
+        MapStorage map = new MapStorage() {
+            @Override
+            protected List<Resume> doGetAll() {
+                scans.incrementAndGet();
+                return super.doGetAll();
+            }
+        };
+        Resume r = new Resume("Полное Имя", null);
+        r.addContact(MAIL, "mail@ya.ru");
+        map.save(r);
+        r.setLocation("Москва");
+        map.update(r);
+        map.delete(r.getUuid());
+        assertEquals(0, scans.get());
+
+        map.save(r);
+        assertEquals(Collections.singletonList(r), map.findByContact(MAIL, "mail@ya.ru"));
+        assertEquals(1, scans.get());
+        // после построения индекс обновляется записью
+        map.delete(r.getUuid());
+        assertEquals(Collections.emptyList(), map.findByContact(MAIL, "mail@ya.ru"));
+        assertEquals(1, scans.get());
+    }
+
+    @Test
+    public void testFailedUpdateKeepsVersion() {
+        final AtomicBoolean fail = new AtomicBoolean();
+        MapStorage map = new MapStorage() {
+            @Override
+            protected void doUpdate(String uuid, Resume r) {
+                if (fail.get()) throw new WebAppException("Disk is full");
+                super.doUpdate(uuid, r);
+            }
+        };
+        Resume r = new Resume("Полное Имя", null);
+        map.save(r);
+
+        fail.set(true);
+        Resume failed = new Resume(r.getUuid(), "Неудачное Имя", null);
+        failed.setVersion(1);
+        assertThrows(WebAppException.class, () -> map.update(failed));
+        assertEquals(1, failed.getVersion());
+        assertEquals(1, map.getVersion(r.getUuid()).getResumeVersion());
+
+        // версия не сдвинулась: обновление с той же версией проходит
+        fail.set(false);
+        Resume next = new Resume(r.getUuid(), "Новое Имя", null);
+        next.setVersion(1);
+        map.update(next);
+        assertEquals(2, map.load(r.getUuid()).getVersion());
+        assertEquals(2, map.getVersion(r.getUuid()).getResumeVersion());
+    }
 }
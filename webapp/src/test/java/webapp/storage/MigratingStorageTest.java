@@ -0,0 +1,138 @@
+package webapp.storage;
+
+import org.junit.jupiter.api.Test;
+import webapp.model.Resume;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Общие тесты хранилища через двойную запись, плюс перенос уже существующих резюме
+ */
+public class MigratingStorageTest extends StorageTest {
+    static {
+        storage = new MigratingStorage(new MapStorage(), new MapStorage(), null);
+    }
+
+    @Test
+    public void testBackfill() throws Exception {
+        MapStorage oldStorage = new MapStorage();
+        for (int i = 0; i < 7; i++) {
+            oldStorage.save(new Resume("Имя" + i, null));
+        }
+        MapStorage newStorage = new MapStorage();
+        MigratingStorage migrating = new MigratingStorage(oldStorage, newStorage, null);
+        Resume added = new Resume("Новое Имя", null);
+        migrating.save(added);
+        assertFalse(migrating.isBackfilled());
+        assertEquals(1, newStorage.size());
+
+        migrating.backfill(3, 10000);
+        assertTrue(migrating.isBackfilled());
+        assertEquals(7, migrating.getCopied());
+        assertArrayEquals(oldStorage.getAllSorted().toArray(), newStorage.getAllSorted().toArray());
+    }
+
+    @Test
+    public void testDualWriteDuringBackfill() throws Exception {
+        MapStorage oldStorage = new MapStorage();
+        List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Resume r = new Resume("Имя" + i, null);
+            oldStorage.save(r);
+            // версии в старом хранилище уже не 1
+            oldStorage.update(r.withVersion(1));
+            uuids.add(r.getUuid());
+        }
+        MapStorage newStorage = new MapStorage();
+        final MigratingStorage migrating = new MigratingStorage(oldStorage, newStorage, null);
+        Thread backfill = new Thread(() -> {
+            try {
+                migrating.backfill(10, 100000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        backfill.start();
+        // пишет один поток, поэтому любой конфликт версий ложный
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            Resume r = migrating.load(uuids.get(random.nextInt(uuids.size())));
+            migrating.update(r.toBuilder().location("Город " + i).build());
+        }
+        backfill.join();
+        // досылка того, что разошлось во время переноса
+        migrating.backfill(10, 100000);
+
+        assertTrue(migrating.isBackfilled());
+        for (String uuid : uuids) {
+            Resume expected = oldStorage.load(uuid);
+            assertEquals(expected, newStorage.load(uuid));
+            assertEquals(expected.getVersion(), newStorage.load(uuid).getVersion());
+        }
+    }
+
+    @Test
+    public void testBackfillKeepsVersion() throws Exception {
+        MapStorage oldStorage = new MapStorage();
+        Resume r = new Resume("Имя", null);
+        oldStorage.save(r);
+        oldStorage.update(r.withVersion(1));
+        MigratingStorage migrating = new MigratingStorage(oldStorage, new MapStorage(), null);
+        migrating.backfill(10, 10000);
+        // клиент прочитал резюме до переноса
+        migrating.update(r.toBuilder().location("Москва").version(2).build());
+        assertEquals(3, migrating.load(r.getUuid()).getVersion());
+        assertEquals("Москва", oldStorage.load(r.getUuid()).getLocation());
+    }
+
+    // перенос читает резюме до записи пользователя и копирует его в промежуток между проверкой и записью
+    @Test
+    public void testBackfillDuringUpdate() throws Exception {
+        MapStorage oldStorage = new MapStorage();
+        Resume r = new Resume("Имя", null);
+        oldStorage.save(r);
+        final AtomicBoolean armed = new AtomicBoolean(true);
+        final Thread[] backfill = new Thread[1];
+        final MigratingStorage[] migrating = new MigratingStorage[1];
+        MapStorage newStorage = new MapStorage() {
+            @Override
+            public Version getVersion(String uuid) {
+                Version version = super.getVersion(uuid);
+                if (armed.compareAndSet(true, false)) {
+                    backfill[0] = new Thread(() -> {
+                        try {
+                            migrating[0].backfill(10, 10000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    backfill[0].start();
+                    try {
+                        // без общего замка перенос успевает закончиться, с замком ждёт конца update
+                        backfill[0].join(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return version;
+            }
+        };
+        migrating[0] = new MigratingStorage(oldStorage, newStorage, null);
+
+        migrating[0].update(r.toBuilder().location("Москва").version(1).build());
+        backfill[0].join();
+        Resume loaded = migrating[0].load(r.getUuid());
+        assertEquals("Москва", loaded.getLocation());
+        assertEquals(2, loaded.getVersion());
+        assertEquals(oldStorage.load(r.getUuid()), newStorage.load(r.getUuid()));
+        assertTrue(migrating[0].isBackfilled());
+    }
+}
@@ -0,0 +1,42 @@
+package webapp.storage;
+
+import org.junit.jupiter.api.Test;
+import webapp.model.Resume;
+import webapp.model.SectionType;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Общие тесты на маленьких слябах, плюс повторное использование освобождённых блоков
+ */
+public class OffHeapStorageTest extends StorageTest {
+    static {
+        storage = new OffHeapStorage(1024);
+    }
+
+    @Test
+    public void testBlockReuse() {
+        OffHeapStorage offHeap = new OffHeapStorage(1024);
+        Resume r = new Resume("Полное Имя", "Москва");
+        offHeap.save(r);
+        long allocated = offHeap.getAllocatedBytes();
+        for (int i = 0; i < 100; i++) {
+            Resume updated = new Resume(r.getUuid(), "Полное Имя " + i % 2, "Москва");
+            offHeap.update(updated);
+        }
+        assertEquals(allocated, offHeap.getAllocatedBytes());
+
+        // запись больше сляба - в отдельном буфере
+        char[] text = new char[2000];
+        Arrays.fill(text, 'ж');
+        Resume big = new Resume("Большое", null);
+        big.addSection(SectionType.OBJECTIVE, new String(text));
+        offHeap.save(big);
+        assertEquals(big, offHeap.load(big.getUuid()));
+        offHeap.delete(r.getUuid());
+        offHeap.delete(big.getUuid());
+        assertEquals(0, offHeap.getUsedBytes());
+    }
+}
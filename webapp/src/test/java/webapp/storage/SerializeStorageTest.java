@@ -1,11 +1,67 @@
 package webapp.storage;
 
+import org.junit.jupiter.api.Test;
+import webapp.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * User: gkislin
  * Date: 18.04.2014
  */
 public class SerializeStorageTest extends StorageTest {
+    // Period с полями Date до упаковки дат: 19.01.2005 11:03 - 15.12.2008 12:00 (Москва)
+    private static final String LEGACY_PERIOD = "rO0ABXNyABN3ZWJhcHAubW9kZWwuUGVyaW9kAAAAAAAAAAECAARMAAdjb250ZW50dAASTGphdmEvbGFuZy9TdHJpbmc7" +
+            "TAAHZW5kRGF0ZXQAEExqYXZhL3V0aWwvRGF0ZTtMAAhwb3NpdGlvbnEAfgABTAAJc3RhcnREYXRlcQB+AAJ4cHQACGNvbnRlbnQxc3IADmph" +
+            "dmEudXRpbC5EYXRlaGqBAUtZdBkDAAB4cHcIAAABHjnfkoB4dAAJcG9zaXRpb24xc3EAfgAFdwgAAAEBif8poHg=";
+
     static {
         storage = new SerializeStorage(STORAGE_DIR);
     }
+
+    @Test
+    public void testLegacyPeriod() throws Exception {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(LEGACY_PERIOD)))) {
+            assertEquals(new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position1", "content1"), ois.readObject());
+        }
+        // и пишется по-прежнему с Date: новые файлы читает старый код
+        assertEquals(Date.class, ObjectStreamClass.lookup(Period.class).getField("startDate").getType());
+    }
+
+    // Resume, записанный классами до CompactList и упаковки дат
+    @Test
+    public void testLegacyResume() throws Exception {
+        String uuid = "7c9e6679-7425-40de-944b-e07fc1f90ae7";
+        try (InputStream is = getClass().getResourceAsStream("/storage/legacy-resume.ser")) {
+            Files.copy(is, new File(STORAGE_DIR, uuid).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Resume expected = new Resume(uuid, "Полное Имя1", "location1");
+        expected.addContact(ContactType.MAIL, "mail1@ya.ru");
+        expected.addSection(SectionType.ACHIEVEMENT, "Achivment11", "Achivment12");
+        expected.addSection(SectionType.EXPERIENCE,
+                new Organization("Organization11", null,
+                        new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position1", "content1")),
+                new Organization("Organization12", "Url11"));
+        Resume loaded = storage.load(uuid);
+        assertEquals(expected, loaded);
+
+        // загруженное изменяется как обычно и пишется в прежней форме
+        loaded.getSection(SectionType.ACHIEVEMENT).addFirst("Achivment10");
+        storage.update(loaded);
+        assertEquals(loaded, storage.load(uuid));
+        assertEquals(LinkedList.class, ObjectStreamClass.lookup(Section.class).getField("values").getType());
+        assertEquals(LinkedList.class, ObjectStreamClass.lookup(Organization.class).getField("periods").getType());
+    }
 }
@@ -0,0 +1,71 @@
+package webapp.storage;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import webapp.model.Resume;
+import webapp.sql.EmbeddedDb;
+import webapp.sql.Sql;
+import webapp.sql.SqlExecutor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SqlStorage на встроенной H2 (режим PostgreSQL), внешняя база не нужна
+ */
+public class SqlStorageTest extends StorageTest {
+    static {
+        storage = EmbeddedDb.storage();
+    }
+
+    @Override
+    @Test
+    @Disabled("SqlStorage хранит только текстовые разделы, организации не сохраняются")
+    public void testPeriods() {
+    }
+
+    // версии берутся из базы: их видит другой узел, меняет запись мимо приложения
+    @Test
+    public void testVersionFromDatabase() throws Exception {
+        Resume r = new Resume("Полное Имя4", null);
+        storage.save(r);
+        Version version = storage.getVersion(r.getUuid());
+        Version storageVersion = storage.getVersion();
+        assertTrue(version.isStored());
+        assertEquals(1, version.getResumeVersion());
+
+        IStorage otherNode = EmbeddedDb.storage();
+        assertEquals(version, otherNode.getVersion(r.getUuid()));
+        assertEquals(storageVersion, otherNode.getVersion());
+
+        otherNode.update(new Resume(r.getUuid(), "fullName_U4", null));
+        assertNotEquals(version, storage.getVersion(r.getUuid()));
+        assertNotEquals(storageVersion, storage.getVersion());
+        assertEquals(2, storage.getVersion(r.getUuid()).getResumeVersion());
+
+        version = storage.getVersion(r.getUuid());
+        storageVersion = storage.getVersion();
+        execute("UPDATE resume SET full_name='fullName_U5', version=version+1 WHERE uuid=?", r.getUuid());
+        assertNotEquals(version, storage.getVersion(r.getUuid()));
+        assertNotEquals(storageVersion, storage.getVersion());
+
+        storageVersion = storage.getVersion();
+        execute("DELETE FROM resume WHERE uuid=?", r.getUuid());
+        assertNull(storage.getVersion(r.getUuid()));
+        assertNotEquals(storageVersion, storage.getVersion());
+    }
+
+    private static void execute(String sql, final String uuid) {
+        Sql.execute(sql, new SqlExecutor<Void>() {
+            @Override
+            public Void execute(PreparedStatement ps) throws SQLException {
+                ps.setObject(1, UUID.fromString(uuid));
+                ps.executeUpdate();
+                return null;
+            }
+        });
+    }
+}
@@ -3,16 +3,39 @@ package webapp.storage;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import webapp.ResumeConflictException;
 import webapp.WebAppException;
 import webapp.model.ContactType;
+import webapp.model.Organization;
+import webapp.model.OrganizationSection;
+import webapp.model.Period;
 import webapp.model.Resume;
+import webapp.model.Section;
+import webapp.model.SectionType;
+import webapp.search.SearchHit;
+import webapp.util.DateUtil;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * User: gkislin
@@ -90,6 +113,20 @@ public class StorageTest {
         assertThrows(WebAppException.class, () -> storage.save(R1));
     }
 
+    // все хранилища возвращают uuid в той же форме, в какой он сохранён
+    @Test
+    public void testSaveInvalidUuid() throws Exception {
+        for (String uuid : new String[]{"dummy", R1.getUuid().toUpperCase(), "7c9e6679-7425-40de-944b-e07fc1f90ae"}) {
+            Resume r = new Resume(uuid, "Полное Имя4", null);
+            WebAppException e = assertThrows(WebAppException.class, () -> storage.save(r));
+            assertTrue(e.getMessage().contains(uuid), e.getMessage());
+            e = assertThrows(WebAppException.class, () -> storage.saveAll(Collections.singletonList(r)));
+            assertTrue(e.getMessage().contains(uuid), e.getMessage());
+        }
+        assertEquals(3, storage.size());
+        assertEquals(R1.getUuid(), storage.load(R1.getUuid()).getUuid());
+    }
+
     @Test
     public void testUpdateMissed() throws Exception {
         Resume resume = new Resume("dummy", "fullName_U1", "location_U1");
@@ -109,4 +146,297 @@ public class StorageTest {
         Arrays.sort(src);
         assertArrayEquals(src, storage.getAllSorted().toArray());
     }
+
+    @Test
+    public void testSaveAll() throws Exception {
+        Resume r4 = new Resume("Полное Имя4", "location4");
+        Resume r5 = new Resume("Полное Имя5", null);
+        storage.saveAll(Arrays.asList(r4, r5));
+        assertEquals(5, storage.size());
+        assertEquals(r5, storage.load(r5.getUuid()));
+        assertEquals(1, storage.load(r4.getUuid()).getVersion());
+
+        Resume r6 = new Resume("Полное Имя6", null);
+        assertThrows(WebAppException.class, () -> storage.saveAll(Arrays.asList(r6, R1)));
+        assertNull(storage.getVersion(r6.getUuid()));
+    }
+
+    @Test
+    public void testTransfer() throws Exception {
+        MapStorage target = new MapStorage();
+        // R1 уже перенесён прошлым запуском, под uuid R2 - другое резюме
+        target.save(R1);
+        target.save(new Resume(R2.getUuid(), "Другое Имя", null));
+        ResumeTransfer.Stats stats = new ResumeTransfer(2, 2, 1, 2).copy(storage, target, null);
+        assertEquals(2, stats.getDone());
+        assertEquals(1, stats.getFailed());
+        assertEquals(3, target.size());
+        assertEquals(R3, target.load(R3.getUuid()));
+        assertEquals("Другое Имя", target.load(R2.getUuid()).getFullName());
+    }
+
+    @Test
+    public void testTransferPartialBatch() throws Exception {
+        // saveAll не атомарный: первое резюме пачки записано, потом ошибка
+        MapStorage target = new MapStorage() {
+            @Override
+            public void saveAll(Collection<Resume> resumes) {
+                save(resumes.iterator().next());
+                throw new WebAppException("Disk is full");
+            }
+        };
+        ResumeTransfer.Stats stats = new ResumeTransfer(2, 1, 1, 2).copy(storage, target, null);
+        assertEquals(3, stats.getDone());
+        assertEquals(0, stats.getFailed());
+        assertArrayEquals(storage.getAllSorted().toArray(), target.getAllSorted().toArray());
+    }
+
+    @Test
+    public void testTransferWriterFailure() throws Exception {
+        MapStorage target = new MapStorage() {
+            @Override
+            public void saveAll(Collection<Resume> resumes) {
+                throw new Error("Writer is broken");
+            }
+        };
+        // читатель ждёт места в очереди, которую никто больше не разбирает
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            WebAppException e = assertThrows(WebAppException.class, () -> new ResumeTransfer(1, 1, 1, 1).copy(storage, target, null));
+            assertEquals("Writer is broken", e.getCause().getMessage());
+        });
+    }
+
+    @Test
+    public void testForEachSorted() throws Exception {
+        List<Resume> sorted = new ArrayList<>(storage.getAllSorted());
+        List<Resume> page = new ArrayList<>();
+        storage.forEachSorted(1, 5, page::add);
+        assertEquals(2, page.size());
+        assertEquals(sorted.get(1).getUuid(), page.get(0).getUuid());
+        assertEquals(sorted.get(2).getUuid(), page.get(1).getUuid());
+
+        storage.delete(sorted.get(0).getUuid());
+        page.clear();
+        storage.forEachSorted(0, 1, page::add);
+        assertEquals(sorted.get(1).getUuid(), page.get(0).getUuid());
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        assertEquals(Collections.singletonList(R1), storage.search("имя1", 10));
+        assertEquals(Collections.singletonList(R1), storage.search("mail1@ya.ru", 10));
+        assertEquals(Collections.singletonList(R2), storage.search("SKYPE2 полное", 10));
+        assertEquals(3, storage.search("полн", 10).size());
+        assertEquals(2, storage.search("полн", 2).size());
+        assertEquals(0, storage.search("отсутствует", 10).size());
+    }
+
+    @Test
+    public void testSearchNoLimit() throws Exception {
+        assertEquals(0, storage.search("полн", 0).size());
+        assertEquals(0, storage.search("полн", -1).size());
+    }
+
+    @Test
+    public void testSearchLoadsSections() throws Exception {
+        Resume r = new Resume("Сидоров Иван", "Казань");
+        r.addContact(ContactType.MAIL, "sidorov@ya.ru");
+        r.addSection(SectionType.OBJECTIVE, "Ведущий разработчик");
+        r.addSection(SectionType.ACHIEVEMENT, "Первое", "Второе");
+        storage.save(r);
+        // результаты поиска - те же резюме, что и из load, с разделами
+        assertEquals(Collections.singletonList(r), storage.search("разработчик", 10));
+        List<SearchHit> hits = storage.findSimilarByName("Сидоров Иван", 1);
+        assertEquals(r, hits.get(0).getResume());
+        assertEquals(r.getSections(), hits.get(0).getResume().getSections());
+    }
+
+    @Test
+    public void testSearchAfterUpdate() throws Exception {
+        storage.search("имя2", 10);
+        Resume resume = new Resume(R2.getUuid(), "Пётр Петров", "Москва");
+        storage.update(resume);
+        assertEquals(0, storage.search("имя2", 10).size());
+        List<Resume> found = storage.search("петр москва", 10);
+        assertEquals(Collections.singletonList(resume), found);
+        storage.delete(R2.getUuid());
+        assertEquals(0, storage.search("петров", 10).size());
+    }
+
+    @Test
+    public void testFindByContact() throws Exception {
+        assertEquals(Collections.singletonList(R1), storage.findByContact(ContactType.MAIL, " MAIL1@ya.ru"));
+        assertEquals(Collections.singletonList(R2), storage.findByContact(ContactType.PHONE, "22222"));
+        assertEquals(0, storage.findByContact(ContactType.SKYPE, "22222").size());
+        storage.delete(R2.getUuid());
+        assertEquals(0, storage.findByContact(ContactType.PHONE, "22222").size());
+    }
+
+    @Test
+    public void testFindBySection() throws Exception {
+        Resume resume = new Resume(R3.getUuid(), "Полное Имя3", null);
+        resume.addSection(SectionType.QUALIFICATIONS, "Java, SQL", "Spring Framework");
+        storage.update(resume);
+        assertEquals(Collections.singletonList(resume), storage.findBySection(SectionType.QUALIFICATIONS, "java"));
+        assertEquals(Collections.singletonList(resume), storage.findBySection(SectionType.QUALIFICATIONS, "spring framework"));
+        assertEquals(0, storage.findBySection(SectionType.ACHIEVEMENT, "java").size());
+        assertEquals(0, storage.findBySection(SectionType.QUALIFICATIONS, "java hibernate").size());
+    }
+
+    @Test
+    public void testFindSimilarByName() throws Exception {
+        Resume resume = new Resume(R3.getUuid(), "Щербаков Алексей", null);
+        storage.update(resume);
+        List<SearchHit> hits = storage.findSimilarByName("Щербокав Алексей", 10);
+        assertEquals(1, hits.size());
+        assertEquals(resume, hits.get(0).getResume());
+
+        hits = storage.findSimilarByName("Полное Имя2", 1);
+        assertEquals(1, hits.size());
+        assertEquals(R2, hits.get(0).getResume());
+        assertEquals(1f, hits.get(0).getRank());
+    }
+
+    // запись разных резюме параллельно с выборками, как на асинхронном исполнителе ResumeServlet
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        final int threads = 4;
+        final int perThread = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        Resume r = new Resume("Параллельный " + thread + "-" + i, null);
+                        storage.save(r);
+                        storage.update(new Resume(r.getUuid(), r.getFullName(), "location"));
+                        if (i % 2 == 1) storage.delete(r.getUuid());
+                    }
+                    return null;
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    for (Resume r : storage.getAllSorted()) {
+                        assertNotNull(r.getFullName());
+                    }
+                }
+                return null;
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(3 + threads * perThread / 2, storage.size());
+        assertEquals(3 + threads * perThread / 2, storage.getAllSorted().size());
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        Version version = storage.getVersion(R1.getUuid());
+        Version storageVersion = storage.getVersion();
+        assertEquals(version, storage.getVersion(R1.getUuid()));
+        assertNull(storage.getVersion("dummy"));
+
+        storage.update(new Resume(R1.getUuid(), "fullName_U1", "location_U1"));
+        assertNotEquals(version, storage.getVersion(R1.getUuid()));
+        assertNotEquals(storageVersion, storage.getVersion());
+
+        storage.delete(R1.getUuid());
+        assertNull(storage.getVersion(R1.getUuid()));
+    }
+
+    @Test
+    public void testUpdateConflict() throws Exception {
+        int version = storage.load(R2.getUuid()).getVersion();
+        Resume first = new Resume(R2.getUuid(), "fullName_U2", "location_U2");
+        first.setVersion(version);
+        Resume second = new Resume(R2.getUuid(), "fullName_U3", "location_U3");
+        second.setVersion(version);
+
+        storage.update(first);
+        // резюме вызывающего не меняется
+        assertEquals(version, first.getVersion());
+        assertThrows(ResumeConflictException.class, () -> storage.update(second));
+        assertEquals(first, storage.load(R2.getUuid()));
+        assertEquals(version + 1, storage.load(R2.getUuid()).getVersion());
+        // If-Match API сверяется с этой версией при записи
+        assertEquals(version + 1, storage.getVersion(R2.getUuid()).getResumeVersion());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        Resume resume = new Resume(R3.getUuid(), "Полное Имя3", null);
+        resume.addSection(SectionType.ACHIEVEMENT, "Achievement1");
+        resume.addSection(SectionType.OBJECTIVE, "Objective1");
+        storage.update(resume);
+        // сохранённое не зависит от дальнейших изменений оригинала
+        resume.getSection(SectionType.ACHIEVEMENT).add("Achievement2");
+        Resume loaded = storage.load(R3.getUuid());
+        assertEquals(Collections.singletonList("Achievement1"), loaded.getSection(SectionType.ACHIEVEMENT).getValues());
+
+        Section objective = loaded.getSection(SectionType.OBJECTIVE);
+        Section achievement = loaded.getSection(SectionType.ACHIEVEMENT);
+        Resume edited = loaded.toBuilder()
+                .location("Москва")
+                .section(SectionType.ACHIEVEMENT, SectionType.ACHIEVEMENT.withEmptyValue(achievement))
+                .build();
+        assertThrows(UnsupportedOperationException.class, () -> edited.setLocation("Тверь"));
+        assertThrows(UnsupportedOperationException.class, () -> edited.getSection(SectionType.ACHIEVEMENT).add("x"));
+        assertEquals(Arrays.asList("", "Achievement1"), edited.getSection(SectionType.ACHIEVEMENT).getValues());
+        assertEquals(Collections.singletonList("Achievement1"), achievement.getValues());
+        if (loaded.isFrozen()) {
+            // неизменённая секция общая у версий
+            assertSame(objective, edited.getSection(SectionType.OBJECTIVE));
+            assertSame(loaded, storage.load(R3.getUuid()));
+        }
+
+        storage.update(edited);
+        assertEquals("Москва", storage.load(R3.getUuid()).getLocation());
+    }
+
+    @Test
+    public void testFrozen() throws Exception {
+        Resume built = Resume.builder("Полное Имя4", "Москва")
+                .contact(ContactType.MAIL, "mail4@ya.ru")
+                .section(SectionType.ACHIEVEMENT, "Achievement41")
+                .build();
+        storage.save(built);
+        assertEquals(0, built.getVersion());
+        assertEquals(built, storage.load(built.getUuid()));
+        assertEquals(1, storage.load(built.getUuid()).getVersion());
+
+        Resume edited = storage.load(built.getUuid()).toBuilder().location("Тверь").build();
+        storage.update(edited);
+        assertEquals(1, edited.getVersion());
+        assertEquals(edited, storage.load(built.getUuid()));
+        assertEquals(2, storage.load(built.getUuid()).getVersion());
+        // устаревшая версия
+        assertThrows(ResumeConflictException.class, () -> storage.update(edited));
+
+        // неизменяемая организация при копировании секции не копируется
+        Organization org = new Organization("Organization41", null,
+                new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position1", "content1")).freeze();
+        assertSame(org, new OrganizationSection(org).copy().getValues().get(0));
+    }
+
+    @Test
+    public void testPeriods() throws Exception {
+        Resume resume = new Resume(R3.getUuid(), "Полное Имя3", null);
+        resume.addSection(SectionType.EXPERIENCE,
+                new Organization("Organization11", null,
+                        new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position1", "content1"),
+                        new Period(2001, Calendar.MARCH, 2005, Calendar.JANUARY, "position2", "content2")),
+                new Organization("Organization12", "Url11", new Period(DateUtil.yearMonth(2009, Calendar.MAY), DateUtil.NONE, "position3", null)));
+        storage.update(resume);
+        Resume loaded = storage.load(R3.getUuid());
+        assertEquals(resume, loaded);
+        Period current = ((Organization) loaded.getSection(SectionType.EXPERIENCE).getValues().get(1)).getPeriods().get(0);
+        assertEquals("05/2009 - " + DateUtil.NOW, DateUtil.format(current.getStart()) + " - " + DateUtil.format(current.getEnd()));
+        assertNull(current.getEndDate());
+    }
 }
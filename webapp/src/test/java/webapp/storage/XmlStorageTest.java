@@ -1,11 +1,41 @@
 package webapp.storage;
 
+import org.junit.jupiter.api.Test;
+import webapp.model.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * User: gkislin
  * Date: 25.04.2014
  */
 public class XmlStorageTest extends StorageTest {
+    private static final String LEGACY_UUID = "2f1c5b1e-6d1a-4c1e-9b5a-3e2d4c5b6a70";
+
     static {
         storage = new XmlStorage(STORAGE_DIR);
     }
+
+    // до упаковки дат JAXB писал Date как xsd:dateTime
+    @Test
+    public void testLegacyDates() throws Exception {
+        Resume resume = new Resume(LEGACY_UUID, "Полное Имя4", null);
+        resume.addSection(SectionType.EXPERIENCE, new Organization("Organization41", null,
+                new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position1", "content1")));
+        storage.save(resume);
+
+        Path file = new File(STORAGE_DIR, LEGACY_UUID).toPath();
+        String xml = Files.readString(file, StandardCharsets.UTF_8);
+        assertTrue(xml.contains("<startDate>2005-01</startDate>") && xml.contains("<endDate>2008-12</endDate>"), xml);
+        Files.writeString(file, xml.replace("<startDate>2005-01</startDate>", "<startDate>2005-01-19T11:03:16.123+03:00</startDate>")
+                .replace("<endDate>2008-12</endDate>", "<endDate>2008-12-01T00:00:00+03:00</endDate>"), StandardCharsets.UTF_8);
+        assertEquals(resume, storage.load(LEGACY_UUID));
+    }
 }
@@ -0,0 +1,123 @@
+package webapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactListTest {
+
+    // голова кольца на последней ячейке массива: элементы идут через его конец
+    @Test
+    public void testWrapAround() {
+        CompactList<String> list = new CompactList<>("a", "b", "c");
+        list.add("d");
+        list.addFirst("z");
+        assertEquals(List.of("z", "a", "b", "c", "d"), list);
+        assertArrayEquals(new Object[]{"z", "a", "b", "c", "d"}, list.toArray());
+        assertEquals("d", list.get(4));
+        assertEquals("a", list.set(1, "A"));
+
+        // вставка и удаление через границу массива
+        list.add(2, "x");
+        assertEquals(List.of("z", "A", "x", "b", "c", "d"), list);
+        assertEquals("A", list.remove(1));
+        assertEquals("c", list.remove(3));
+        assertEquals(List.of("z", "x", "b", "d"), list);
+        list.addFirst("y");
+        list.addFirst("w");
+        assertEquals(List.of("w", "y", "z", "x", "b", "d"), list);
+
+        list.trimToSize();
+        assertEquals(List.of("w", "y", "z", "x", "b", "d"), list);
+        list.addFirst("v");
+        assertEquals("v", list.get(0));
+        assertEquals("d", list.get(list.size() - 1));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(7));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.add(8, "e"));
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.addFirst("a");
+        assertEquals(List.of("a"), list);
+    }
+
+    @Test
+    public void testSameAsArrayList() {
+        Random random = new Random(1);
+        CompactList<Integer> list = new CompactList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            int op = random.nextInt(5);
+            if (op == 0) {
+                list.add(i);
+                expected.add(i);
+            } else if (op == 1) {
+                list.addFirst(i);
+                expected.add(0, i);
+            } else if (op == 2) {
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, i);
+                expected.add(index, i);
+            } else if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            }
+            if (i % 1000 == 0) list.trimToSize();
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void testIteratorFailFast() {
+        CompactList<String> list = new CompactList<>("a", "b");
+        Iterator<String> it = list.iterator();
+        it.next();
+        list.addFirst("z");
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        CompactList<String> list = new CompactList<>("a", "b", "c");
+        list.add("d");
+        list.addFirst("z");
+        CompactList<String> copy = copy(list);
+        assertEquals(List.of("z", "a", "b", "c", "d"), copy);
+        // восстановлен с нуля, без кольца: дальше работает как обычно
+        copy.addFirst("y");
+        copy.add("e");
+        assertEquals(List.of("y", "z", "a", "b", "c", "d", "e"), copy);
+
+        // пустая ёмкость не пишется
+        CompactList<String> big = new CompactList<>();
+        for (int i = 0; i < 100; i++) big.add("x");
+        while (big.size() > 1) big.remove(0);
+        CompactList<String> small = new CompactList<>("x");
+        assertEquals(bytes(small).length, bytes(big).length);
+
+        CompactList<String> empty = copy(new CompactList<>());
+        assertTrue(empty.isEmpty());
+        empty.addFirst("a");
+        assertEquals(List.of("a"), empty);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> CompactList<E> copy(CompactList<E> list) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes(list)))) {
+            return (CompactList<E>) ois.readObject();
+        }
+    }
+
+    private static byte[] bytes(Object o) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(o);
+        }
+        return bos.toByteArray();
+    }
+}
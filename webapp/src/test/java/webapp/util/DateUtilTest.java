@@ -0,0 +1,80 @@
+package webapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateUtilTest {
+
+    @Test
+    public void testYearMonth() {
+        int ym = DateUtil.yearMonth(2005, Calendar.JANUARY);
+        assertEquals(2005 * 12, ym);
+        assertEquals(2005, DateUtil.getYear(ym));
+        assertEquals(Calendar.JANUARY, DateUtil.getMonth(ym));
+        assertEquals("2005", DateUtil.formatYear(ym));
+        assertTrue(DateUtil.yearMonth(2004, Calendar.DECEMBER) < ym);
+        // как в Calendar: 13-й месяц - январь следующего года
+        assertEquals(DateUtil.yearMonth(2006, Calendar.JANUARY), DateUtil.yearMonth(2005, 12));
+
+        assertEquals(-1, DateUtil.getYear(DateUtil.NONE));
+        assertEquals(-1, DateUtil.getMonth(DateUtil.NONE));
+        assertEquals("", DateUtil.formatYear(DateUtil.NONE));
+
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.yearMonth(0, Calendar.DECEMBER));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.yearMonth(10000, Calendar.JANUARY));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.yearMonth(-1, Calendar.JANUARY));
+    }
+
+    @Test
+    public void testDate() {
+        int ym = DateUtil.yearMonth(2008, Calendar.DECEMBER);
+        assertEquals(new GregorianCalendar(2008, Calendar.DECEMBER, 1).getTime(), DateUtil.getDate(ym));
+        assertEquals(DateUtil.getDate(ym), DateUtil.getDate(2008, Calendar.DECEMBER));
+        assertEquals(ym, DateUtil.yearMonth(new GregorianCalendar(2008, Calendar.DECEMBER, 31, 23, 59).getTime()));
+        assertEquals(ym, DateUtil.yearMonth(DateUtil.getDate(ym)));
+        assertNull(DateUtil.getDate(DateUtil.NONE));
+        assertEquals(DateUtil.NONE, DateUtil.yearMonth((Date) null));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("01/2005", DateUtil.format(DateUtil.yearMonth(2005, Calendar.JANUARY)));
+        assertEquals("12/2008", DateUtil.format(DateUtil.yearMonth(2008, Calendar.DECEMBER)));
+        assertEquals(DateUtil.NOW, DateUtil.format(DateUtil.NONE));
+
+        assertEquals("2005-01", DateUtil.formatIso(DateUtil.yearMonth(2005, Calendar.JANUARY)));
+        assertNull(DateUtil.formatIso(DateUtil.NONE));
+    }
+
+    @Test
+    public void testParseIso() {
+        for (int month = Calendar.JANUARY; month <= Calendar.DECEMBER; month++) {
+            int ym = DateUtil.yearMonth(2008, month);
+            assertEquals(ym, DateUtil.parseIso(DateUtil.formatIso(ym)));
+        }
+        assertEquals(DateUtil.yearMonth(2005, Calendar.MARCH), DateUtil.parseIso("2005-3"));
+        assertEquals(DateUtil.NONE, DateUtil.parseIso(null));
+
+        for (String bad : new String[]{"", "2005", "2005-", "2005-00", "2005-13", "2005-1x", "-2005-01", "0000-05", "10000-01", "05/2005"}) {
+            assertThrows(IllegalArgumentException.class, () -> DateUtil.parseIso(bad), bad);
+        }
+    }
+
+    // так JAXB писал Date в XML до упаковки дат
+    @Test
+    public void testParseLegacyDateTime() {
+        int ym = DateUtil.yearMonth(2005, Calendar.JANUARY);
+        assertEquals(ym, DateUtil.parseIso("2005-01-19T11:03:16.123+03:00"));
+        assertEquals(ym, DateUtil.parseIso("2005-01-01T00:00:00+03:00"));
+        assertEquals(ym, DateUtil.parseIso("2005-01-31T23:00:00Z"));
+        assertEquals(ym, DateUtil.parseIso("2005-01-19T11:03:16"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.parseIso("2005-01-19"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.parseIso("2005-13-19T11:03:16+03:00"));
+        assertThrows(IllegalArgumentException.class, () -> DateUtil.parseIso("2005-01-19Tgarbage"));
+    }
+}
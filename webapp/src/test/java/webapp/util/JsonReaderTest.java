@@ -0,0 +1,145 @@
+package webapp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import webapp.WebAppException;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonReaderTest {
+
+    @Test
+    public void testNesting() throws IOException {
+        JsonReader in = reader(" { \"a\" : [1, {\"b\": null}, []], \"c\": {\"d\": \"e\"} } ");
+        assertEquals(JsonReader.Token.BEGIN_OBJECT, in.peek());
+        in.beginObject();
+        assertEquals(JsonReader.Token.NAME, in.peek());
+        assertEquals("a", in.nextName());
+        in.beginArray();
+        assertEquals(1, in.nextLong());
+        in.beginObject();
+        assertEquals("b", in.nextName());
+        assertEquals(JsonReader.Token.NULL, in.peek());
+        assertNull(in.nextString());
+        assertFalse(in.hasNext());
+        in.endObject();
+        in.beginArray();
+        assertFalse(in.hasNext());
+        in.endArray();
+        assertFalse(in.hasNext());
+        in.endArray();
+        assertEquals("c", in.nextName());
+        in.beginObject();
+        assertEquals("d", in.nextName());
+        assertEquals(JsonReader.Token.STRING, in.peek());
+        assertEquals("e", in.nextString());
+        in.endObject();
+        in.endObject();
+        assertEquals(JsonReader.Token.END, in.peek());
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        JsonReader in = reader("{\"skip\": {\"a\": [true, false, null, -1.5e3, \"x\", {}]}, \"keep\": 2}");
+        in.beginObject();
+        assertEquals("skip", in.nextName());
+        in.skipValue();
+        assertEquals("keep", in.nextName());
+        assertEquals(2, in.nextLong());
+        in.endObject();
+    }
+
+    @Test
+    public void testEscapes() throws IOException {
+        assertEquals("\"\\/\b\f\n\r\t", string("\"\\\"\\\\\\/\\b\\f\\n\\r\\t\""));
+        assertEquals("Ω", string("\"\\u03A9\""));
+        assertEquals("Ω", string("\"\\u03a9\""));
+        assertEquals("Москва", string("\"Москва\""));
+    }
+
+    @Test
+    public void testSurrogates() throws IOException {
+        assertEquals("😀", string("\"\\ud83d\\ude00\""));
+        assertEquals("😀", string("\"😀\""));
+        // одиночный суррогат сохраняется как есть, его запишет обратно JsonWriter
+        assertEquals("\ud83d", string("\"\\ud83d\""));
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        assertEquals(0, reader("0").nextLong());
+        assertEquals(-42, reader("-42").nextLong());
+        assertEquals(Long.MAX_VALUE, reader(String.valueOf(Long.MAX_VALUE)).nextLong());
+        assertEquals(Integer.MIN_VALUE, reader(String.valueOf(Integer.MIN_VALUE)).nextInt());
+        assertInvalid("Integer is too large", () -> reader("9223372036854775808").nextLong());
+        assertInvalid("Integer is too large", () -> reader("2147483648").nextInt());
+        assertInvalid("Integer expected", () -> reader("1.5").nextLong());
+        assertInvalid("Integer expected", () -> reader("1e3").nextLong());
+        assertInvalid("Integer expected", () -> reader("+1").nextLong());
+        assertInvalid("Integer expected", () -> reader("01").nextLong());
+        assertInvalid("Integer expected", () -> reader("-").nextLong());
+        assertInvalid("Number expected", () -> reader("\"1\"").nextLong());
+    }
+
+    @Test
+    public void testMalformed() {
+        assertInvalid("',' expected", () -> skip("[1 2]"));
+        assertInvalid("',' expected", () -> skip("{\"a\": 1 \"b\": 2}"));
+        assertInvalid("Unexpected ','", () -> skip("[,1]"));
+        assertInvalid("Value expected after ','", () -> skip("[1,,2]"));
+        assertInvalid("Value expected after ','", () -> skip("[1,]"));
+        assertInvalid("Value expected after ','", () -> skip("{\"a\": 1,}"));
+        assertInvalid("':' expected", () -> skip("{\"a\" 1}"));
+        assertInvalid("Value expected", () -> skip("{\"a\": }"));
+        assertInvalid("Name expected", () -> skip("{1: 2}"));
+        assertInvalid("'}' expected", () -> skip("{\"a\": 1]"));
+        assertInvalid("']' expected", () -> skip("[1}"));
+        assertInvalid("']' expected", () -> skip("[1"));
+        assertInvalid("Unexpected tru", () -> skip("[tru]"));
+        assertInvalid("Unexpected 1x", () -> skip("[1x]"));
+        assertInvalid("Unexpected ':'", () -> skip("[:]"));
+        assertInvalid("Unterminated string", () -> skip("\"abc"));
+        assertInvalid("Unterminated string", () -> skip("\"abc\\"));
+        assertInvalid("Bad escape \\x", () -> skip("\"\\x\""));
+        assertInvalid("Bad \\u escape", () -> skip("\"\\u12\""));
+        assertInvalid("Bad \\u escape", () -> skip("\"\\u+123\""));
+        assertInvalid("Unescaped control character", () -> skip("\"a\nb\""));
+        assertInvalid("null expected", () -> reader("nul").nextNull());
+        assertInvalid("Unexpected ']'", () -> {
+            JsonReader in = reader("{]");
+            in.beginObject();
+            in.endArray();
+        });
+        assertInvalid("Unexpected '}'", () -> reader("}").endObject());
+    }
+
+    @Test
+    public void testDepth() throws IOException {
+        String nested = "[".repeat(JsonReader.MAX_DEPTH) + "]".repeat(JsonReader.MAX_DEPTH);
+        skip(nested);
+        String deep = "[".repeat(100_000);
+        assertInvalid("Nesting is deeper than " + JsonReader.MAX_DEPTH, () -> skip(deep));
+    }
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+    private static String string(String json) throws IOException {
+        return reader(json).nextString();
+    }
+
+    private static void skip(String json) throws IOException {
+        JsonReader in = reader(json);
+        in.skipValue();
+        assertEquals(JsonReader.Token.END, in.peek());
+    }
+
+    private static void assertInvalid(String message, Executable executable) {
+        WebAppException e = assertThrows(WebAppException.class, executable);
+        assertTrue(e.getMessage().startsWith("Invalid JSON: " + message), e.getMessage());
+    }
+}
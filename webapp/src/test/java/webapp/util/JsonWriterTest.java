@@ -0,0 +1,71 @@
+package webapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JsonWriterTest {
+
+    @Test
+    public void testNesting() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("a").beginArray().value(1).beginObject().name("b").nullValue().endObject().beginArray().endArray().endArray()
+                .name("c").beginObject().name("d").value("e").endObject()
+                .name("f").value(null)
+                .name("g").value(Long.MIN_VALUE)
+                .endObject()
+                .flush();
+        assertEquals("{\"a\":[1,{\"b\":null},[]],\"c\":{\"d\":\"e\"},\"f\":null,\"g\":" + Long.MIN_VALUE + "}", out.toString());
+    }
+
+    @Test
+    public void testEscapes() throws IOException {
+        assertEquals("\"\\\"\\\\/\\n\\r\\t\\u0000\\u001f\\u2028\\u2029Москва\"", string("\"\\/\n\r\t\u0000\u001f\u2028\u2029Москва"));
+        assertEquals("\"\\\\u0041\"", string("\\u0041"));
+    }
+
+    @Test
+    public void testSurrogates() throws IOException {
+        assertEquals("\"😀\"", string("😀"));
+        // одиночные суррогаты - escape, пара остаётся как есть
+        assertEquals("\"\\ud83d\"", string("\ud83d"));
+        assertEquals("\"a\\ude00b\"", string("a\ude00b"));
+        assertEquals("\"\\ud83d😀\"", string("\ud83d\ud83d\ude00"));
+        assertEquals("\"😀\\ude00\"", string("\ud83d\ude00\ude00"));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        String[] values = {"", "простой", "\"кавычки\" и \\ слэш", "строки\nи\tтабы", "\u0001\u007f", "😀\ud83d", "\ude00"};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        JsonWriter w = new JsonWriter(out).beginArray();
+        for (String value : values) {
+            w.value(value);
+        }
+        w.endArray().flush();
+
+        // через UTF-8 и обратно, как в API
+        JsonReader in = new JsonReader(new StringReader(new String(bytes.toByteArray(), StandardCharsets.UTF_8)));
+        in.beginArray();
+        for (String value : values) {
+            assertEquals(value, in.nextString());
+        }
+        in.endArray();
+    }
+
+    private static String string(String value) throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).value(value).flush();
+        return out.toString();
+    }
+}
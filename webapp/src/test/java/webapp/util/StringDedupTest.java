@@ -0,0 +1,72 @@
+package webapp.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import webapp.model.Organization;
+import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.storage.DataStreamStorage;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class StringDedupTest {
+
+    @AfterEach
+    public void after() {
+        StringDedup.configure(0);
+    }
+
+    @Test
+    public void testIntern() {
+        StringDedup dedup = new StringDedup(16, 8);
+        String first = new String("Москва");
+        assertSame(first, dedup.intern(first));
+        assertSame(first, dedup.intern(new String("Москва")));
+        assertEquals(1, dedup.getHits());
+        assertEquals(1, dedup.getMisses());
+        assertEquals(50, dedup.getHitRatePercent());
+        assertEquals(40 + 2 * 6, dedup.getRetainedBytes());
+
+        // длинные строки не кладутся
+        String text = new String("длинное описание");
+        assertSame(text, dedup.intern(text));
+        assertNotSame(text, dedup.intern(new String("длинное описание")));
+    }
+
+    @Test
+    public void testBounded() {
+        StringDedup dedup = new StringDedup(4, 16);
+        for (int i = 0; i < 1000; i++) {
+            dedup.intern("value" + i);
+        }
+        assertEquals(1000, dedup.getMisses());
+        // вытесненные строки не держатся: в таблице не больше 4 строк
+        assertEquals(4 * (40 + 2 * "value999".length()), dedup.getRetainedBytes(), 4 * 2);
+    }
+
+    @Test
+    public void testDecoder() {
+        StringDedup.configure(1024);
+        DataStreamStorage storage = new DataStreamStorage(new File(System.getProperty("java.io.tmpdir"), "webapp_dedup_storage").getAbsolutePath());
+        storage.clear();
+        Resume r1 = new Resume("Имя1", "Москва");
+        r1.addSection(SectionType.EXPERIENCE, new Organization("Организация", "http://org.ru"));
+        Resume r2 = new Resume("Имя2", "Москва");
+        r2.addSection(SectionType.EXPERIENCE, new Organization("Организация", "http://org.ru"));
+        storage.save(r1);
+        storage.save(r2);
+
+        Resume l1 = storage.load(r1.getUuid());
+        Resume l2 = storage.load(r2.getUuid());
+        assertSame(l1.getLocation(), l2.getLocation());
+        Organization o1 = (Organization) l1.getSection(SectionType.EXPERIENCE).getValues().get(0);
+        Organization o2 = (Organization) l2.getSection(SectionType.EXPERIENCE).getValues().get(0);
+        assertSame(o1.getLink().getName(), o2.getLink().getName());
+        assertSame(o1.getLink().getUrl(), o2.getLink().getUrl());
+        storage.clear();
+    }
+}
@@ -0,0 +1,50 @@
+package webapp.util;
+
+import org.junit.jupiter.api.Test;
+import webapp.WebAppException;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidsTest {
+
+    @Test
+    public void testParse() {
+        for (int i = 0; i < 100; i++) {
+            UUID uuid = UUID.randomUUID();
+            assertEquals(uuid, Uuids.parse(uuid.toString()));
+            assertEquals(uuid, Uuids.parse(uuid.toString().toUpperCase()));
+        }
+        assertEquals(new UUID(0x0123456789abcdefL, 0xfedcba9876543210L), Uuids.parse("01234567-89ab-cdef-FEDC-BA9876543210"));
+    }
+
+    @Test
+    public void testInvalid() {
+        String valid = "01234567-89ab-cdef-fedc-ba9876543210";
+        assertNull(Uuids.parse(null));
+        assertNull(Uuids.parse(""));
+        assertNull(Uuids.parse(valid.substring(1)));
+        assertNull(Uuids.parse(valid + "0"));
+        assertNull(Uuids.parse(valid.replace('-', '_')));
+        assertNull(Uuids.parse("0123456789ab-cdef-fedc-ba98-76543210"));
+        assertNull(Uuids.parse(valid.replace('a', 'g')));
+        assertNull(Uuids.parse(valid.replace('0', '+')));
+        // цифры не из ASCII
+        assertNull(Uuids.parse(valid.replace('1', '١')));
+        assertNull(Uuids.parse(valid.replace('1', '１')));
+        assertNull(Uuids.parse(valid.replace('a', 'ａ')));
+        assertNull(Uuids.parse(valid.replace('5', '๕')));
+    }
+
+    @Test
+    public void testCheck() {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, Uuids.check(uuid.toString()));
+        // верхний регистр не принимается: хранилища вернули бы другую строку
+        assertThrows(WebAppException.class, () -> Uuids.check("01234567-89AB-CDEF-FEDC-BA9876543210"));
+        WebAppException e = assertThrows(WebAppException.class, () -> Uuids.check("dummy"));
+        assertTrue(e.getMessage().contains("dummy"));
+        assertThrows(WebAppException.class, () -> Uuids.check(null));
+    }
+}
@@ -0,0 +1,224 @@
+package webapp.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GzipFilter на заглушках Servlet API: выбор кодирования, Vary, сжатие потоком и заранее сжатая статика
+ */
+public class GzipFilterTest {
+    private static final String TEXT = "<p>Резюме</p>\n".repeat(500);
+
+    @TempDir
+    Path root;
+
+    private GzipFilter filter;
+    private final AtomicInteger chainCalls = new AtomicInteger();
+
+    @BeforeEach
+    public void before() throws Exception {
+        filter = new GzipFilter();
+        filter.init(filterConfig(context(root), Collections.singletonMap("gzip.minSize", "1024")));
+    }
+
+    @AfterEach
+    public void after() {
+        filter.destroy();
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(accepts("gzip"));
+        assertTrue(accepts("deflate, gzip"));
+        assertTrue(accepts("br;q=1.0, gzip;q=0.5"));
+        assertTrue(accepts("*"));
+        assertFalse(accepts("gzip;q=0"));
+        assertFalse(accepts("gzip; q=0.000"));
+        assertFalse(accepts("identity"));
+        assertFalse(accepts(null));
+    }
+
+    @Test
+    public void testCompressesLargeResponse() throws Exception {
+        ServletStubs.Response response = filter(gzipRequest("/list"), html(TEXT));
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertNull(response.header("Content-Length"));
+        assertEquals(TEXT, gunzip(response.body.toByteArray()));
+    }
+
+    @Test
+    public void testSmallResponseUncompressed() throws Exception {
+        ServletStubs.Response response = filter(gzipRequest("/list"), html("<p>мало</p>"));
+        assertNull(response.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertEquals("<p>мало</p>", response.text());
+        assertEquals(String.valueOf("<p>мало</p>".getBytes(StandardCharsets.UTF_8).length), response.header("Content-Length"));
+    }
+
+    @Test
+    public void testWithoutAcceptEncoding() throws Exception {
+        ServletStubs.Response response = filter(new ServletStubs.Request("GET", "/list"), html(TEXT));
+        assertNull(response.header("Content-Encoding"));
+        // кешам нужен Vary и на несжатом ответе
+        assertEquals("Accept-Encoding", response.header("Vary"));
+        assertEquals(TEXT, response.text());
+    }
+
+    @Test
+    public void testIncompressibleType() throws Exception {
+        final byte[] image = new byte[4096];
+        ServletStubs.Response response = filter(gzipRequest("/img/photo"), (req, resp) -> {
+            chainCalls.incrementAndGet();
+            resp.setContentType("image/png");
+            resp.getOutputStream().write(image);
+        });
+        assertNull(response.header("Content-Encoding"));
+        assertArrayEquals(image, response.body.toByteArray());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        final ServletStubs.Response response = new ServletStubs.Response();
+        filter.doFilter(gzipRequest("/list").proxy(), response.proxy(), (req, resp) -> {
+            resp.setContentType("text/html; charset=UTF-8");
+            PrintWriter writer = resp.getWriter();
+            writer.print(TEXT);
+            resp.flushBuffer();
+            // сжатая часть уже ушла клиенту до конца ответа
+            int flushed = response.body.size();
+            assertTrue(flushed > 0);
+            assertTrue(flushed < TEXT.length());
+            writer.print(TEXT);
+        });
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals(TEXT + TEXT, gunzip(response.body.toByteArray()));
+    }
+
+    @Test
+    public void testPrecompressed() throws Exception {
+        File css = createStatic("css/style.css", "body { color: black; }\n".repeat(100));
+        File gz = new File(css.getPath() + ".gz");
+
+        ServletStubs.Response response = filter(gzipRequest("/css/style.css"), html(TEXT));
+        assertEquals(0, chainCalls.get());
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("text/css", response.header("Content-Type"));
+        assertEquals(String.valueOf(gz.length()), response.header("Content-Length"));
+        assertEquals(new String(Files.readAllBytes(css.toPath()), StandardCharsets.UTF_8), gunzip(response.body.toByteArray()));
+        String etag = response.header("ETag");
+        assertNotNull(etag);
+
+        ServletStubs.Response cached = filter(gzipRequest("/css/style.css").header("If-None-Match", etag), html(TEXT));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, cached.status);
+        assertEquals(0, cached.body.size());
+        assertEquals(0, chainCalls.get());
+    }
+
+    @Test
+    public void testPrecompressedSkipped() throws Exception {
+        createStatic("css/style.css", "body { color: black; }\n".repeat(100));
+        // части файла отдаёт контейнер из несжатого оригинала
+        filter(gzipRequest("/css/style.css").header("Range", "bytes=0-99"), html(TEXT));
+        assertEquals(1, chainCalls.get());
+        filter(new ServletStubs.Request("GET", "/css/style.css"), html(TEXT));
+        assertEquals(2, chainCalls.get());
+        filter(gzipRequest("/css/other.css"), html(TEXT));
+        assertEquals(3, chainCalls.get());
+    }
+
+    private ServletStubs.Response filter(ServletStubs.Request request, FilterChain chain) throws Exception {
+        ServletStubs.Response response = new ServletStubs.Response();
+        filter.doFilter(request.proxy(), response.proxy(), chain);
+        return response;
+    }
+
+    private FilterChain html(final String body) {
+        return (req, resp) -> {
+            chainCalls.incrementAndGet();
+            resp.setContentType("text/html; charset=UTF-8");
+            resp.getWriter().print(body);
+        };
+    }
+
+    private File createStatic(String path, String content) throws IOException {
+        File file = root.resolve(path).toFile();
+        assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(Precompressor.compress(file, 9));
+        return file;
+    }
+
+    private static ServletStubs.Request gzipRequest(String uri) {
+        return new ServletStubs.Request("GET", uri).header("Accept-Encoding", "gzip, deflate");
+    }
+
+    private static boolean accepts(String acceptEncoding) {
+        ServletStubs.Request request = new ServletStubs.Request("GET", "/");
+        if (acceptEncoding != null) request.header("Accept-Encoding", acceptEncoding);
+        return GzipFilter.acceptsGzip(request.proxy());
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Контекст, отдающий файлы из каталога как ресурсы приложения
+     */
+    private static ServletContext context(final Path root) {
+        return (ServletContext) Proxy.newProxyInstance(GzipFilterTest.class.getClassLoader(),
+                new Class<?>[]{ServletContext.class}, (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "getResource":
+                            File file = root.resolve(((String) args[0]).substring(1)).toFile();
+                            return file.isFile() ? file.toURI().toURL() : null;
+                        case "getResourceAsStream":
+                            File stream = root.resolve(((String) args[0]).substring(1)).toFile();
+                            return stream.isFile() ? new FileInputStream(stream) : null;
+                        case "getMimeType":
+                            return ((String) args[0]).endsWith(".css") ? "text/css" : null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static FilterConfig filterConfig(final ServletContext context, Map<String, String> parameters) {
+        final Map<String, String> params = new HashMap<>(parameters);
+        return (FilterConfig) Proxy.newProxyInstance(GzipFilterTest.class.getClassLoader(),
+                new Class<?>[]{FilterConfig.class}, (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "getServletContext":
+                            return context;
+                        case "getInitParameter":
+                            return params.get((String) args[0]);
+                        case "getInitParameterNames":
+                            return Collections.enumeration(params.keySet());
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,91 @@
+package webapp.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import webapp.model.Resume;
+import webapp.storage.MapStorage;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ошибки API без асинхронного исполнителя - тоже JSON
+ */
+public class ResumeApiServletTest {
+    private MapStorage storage;
+    private ResumeApiServlet servlet;
+
+    @BeforeEach
+    public void before() throws ServletException {
+        storage = new MapStorage();
+        servlet = new ResumeApiServlet(storage);
+        servlet.init(ServletStubs.config());
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+        ServletStubs.Response response = get("/missing");
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, response.status);
+        assertTrue(response.header("Content-Type").startsWith("application/json"));
+        assertEquals("{\"status\":404,\"error\":null}", response.text());
+    }
+
+    @Test
+    public void testBadRequest() throws Exception {
+        Resume r = new Resume("Полное Имя", null);
+        storage.save(r);
+        ServletStubs.Request request = new ServletStubs.Request("PUT", "/api/resumes").body("{\"fullName\": \"Имя\",}");
+        request.pathInfo = "/" + r.getUuid();
+        ServletStubs.Response response = new ServletStubs.Response();
+        servlet.doPut(request.proxy(), response.proxy());
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.status);
+        assertTrue(response.text().startsWith("{\"status\":400,\"error\":\"Invalid JSON: "), response.text());
+
+        ServletStubs.Response list = new ServletStubs.Response();
+        ServletStubs.Request page = new ServletStubs.Request("GET", "/api/resumes");
+        page.parameters.put("limit", "-1");
+        servlet.doGet(page.proxy(), list.proxy());
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, list.status);
+        assertTrue(list.text().startsWith("{\"status\":400,"), list.text());
+    }
+
+    @Test
+    public void testSaveAllInvalidUuid() throws Exception {
+        String uuid = "7c9e6679-7425-40de-944b-e07fc1f90ae7";
+        ServletStubs.Request request = new ServletStubs.Request("POST", "/api/resumes")
+                .body("[{\"uuid\": \"dummy\", \"fullName\": \"Имя1\"}, {\"uuid\": \"" + uuid + "\", \"fullName\": \"Имя2\"}]");
+        ServletStubs.Response response = new ServletStubs.Response();
+        servlet.doPost(request.proxy(), response.proxy());
+        assertEquals("[{\"uuid\":\"dummy\",\"status\":400,\"error\":\"Invalid uuid 'dummy'\"},"
+                + "{\"uuid\":\"" + uuid + "\",\"status\":201,\"version\":1}]", response.text());
+        assertEquals(1, storage.size());
+        assertEquals(uuid, storage.load(uuid).getUuid());
+    }
+
+    @Test
+    public void testServerError() throws Exception {
+        servlet = new ResumeApiServlet(new MapStorage() {
+            @Override
+            public int size() {
+                throw new IllegalStateException("Storage is down");
+            }
+        });
+        servlet.init(ServletStubs.config());
+        ServletStubs.Response response = new ServletStubs.Response();
+        servlet.doGet(new ServletStubs.Request("GET", "/api/resumes").proxy(), response.proxy());
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, response.status);
+        assertEquals("{\"status\":500,\"error\":\"Storage is down\"}", response.text());
+    }
+
+    private ServletStubs.Response get(String pathInfo) throws ServletException, IOException {
+        ServletStubs.Request request = new ServletStubs.Request("GET", "/api/resumes");
+        request.pathInfo = pathInfo;
+        ServletStubs.Response response = new ServletStubs.Response();
+        servlet.doGet(request.proxy(), response.proxy());
+        return response;
+    }
+}
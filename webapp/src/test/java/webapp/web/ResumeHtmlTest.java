@@ -0,0 +1,86 @@
+package webapp.web;
+
+import org.junit.jupiter.api.Test;
+import webapp.model.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResumeHtmlTest {
+    private static final String XSS = "<script>alert('x')</script>";
+    private static final String ESCAPED = "&lt;script&gt;alert(&#39;x&#39;)&lt;/script&gt;";
+
+    @Test
+    public void testListEscaped() throws IOException {
+        Resume r = new Resume("\"><b>" + XSS, XSS);
+        r.addContact(ContactType.MAIL, "a'@b.ru" + XSS);
+        String row = html(ResumeHtml.listRow(r));
+        assertFalse(row.contains("<script>"), row);
+        assertTrue(row.contains("&quot;&gt;&lt;b&gt;" + ESCAPED), row);
+        assertTrue(row.contains("<td>" + ESCAPED + "\n"), row);
+        assertTrue(row.contains("<a href='mailto:a&#39;@b.ru" + ESCAPED + "'>"), row);
+
+        String header = html(ResumeHtml.listHeader("\"" + XSS));
+        assertFalse(header.contains("<script>"));
+        assertTrue(header.contains("value=\"&quot;" + ESCAPED + "\""), header);
+    }
+
+    @Test
+    public void testEmptyCells() {
+        String row = html(ResumeHtml.listRow(new Resume("Полное Имя", null)));
+        assertEquals(2, count(row, HtmlUtil.EMPTY_TD));
+    }
+
+    @Test
+    public void testViewEscaped() {
+        Resume r = new Resume(XSS, XSS);
+        r.addContact(ContactType.SKYPE, XSS);
+        r.addContact(ContactType.PHONE, XSS);
+        r.addSection(SectionType.OBJECTIVE, XSS);
+        r.addSection(SectionType.ACHIEVEMENT, XSS, "Второе & последнее");
+        r.addSection(SectionType.EXPERIENCE, new Organization(XSS, "\" onclick=\"" + XSS,
+                new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "position", XSS)));
+        String page = html(ResumeHtml.viewPage(r));
+        assertFalse(page.contains("<script>"), page);
+        assertFalse(page.contains("\" onclick"), page);
+        assertEquals(11, count(page, ESCAPED));
+        assertTrue(page.contains("<li>Второе &amp; последнее</li>"), page);
+        assertTrue(page.contains("<h2>" + ESCAPED + "</h2>"), page);
+    }
+
+    @Test
+    public void testWriterSameAsFragments() throws IOException {
+        Resume r = new Resume("Полное Имя", "Москва");
+        r.addContact(ContactType.MAIL, "mail@ya.ru");
+        r.addSection(SectionType.QUALIFICATIONS, "Java", "SQL");
+        r.addSection(SectionType.EDUCATION, new Organization("МГУ", "http://msu.ru",
+                new Period(1998, Calendar.SEPTEMBER, 2003, Calendar.JUNE, null, "Физфак")));
+
+        // JSP пишет ту же разметку, что лежит в кэше фрагментов
+        StringWriter list = new StringWriter();
+        ResumeHtml.listHeader(list, "q");
+        ResumeHtml.listRow(list, r);
+        ResumeHtml.listFooter(list);
+        assertEquals(html(ResumeHtml.listHeader("q")) + html(ResumeHtml.listRow(r)) + html(ResumeHtml.listFooter()), list.toString());
+
+        StringWriter view = new StringWriter();
+        ResumeHtml.viewPage(view, r);
+        assertEquals(html(ResumeHtml.viewPage(r)), view.toString());
+    }
+
+    private static String html(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int count(String s, String part) {
+        int count = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
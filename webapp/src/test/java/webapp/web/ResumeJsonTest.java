@@ -0,0 +1,83 @@
+package webapp.web;
+
+import org.junit.jupiter.api.Test;
+import webapp.WebAppException;
+import webapp.model.*;
+import webapp.util.DateUtil;
+import webapp.util.JsonReader;
+import webapp.util.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Calendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResumeJsonTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Resume r = new Resume("Полное \"Имя\"", "Москва\nЦентр");
+        r.setVersion(7);
+        r.addContact(ContactType.MAIL, "mail@ya.ru");
+        r.addContact(ContactType.SKYPE, "skype\\1");
+        r.addSection(SectionType.OBJECTIVE, "Java 😀 разработчик");
+        r.addSection(SectionType.ACHIEVEMENT, "Первое", "Второе");
+        r.addSection(SectionType.EXPERIENCE,
+                new Organization("Организация", "http://org.ru",
+                        new Period(2005, Calendar.JANUARY, 2008, Calendar.DECEMBER, "должность", "описание"),
+                        new Period(DateUtil.yearMonth(2009, Calendar.MAY), DateUtil.NONE, "сейчас", null)),
+                new Organization("Без ссылки", null));
+
+        Resume read = read(write(r));
+        assertEquals(r, read);
+        assertEquals(7, read.getVersion());
+        assertEquals(r.getSection(SectionType.EXPERIENCE), read.getSection(SectionType.EXPERIENCE));
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+        Resume r = new Resume("uuid1", "Имя", null);
+        r.addSection(SectionType.EXPERIENCE, new Organization("Орг", null,
+                new Period(DateUtil.yearMonth(2010, Calendar.JANUARY), DateUtil.NONE, "должность", null)));
+        assertEquals("{\"uuid\":\"uuid1\",\"fullName\":\"Имя\",\"location\":\"\",\"version\":0,\"contacts\":{}," +
+                "\"sections\":{\"EXPERIENCE\":[{\"name\":\"Орг\",\"url\":null," +
+                "\"periods\":[{\"start\":\"2010-01\",\"end\":null,\"position\":\"должность\",\"content\":null}]}]}}", write(r));
+    }
+
+    @Test
+    public void testUnknownFieldsSkipped() throws IOException {
+        Resume r = read("{\"fullName\": \"Имя\", \"extra\": {\"a\": [1, 2.5, true]}, \"contacts\": {\"MAIL\": \"a@b.ru\"}," +
+                " \"sections\": {\"EDUCATION\": [{\"name\": \"МГУ\", \"rating\": 5, \"periods\": []}]}}");
+        assertNull(r.getUuid());
+        assertEquals("Имя", r.getFullName());
+        assertEquals(0, r.getVersion());
+        assertEquals("a@b.ru", r.getContact(ContactType.MAIL));
+        assertEquals(new Organization("МГУ", null), r.getSection(SectionType.EDUCATION).getValues().iterator().next());
+    }
+
+    @Test
+    public void testInvalid() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> read("{\"fullName\": \"Имя\", \"contacts\": {\"FAX\": \"1\"}}"));
+        assertEquals("Unknown ContactType FAX", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> read("{\"fullName\": \"Имя\", \"sections\": " +
+                "{\"EXPERIENCE\": [{\"name\": \"Орг\", \"periods\": [{\"start\": \"2010\"}]}]}}"));
+        assertThrows(WebAppException.class, () -> read("{\"fullName\": \"Имя\", \"version\": 4294967297}"));
+        assertThrows(WebAppException.class, () -> read("{\"fullName\": \"Имя\", \"sections\": {\"OBJECTIVE\": [1]}}"));
+        assertThrows(WebAppException.class, () -> read("{\"fullName\": \"Имя\" \"location\": null}"));
+    }
+
+    private static String write(Resume r) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter w = new JsonWriter(out);
+        ResumeJson.write(w, r);
+        w.flush();
+        return out.toString();
+    }
+
+    private static Resume read(String json) throws IOException {
+        return ResumeJson.read(new JsonReader(new StringReader(json)));
+    }
+}
@@ -0,0 +1,60 @@
+package webapp.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import webapp.model.ContactType;
+import webapp.model.Resume;
+import webapp.model.SectionType;
+import webapp.storage.MapStorage;
+
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResumeTransferServletTest {
+    private MapStorage storage;
+    private ResumeTransferServlet servlet;
+
+    @BeforeEach
+    public void before() throws ServletException {
+        storage = new MapStorage();
+        servlet = new ResumeTransferServlet(storage);
+        servlet.init(ServletStubs.config());
+    }
+
+    @Test
+    public void testExportImport() throws IOException {
+        Resume r1 = new Resume("Полное Имя1", "Москва");
+        r1.addContact(ContactType.MAIL, "mail1@ya.ru");
+        r1.addSection(SectionType.OBJECTIVE, "Java \"разработчик\"");
+        Resume r2 = new Resume("Полное Имя2", null);
+        storage.save(r1);
+        storage.save(r2);
+
+        ServletStubs.Response exported = new ServletStubs.Response();
+        servlet.doGet(new ServletStubs.Request("GET", "/api/transfer").proxy(), exported.proxy());
+        assertTrue(exported.header("Content-Type").startsWith("application/json"));
+        String json = exported.text();
+
+        storage.clear();
+        ServletStubs.Response imported = new ServletStubs.Response();
+        servlet.doPost(new ServletStubs.Request("POST", "/api/transfer").body(json).proxy(), imported.proxy());
+        assertEquals("{\"done\":2,\"failed\":0,", imported.text().substring(0, imported.text().indexOf("\"millis\"")));
+        assertEquals(r1, storage.load(r1.getUuid()));
+        assertEquals(r2, storage.load(r2.getUuid()));
+    }
+
+    @Test
+    public void testImportDuplicates() throws IOException {
+        Resume r1 = new Resume("Полное Имя1", null);
+        storage.save(r1);
+        ServletStubs.Response response = new ServletStubs.Response();
+        servlet.doPost(new ServletStubs.Request("POST", "/api/transfer").body(
+                "[{\"uuid\":\"" + r1.getUuid() + "\",\"fullName\":\"Другое Имя\"},{\"fullName\":\"Новое Имя\"}]").proxy(), response.proxy());
+        assertTrue(response.text().startsWith("{\"done\":1,\"failed\":1,"), response.text());
+        assertEquals(2, storage.size());
+        assertEquals("Полное Имя1", storage.load(r1.getUuid()).getFullName());
+    }
+}
@@ -0,0 +1,277 @@
+package webapp.web;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Заглушки Servlet API для тестов сервлетов и фильтров без контейнера.
+ * Реализовано то, что вызывают наши сервлеты, остальные методы возвращают null/0/false.
+ */
+final class ServletStubs {
+
+    private ServletStubs() {
+    }
+
+    static class Request implements InvocationHandler {
+        final String method;
+        final String uri;
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final Map<String, String> parameters = new HashMap<>();
+        final Map<String, Object> attributes = new HashMap<>();
+        String pathInfo;
+        byte[] body = new byte[0];
+
+        Request(String method, String uri) {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+
+        Request body(String body) {
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+            return this;
+        }
+
+        HttpServletRequest proxy() {
+            return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws IOException {
+            switch (m.getName()) {
+                case "getMethod":
+                    return method;
+                case "getRequestURI":
+                case "getServletPath":
+                    return uri;
+                case "getPathInfo":
+                    return pathInfo;
+                case "getHeader":
+                    return headers.get((String) args[0]);
+                case "getHeaders":
+                    String value = headers.get((String) args[0]);
+                    return Collections.enumeration(value == null ? Collections.<String>emptyList() : Collections.singletonList(value));
+                case "getDateHeader":
+                    String date = headers.get((String) args[0]);
+                    return date == null ? -1L : parseDate(date);
+                case "getParameter":
+                    return parameters.get((String) args[0]);
+                case "getAttribute":
+                    return attributes.get((String) args[0]);
+                case "setAttribute":
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                case "getInputStream":
+                    return input(body);
+                default:
+                    return defaultValue(m.getReturnType());
+            }
+        }
+    }
+
+    static class Response implements InvocationHandler {
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int status = HttpServletResponse.SC_OK;
+        boolean committed;
+        private PrintWriter writer;
+
+        HttpServletResponse proxy() {
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{HttpServletResponse.class}, this);
+        }
+
+        String header(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? null : values.get(0);
+        }
+
+        String text() {
+            if (writer != null) writer.flush();
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            switch (m.getName()) {
+                case "setStatus":
+                    status = (Integer) args[0];
+                    return null;
+                case "getStatus":
+                    return status;
+                case "sendError":
+                    status = (Integer) args[0];
+                    committed = true;
+                    return null;
+                case "setHeader":
+                    headers.put((String) args[0], new ArrayList<>(Collections.singletonList(String.valueOf(args[1]))));
+                    return null;
+                case "addHeader":
+                    headers.computeIfAbsent((String) args[0], k -> new ArrayList<>()).add(String.valueOf(args[1]));
+                    return null;
+                case "setDateHeader":
+                case "setIntHeader":
+                    headers.put((String) args[0], new ArrayList<>(Collections.singletonList(String.valueOf(args[1]))));
+                    return null;
+                case "containsHeader":
+                    return headers.containsKey((String) args[0]);
+                case "getHeader":
+                    return header((String) args[0]);
+                case "getHeaders":
+                    List<String> values = headers.get((String) args[0]);
+                    return values == null ? Collections.emptyList() : values;
+                case "setContentType":
+                    headers.put("Content-Type", new ArrayList<>(Collections.singletonList((String) args[0])));
+                    return null;
+                case "getContentType":
+                    return header("Content-Type");
+                case "setContentLength":
+                case "setContentLengthLong":
+                    headers.put("Content-Length", new ArrayList<>(Collections.singletonList(String.valueOf(args[0]))));
+                    return null;
+                case "getOutputStream":
+                    return output(this);
+                case "getWriter":
+                    if (writer == null) {
+                        writer = new PrintWriter(new OutputStreamWriter(output(this), StandardCharsets.UTF_8));
+                    }
+                    return writer;
+                case "isCommitted":
+                    return committed;
+                case "flushBuffer":
+                    committed = true;
+                    return null;
+                case "reset":
+                    headers.clear();
+                    status = HttpServletResponse.SC_OK;
+                    body.reset();
+                    return null;
+                case "resetBuffer":
+                    body.reset();
+                    return null;
+                case "getCharacterEncoding":
+                    return "UTF-8";
+                default:
+                    return defaultValue(m.getReturnType());
+            }
+        }
+    }
+
+    /**
+     * Конфигурация сервлета, log контекста пишет в никуда
+     */
+    static ServletConfig config() {
+        final ServletContext context = (ServletContext) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+                new Class<?>[]{ServletContext.class}, (proxy, m, args) -> defaultValue(m.getReturnType()));
+        return (ServletConfig) Proxy.newProxyInstance(ServletStubs.class.getClassLoader(),
+                new Class<?>[]{ServletConfig.class}, (proxy, m, args) -> {
+                    switch (m.getName()) {
+                        case "getServletContext":
+                            return context;
+                        case "getServletName":
+                            return "test";
+                        case "getInitParameterNames":
+                            return Collections.emptyEnumeration();
+                        default:
+                            return defaultValue(m.getReturnType());
+                    }
+                });
+    }
+
+    private static ServletInputStream input(byte[] body) {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+            }
+        };
+    }
+
+    private static ServletOutputStream output(final Response response) {
+        return new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                response.body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                response.body.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                response.committed = true;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        };
+    }
+
+    private static long parseDate(String date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(date).getTime();
+        } catch (java.text.ParseException e) {
+            throw new IllegalArgumentException(date);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+}
@@ -20,6 +20,7 @@
       | типХранилища |
       | ARRAY        |
       | MAP          |
+      | SQL          |
 
   Сценарий: Проверка ограничений ArrayStorage
     Дано я использую хранилище типа "ARRAY"
@@ -48,6 +49,11 @@
     Когда я добавляю 50 резюме
     И я измеряю время поиска резюме
     Тогда время поиска должно быть менее 10 миллисекунд
+    Дано я использую хранилище типа "SQL"
+    И хранилище очищено
+    Когда я добавляю 50 резюме
+    И я измеряю время поиска резюме
+    Тогда время поиска должно быть менее 100 миллисекунд
 
   Сценарий: Проверка транзакционности операций
     Дано я использую хранилище типа "MAP"